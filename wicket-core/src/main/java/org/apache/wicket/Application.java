@@ -31,6 +31,7 @@ import org.apache.wicket.application.ComponentInitializationListenerCollection;
 import org.apache.wicket.application.ComponentInstantiationListenerCollection;
 import org.apache.wicket.application.ComponentOnAfterRenderListenerCollection;
 import org.apache.wicket.application.ComponentOnBeforeRenderListenerCollection;
+import org.apache.wicket.application.ComponentWarmUp;
 import org.apache.wicket.application.HeaderContributorListenerCollection;
 import org.apache.wicket.application.IComponentInitializationListener;
 import org.apache.wicket.application.IComponentInstantiationListener;
@@ -811,11 +812,26 @@ public abstract class Application implements UnboundListener, IEventSink
 		internalInit();
 		init();
 		initializeComponents();
+		warmUp();
 		applicationListeners.onAfterInitialized(this);
 
 		validateInit();
 	}
 
+	/**
+	 * Loads the markup and properties of the pages and panels in the packages configured with
+	 * {@link IMarkupSettings#setWarmUpPackages(String...)}, if any.
+	 * 
+	 * @see ComponentWarmUp
+	 */
+	protected void warmUp()
+	{
+		if (getMarkupSettings().getWarmUpPackages().isEmpty() == false)
+		{
+			new ComponentWarmUp(this).warmUp();
+		}
+	}
+
 	/**
 	 * Gives the Application object a chance to validate if it has been properly initialized
 	 */
@@ -27,6 +27,8 @@ import org.apache.wicket.pageStore.DiskDataStore;
 import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.pageStore.IPageStore;
 import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.compress.CompressingSerializer;
+import org.apache.wicket.serialize.compress.ICompressor;
 import org.apache.wicket.settings.IStoreSettings;
 import org.apache.wicket.util.lang.Bytes;
 
@@ -58,7 +60,9 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 		if (dataStore.canBeAsynchronous())
 		{
 			int capacity = storeSettings.getAsynchronousQueueCapacity();
-			dataStore = new AsynchronousDataStore(dataStore, capacity);
+			int batchSize = storeSettings.getAsynchronousBatchSize();
+			int threadCount = storeSettings.getAsynchronousThreadCount();
+			dataStore = new AsynchronousDataStore(dataStore, capacity, batchSize, threadCount);
 		}
 
 		IPageStore pageStore = newPageStore(dataStore);
@@ -68,9 +72,17 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 
 	protected IPageStore newPageStore(IDataStore dataStore)
 	{
-		int inmemoryCacheSize = getStoreSettings().getInmemoryCacheSize();
+		IStoreSettings storeSettings = getStoreSettings();
+		int inmemoryCacheSize = storeSettings.getInmemoryCacheSize();
 		ISerializer pageSerializer = application.getFrameworkSettings().getSerializer();
-		return new DefaultPageStore(pageSerializer, dataStore, inmemoryCacheSize);
+		ICompressor compressor = storeSettings.getCompressor();
+		if (compressor != null)
+		{
+			pageSerializer = new CompressingSerializer(pageSerializer, compressor,
+				storeSettings.getCompressionThreshold());
+		}
+		return new DefaultPageStore(pageSerializer, dataStore, inmemoryCacheSize,
+			storeSettings.getInmemoryCacheMaxSize());
 	}
 
 	protected IDataStore newDataStore()
@@ -78,8 +90,10 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 		IStoreSettings storeSettings = getStoreSettings();
 		Bytes maxSizePerSession = storeSettings.getMaxSizePerSession();
 		File fileStoreFolder = storeSettings.getFileStoreFolder();
+		int fileChannelPoolCapacity = storeSettings.getFileChannelPoolCapacity();
 
-		return new DiskDataStore(application.getName(), fileStoreFolder, maxSizePerSession);
+		return new DiskDataStore(application.getName(), fileStoreFolder, maxSizePerSession,
+			fileChannelPoolCapacity);
 	}
 
 	IStoreSettings getStoreSettings()
@@ -16,13 +16,17 @@
  */
 package org.apache.wicket;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.wicket.markup.repeater.AbstractRepeater;
@@ -30,6 +34,7 @@ import org.apache.wicket.model.IModel;
 import org.apache.wicket.resource.loader.IStringResourceLoader;
 import org.apache.wicket.settings.IResourceSettings;
 import org.apache.wicket.util.lang.Generics;
+import org.apache.wicket.util.lang.Objects;
 import org.apache.wicket.util.string.AppendingStringBuffer;
 import org.apache.wicket.util.string.interpolator.PropertyVariableInterpolator;
 import org.slf4j.Logger;
@@ -62,6 +67,22 @@ public class Localizer
 	/** Cache properties */
 	private Map<String, String> cache = newCache();
 
+	/**
+	 * Bounded cache with compact keys. If not null it is used instead of {@link #cache}.
+	 * 
+	 * @see #setMaxCacheSize(int)
+	 */
+	private volatile BoundedCache boundedCache;
+
+	/** Maximum number of entries in the bounded cache, 0 if the unbounded cache is used */
+	private int maxCacheSize;
+
+	/** Number of strings found in the cache */
+	private final AtomicLong cacheHits = new AtomicLong();
+
+	/** Number of strings which had to be loaded */
+	private final AtomicLong cacheMisses = new AtomicLong();
+
 	/** Database that maps class names to an integer id. */
 	private final ClassMetaDatabase metaDatabase = new ClassMetaDatabase();
 
@@ -92,6 +113,10 @@ public class Localizer
 		{
 			cache = newCache();
 		}
+		if (boundedCache != null)
+		{
+			boundedCache = new BoundedCache(maxCacheSize);
+		}
 	}
 
 	/**
@@ -310,6 +335,7 @@ public class Localizer
 		}
 
 		String cacheKey = null;
+		CacheKey compactKey = null;
 		String value = null;
 
 		// Make sure locale, style and variation have the right values
@@ -335,15 +361,41 @@ public class Localizer
 
 		// If this component is not yet added to page we do not want to check
 		// cache as we can generate an invalid cache key
-		if ((cache != null) && ((component == null) || addedToPage))
+		final BoundedCache bounded = boundedCache;
+		if ((component == null) || addedToPage)
 		{
-			cacheKey = getCacheKey(key, component, locale, style, variation);
+			if (bounded != null)
+			{
+				compactKey = new CacheKey(key, component, locale, style, variation);
+			}
+			else if (cache != null)
+			{
+				cacheKey = getCacheKey(key, component, locale, style, variation);
+			}
 		}
 
 		// Value not found are cached as well (value = null)
-		if ((cacheKey != null) && cache.containsKey(cacheKey))
+		boolean cached = false;
+		if (compactKey != null)
+		{
+			value = bounded.get(compactKey);
+			cached = value != null;
+
+			// ConcurrentHashMap does not allow null values
+			if (NULL_VALUE == value)
+			{
+				value = null;
+			}
+		}
+		else if ((cacheKey != null) && cache.containsKey(cacheKey))
 		{
 			value = getFromCache(cacheKey);
+			cached = true;
+		}
+
+		if (cached)
+		{
+			cacheHits.incrementAndGet();
 			if (log.isDebugEnabled())
 			{
 				log.debug("Property found in cache: '" + key + "'; Component: '" +
@@ -369,8 +421,14 @@ public class Localizer
 			}
 
 			// Cache the result incl null if not found
-			if (cacheKey != null)
+			if (compactKey != null)
+			{
+				cacheMisses.incrementAndGet();
+				bounded.put(compactKey, value != null ? value : NULL_VALUE);
+			}
+			else if (cacheKey != null)
 			{
+				cacheMisses.incrementAndGet();
 				putIntoCache(cacheKey, value);
 			}
 
@@ -549,13 +607,95 @@ public class Localizer
 		if (value == false)
 		{
 			cache = null;
+			boundedCache = null;
 		}
 		else if (cache == null)
 		{
 			cache = newCache();
+			if (maxCacheSize > 0)
+			{
+				boundedCache = new BoundedCache(maxCacheSize);
+			}
+		}
+	}
+
+	/**
+	 * Limits the number of cached strings. Once the limit is reached, the oldest entries are
+	 * evicted.
+	 * <p>
+	 * The bounded cache doesn't build a string key for every lookup. Its keys are made of the ids
+	 * of the component hierarchy's classes and the component ids, which are much cheaper to create
+	 * and compare. Hence it doesn't use {@link #getCacheKey(String, Component, Locale, String, String)},
+	 * {@link #getFromCache(String)}, {@link #putIntoCache(String, String)} and {@link #newCache()}.
+	 * <p>
+	 * By default the cache is unbounded.
+	 * 
+	 * @param maxSize
+	 *            maximum number of cached strings, or 0 to use the unbounded cache
+	 */
+	public final void setMaxCacheSize(final int maxSize)
+	{
+		if (maxSize < 0)
+		{
+			throw new IllegalArgumentException("maxSize must not be negative");
+		}
+
+		maxCacheSize = maxSize;
+		if (cache != null)
+		{
+			boundedCache = maxSize > 0 ? new BoundedCache(maxSize) : null;
 		}
 	}
 
+	/**
+	 * @return maximum number of cached strings, or 0 if the cache is unbounded
+	 * @see #setMaxCacheSize(int)
+	 */
+	public final int getMaxCacheSize()
+	{
+		return maxCacheSize;
+	}
+
+	/**
+	 * @return the number of strings found in the cache
+	 */
+	public final long getCacheHits()
+	{
+		return cacheHits.get();
+	}
+
+	/**
+	 * @return the number of strings which were not found in the cache and had to be loaded
+	 */
+	public final long getCacheMisses()
+	{
+		return cacheMisses.get();
+	}
+
+	/**
+	 * @return the number of strings evicted from the bounded cache
+	 * @see #setMaxCacheSize(int)
+	 */
+	public final long getCacheEvictions()
+	{
+		final BoundedCache bounded = boundedCache;
+		return bounded != null ? bounded.evictions.get() : 0;
+	}
+
+	/**
+	 * @return the number of cached strings
+	 */
+	public final int getCacheSize()
+	{
+		final BoundedCache bounded = boundedCache;
+		if (bounded != null)
+		{
+			return bounded.size.get();
+		}
+		final Map<String, String> unbounded = cache;
+		return unbounded != null ? unbounded.size() : 0;
+	}
+
 	/**
 	 * Create a new cache, override this method if you want a different map to store the cache keys,
 	 * for example a map that hold only the last X number of elements..
@@ -569,6 +709,157 @@ public class Localizer
 		return new ConcurrentHashMap<String, String>();
 	}
 
+	/**
+	 * Key of the bounded cache. Made of the same parts as the string built by
+	 * {@link Localizer#getCacheKey(String, Component, Locale, String, String)}, but without
+	 * converting them into text.
+	 */
+	private final class CacheKey
+	{
+		private final String key;
+
+		/** ids of the component classes, from the component up to the page */
+		private final long[] classIds;
+
+		/** component ids, <code>null</code> for skipped components */
+		private final String[] componentIds;
+
+		private final Locale locale;
+
+		private final String style;
+
+		private final String variation;
+
+		private final int hashCode;
+
+		private CacheKey(final String key, final Component component, final Locale locale,
+			final String style, final String variation)
+		{
+			this.key = key;
+			this.locale = locale;
+			this.style = style;
+			this.variation = component != null ? variation : null;
+
+			int depth = 0;
+			for (Component cursor = component; cursor != null; cursor = cursor.getParent())
+			{
+				depth++;
+				if (cursor instanceof Page)
+				{
+					break;
+				}
+			}
+
+			classIds = new long[depth];
+			componentIds = new String[depth];
+
+			Component cursor = component;
+			for (int i = 0; i < depth; i++)
+			{
+				classIds[i] = metaDatabase.id(cursor.getClass());
+
+				final Component parent = cursor.getParent();
+
+				// skip loop items and auto components, see Localizer#getCacheKey()
+				if ((cursor instanceof Page == false) && (parent instanceof AbstractRepeater == false))
+				{
+					componentIds[i] = cursor.isAuto() ? "wicket-auto" : cursor.getId();
+				}
+				cursor = parent;
+			}
+
+			int hash = key.hashCode();
+			hash = 31 * hash + Arrays.hashCode(classIds);
+			hash = 31 * hash + Arrays.hashCode(componentIds);
+			hash = 31 * hash + (locale != null ? locale.hashCode() : 0);
+			hash = 31 * hash + (style != null ? style.hashCode() : 0);
+			hash = 31 * hash + (this.variation != null ? this.variation.hashCode() : 0);
+			hashCode = hash;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (obj instanceof CacheKey == false)
+			{
+				return false;
+			}
+			CacheKey that = (CacheKey)obj;
+			return hashCode == that.hashCode && key.equals(that.key) &&
+				Arrays.equals(classIds, that.classIds) &&
+				Arrays.equals(componentIds, that.componentIds) &&
+				Objects.equal(locale, that.locale) && Objects.equal(style, that.style) &&
+				Objects.equal(variation, that.variation);
+		}
+	}
+
+	/**
+	 * Cache which evicts its oldest entries once the maximum size is exceeded. Lookups don't need
+	 * any locking.
+	 */
+	private static final class BoundedCache
+	{
+		private final ConcurrentMap<CacheKey, String> map = Generics.newConcurrentHashMap();
+
+		/** keys in insertion order */
+		private final Queue<CacheKey> keys = new ConcurrentLinkedQueue<CacheKey>();
+
+		private final AtomicInteger size = new AtomicInteger();
+
+		private final AtomicLong evictions = new AtomicLong();
+
+		private final int maxSize;
+
+		private BoundedCache(final int maxSize)
+		{
+			this.maxSize = maxSize;
+		}
+
+		private String get(final CacheKey key)
+		{
+			return map.get(key);
+		}
+
+		private void put(final CacheKey key, final String value)
+		{
+			if (map.put(key, value) == null)
+			{
+				keys.add(key);
+				if (size.incrementAndGet() > maxSize)
+				{
+					evict();
+				}
+			}
+		}
+
+		private void evict()
+		{
+			while (size.get() > maxSize)
+			{
+				CacheKey eldest = keys.poll();
+				if (eldest == null)
+				{
+					break;
+				}
+				if (map.remove(eldest) != null)
+				{
+					size.decrementAndGet();
+					evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+
 	/**
 	 * Database that maps class names to an integer id. This is used to make localizer keys shorter
 	 * because sometimes they can contain a large number of class names.
@@ -20,8 +20,10 @@ import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.wicket.markup.ComponentTag;
 import org.apache.wicket.markup.IMarkupFragment;
@@ -99,9 +101,21 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	/** Log for reporting. */
 	private static final Logger log = LoggerFactory.getLogger(MarkupContainer.class);
 
+	/**
+	 * The number of children above which a container looks up its children by id with the help of
+	 * an index
+	 */
+	private static final int CHILD_INDEX_THRESHOLD = 32;
+
 	/** List of children or single child */
 	private Object children;
 
+	/**
+	 * The positions of the children by id. Built on demand for containers with many children, e.g.
+	 * repeaters, and dropped when children are removed.
+	 */
+	private transient Map<String, Integer> childIndex;
+
 	/**
 	 * @see org.apache.wicket.Component#Component(String)
 	 */
@@ -680,6 +694,7 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			}
 
 			children = null;
+			childIndex = null;
 		}
 
 		return this;
@@ -1035,6 +1050,11 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			}
 			((ChildList)children).add(child);
 		}
+
+		if (childIndex != null)
+		{
+			childIndex.put(child.getId(), children_size() - 1);
+		}
 	}
 
 	/**
@@ -1150,6 +1170,39 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		}
 	}
 
+	/**
+	 * Returns the index of the children by id, building it if the container has enough children.
+	 * 
+	 * @return the positions of the children by id or {@code null} if the container has too few
+	 *         children to need an index
+	 */
+	private final Map<String, Integer> children_index()
+	{
+		if (childIndex == null)
+		{
+			final int size = children_size();
+			if (size > CHILD_INDEX_THRESHOLD)
+			{
+				Object[] children;
+				if (this.children instanceof ChildList)
+				{
+					children = ((ChildList)this.children).childs;
+				}
+				else
+				{
+					children = (Object[])this.children;
+				}
+
+				childIndex = new HashMap<String, Integer>(size * 2);
+				for (int i = 0; i < size; i++)
+				{
+					childIndex.put(getId(children[i]), i);
+				}
+			}
+		}
+		return childIndex;
+	}
+
 	/**
 	 * 
 	 * @param id
@@ -1161,6 +1214,14 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		{
 			return null;
 		}
+
+		Map<String, Integer> index = children_index();
+		if (index != null)
+		{
+			Integer position = index.get(id);
+			return position != null ? children_get(position) : null;
+		}
+
 		Component component = null;
 		if ((children instanceof Object[] == false) && (children instanceof List == false))
 		{
@@ -1214,6 +1275,14 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		{
 			return -1;
 		}
+
+		Map<String, Integer> index = children_index();
+		if (index != null)
+		{
+			Integer position = index.get(child.getId());
+			return position != null ? position : -1;
+		}
+
 		if (children instanceof Object[] == false && children instanceof ChildList == false)
 		{
 			if (getId(children).equals(child.getId()))
@@ -1274,6 +1343,9 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			return null;
 		}
 
+		// the positions of the following children change
+		childIndex = null;
+
 		if (children instanceof Component || children instanceof ComponentSourceEntry)
 		{
 			if (index == 0)
@@ -1357,6 +1429,12 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 		{
 			throw new IndexOutOfBoundsException();
 		}
+
+		if (childIndex != null)
+		{
+			childIndex.remove(getId(replaced));
+			childIndex.put(getId(child), index);
+		}
 		return postprocess(replaced, reconstruct, null, -1);
 	}
 
@@ -2034,6 +2112,12 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			list.childs[idx1] = list.childs[idx2];
 			list.childs[idx2] = tmp;
 		}
+
+		if (childIndex != null)
+		{
+			childIndex.put(getId(children_get(idx1, false)), idx1);
+			childIndex.put(getId(children_get(idx2, false)), idx2);
+		}
 	}
 
 	/**
@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Page;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.markup.ContainerInfo;
+import org.apache.wicket.markup.IMarkupCacheKeyProvider;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.MarkupType;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.resource.loader.IStringResourceLoader;
+import org.apache.wicket.settings.IMarkupSettings;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.thread.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the markup and the properties of the pages and panels of an application when it starts up,
+ * so the first requests after a deployment find them in the caches.
+ * <p>
+ * The {@link Page} and {@link Panel} classes are searched in the packages configured with
+ * {@link IMarkupSettings#setWarmUpPackages(String...)}. For each class and each of the
+ * {@link IMarkupSettings#getWarmUpLocales() warm-up locales} the markup, including any inherited
+ * markup, is loaded into the markup cache and, unless disabled with
+ * {@link org.apache.wicket.settings.IResourceSettings#setWarmUpProperties(boolean)}, each string
+ * resource loader loads the properties it would search for the class. The classes are warmed up in
+ * parallel.
+ * <p>
+ * The markup is loaded for the html markup type without a style or variation. Classes which provide
+ * their own markup resource stream or cache key are skipped, their markup depends on the instance.
+ *
+ * @see Application#initApplication()
+ */
+public class ComponentWarmUp
+{
+	private static final Logger log = LoggerFactory.getLogger(ComponentWarmUp.class);
+
+	/**
+	 * A key no string resource loader will find, so that each of them loads every properties file
+	 * it would search.
+	 */
+	private static final String WARM_UP_KEY = ComponentWarmUp.class.getName() + ".missingKey";
+
+	/** the number of the slowest classes reported */
+	private static final int REPORTED_CLASSES = 10;
+
+	private final Application application;
+
+	/**
+	 * Construct.
+	 *
+	 * @param application
+	 */
+	public ComponentWarmUp(final Application application)
+	{
+		this.application = Args.notNull(application, "application");
+	}
+
+	/**
+	 * Warms up the pages and panels of the configured packages.
+	 *
+	 * @return the time in milliseconds each class took to warm up, the slowest first
+	 */
+	public Map<Class<?>, Long> warmUp()
+	{
+		final long start = System.currentTimeMillis();
+
+		final IMarkupSettings markupSettings = application.getMarkupSettings();
+		final Collection<Class<?>> classes = findClasses(markupSettings.getWarmUpPackages());
+		final List<Locale> locales = markupSettings.getWarmUpLocales();
+		final boolean warmUpProperties = application.getResourceSettings().getWarmUpProperties();
+		final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+		final Session session = newSession();
+
+		final List<Callable<Long>> tasks = new ArrayList<Callable<Long>>(classes.size());
+		for (final Class<?> clazz : classes)
+		{
+			tasks.add(new Callable<Long>()
+			{
+				@Override
+				public Long call() throws Exception
+				{
+					Thread.currentThread().setContextClassLoader(classLoader);
+					ThreadContext.setApplication(application);
+					ThreadContext.setSession(session);
+					try
+					{
+						long classStart = System.currentTimeMillis();
+						warmUp(clazz, locales, warmUpProperties);
+						return System.currentTimeMillis() - classStart;
+					}
+					catch (RuntimeException e)
+					{
+						log.warn("Failed to warm up " + clazz.getName(), e);
+						return null;
+					}
+					finally
+					{
+						ThreadContext.detach();
+					}
+				}
+			});
+		}
+
+		final Map<Class<?>, Long> durations = new LinkedHashMap<Class<?>, Long>();
+		int failed = 0;
+		if (tasks.isEmpty() == false)
+		{
+			ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(markupSettings.getWarmUpThreadCount(), tasks.size()),
+				new DaemonThreadFactory("Wicket-ComponentWarmUp"));
+			try
+			{
+				List<Future<Long>> futures = executor.invokeAll(tasks);
+				int i = 0;
+				for (Class<?> clazz : classes)
+				{
+					Long duration = futures.get(i++).get();
+					if (duration != null)
+					{
+						durations.put(clazz, duration);
+					}
+					else
+					{
+						failed++;
+					}
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				log.warn("Interrupted while warming up the pages and panels");
+			}
+			catch (ExecutionException e)
+			{
+				throw new WicketRuntimeException("Error while warming up the pages and panels",
+					e.getCause());
+			}
+			finally
+			{
+				executor.shutdownNow();
+			}
+		}
+
+		Map<Class<?>, Long> report = sortByDuration(durations);
+		report(report, failed, System.currentTimeMillis() - start);
+		return report;
+	}
+
+	/**
+	 * Creates the session the warm-up threads are bound to. There is no request at startup, but the
+	 * markup is loaded through a stand-in container, and the instantiation listeners of any
+	 * component may ask for the session, e.g. for the authorization strategy. The session is
+	 * created by the application, so it has the type the application's listeners expect.
+	 *
+	 * @return the session or {@code null} if the application can't create one without a request
+	 */
+	protected Session newSession()
+	{
+		try
+		{
+			return application.newSession(new MockWebRequest(Url.parse("")),
+				new MockWebResponse());
+		}
+		catch (RuntimeException e)
+		{
+			log.warn("Cannot create a session for warming up the pages and panels", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Scans the packages for page and panel classes.
+	 *
+	 * @param packageNames
+	 * @return the classes to warm up
+	 */
+	protected Collection<Class<?>> findClasses(final Collection<String> packageNames)
+	{
+		final IClassResolver classResolver = application.getApplicationSettings()
+			.getClassResolver();
+		final Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+
+		for (String packageName : packageNames)
+		{
+			for (String name : PackageScanner.scan(classResolver, packageName,
+				Collections.singleton("class")))
+			{
+				String className = packageName + '.' +
+					name.substring(0, name.length() - ".class".length()).replace('/', '.');
+				try
+				{
+					Class<?> clazz = classResolver.resolveClass(className);
+					if (isWarmedUp(clazz))
+					{
+						classes.add(clazz);
+					}
+				}
+				catch (ClassNotFoundException e)
+				{
+					log.debug("Cannot load " + className, e);
+				}
+				catch (LinkageError e)
+				{
+					log.debug("Cannot load " + className, e);
+				}
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * @param clazz
+	 * @return whether the markup and properties of the class should be loaded
+	 */
+	protected boolean isWarmedUp(final Class<?> clazz)
+	{
+		return (Page.class.isAssignableFrom(clazz) || Panel.class.isAssignableFrom(clazz)) &&
+			(clazz.isAnonymousClass() == false) &&
+			(IMarkupResourceStreamProvider.class.isAssignableFrom(clazz) == false) &&
+			(IMarkupCacheKeyProvider.class.isAssignableFrom(clazz) == false);
+	}
+
+	/**
+	 * Loads the markup and properties of a single class.
+	 *
+	 * @param clazz
+	 * @param locales
+	 * @param warmUpProperties
+	 *            whether the properties are loaded as well
+	 */
+	protected void warmUp(final Class<?> clazz, final List<Locale> locales,
+		final boolean warmUpProperties)
+	{
+		// the class resolver does not initialize the classes, but the static initializers of
+		// components register their wicket tags, e.g. <wicket:panel>, which the markup parser needs
+		try
+		{
+			Class.forName(clazz.getName(), true, clazz.getClassLoader());
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new WicketRuntimeException("Cannot initialize " + clazz.getName(), e);
+		}
+
+		List<IStringResourceLoader> loaders = application.getResourceSettings()
+			.getStringResourceLoaders();
+
+		for (Locale locale : locales)
+		{
+			MarkupFactory.get().getMarkup(
+				new ContainerInfo(clazz, locale, null, null, MarkupType.HTML_MARKUP_TYPE), false);
+
+			if (warmUpProperties)
+			{
+				for (IStringResourceLoader loader : loaders)
+				{
+					loader.loadStringResource(clazz, WARM_UP_KEY, locale, null, null);
+				}
+			}
+		}
+	}
+
+	private static Map<Class<?>, Long> sortByDuration(final Map<Class<?>, Long> durations)
+	{
+		List<Map.Entry<Class<?>, Long>> entries = new ArrayList<Map.Entry<Class<?>, Long>>(
+			durations.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Class<?>, Long>>()
+		{
+			@Override
+			public int compare(final Map.Entry<Class<?>, Long> e1,
+				final Map.Entry<Class<?>, Long> e2)
+			{
+				return e2.getValue().compareTo(e1.getValue());
+			}
+		});
+
+		Map<Class<?>, Long> sorted = new LinkedHashMap<Class<?>, Long>();
+		for (Map.Entry<Class<?>, Long> entry : entries)
+		{
+			sorted.put(entry.getKey(), entry.getValue());
+		}
+		return sorted;
+	}
+
+	/**
+	 * Logs the total time, the number of failed classes and the slowest classes, and the time of
+	 * every class at debug level.
+	 *
+	 * @param durations
+	 *            the time of each class, the slowest first
+	 * @param failed
+	 *            the number of classes which failed to warm up
+	 * @param total
+	 *            the total time in milliseconds
+	 */
+	private void report(final Map<Class<?>, Long> durations, final int failed, final long total)
+	{
+		StringBuilder slowest = new StringBuilder();
+		int count = 0;
+		for (Map.Entry<Class<?>, Long> entry : durations.entrySet())
+		{
+			if (count++ == REPORTED_CLASSES)
+			{
+				break;
+			}
+			slowest.append(count == 1 ? "" : ", ")
+				.append(entry.getKey().getName())
+				.append(" (")
+				.append(entry.getValue())
+				.append(" ms)");
+		}
+		log.info("Warmed up {} pages and panels in {} ms, {} failed, slowest: {}", new Object[] {
+				durations.size(), total, failed, slowest });
+		if (failed > 0)
+		{
+			log.warn("Failed to warm up {} of {} pages and panels, see the warnings logged before",
+				failed, failed + durations.size());
+		}
+
+		if (log.isDebugEnabled())
+		{
+			for (Map.Entry<Class<?>, Long> entry : durations.entrySet())
+			{
+				log.debug("Warmed up {} in {} ms", entry.getKey().getName(), entry.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.application;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the files in a package and its sub packages, in directories as well as in jars.
+ */
+public final class PackageScanner
+{
+	private static final Logger log = LoggerFactory.getLogger(PackageScanner.class);
+
+	/**
+	 * Construct.
+	 */
+	private PackageScanner()
+	{
+	}
+
+	/**
+	 * Scans the package and its sub packages for files with one of the extensions.
+	 *
+	 * @param classResolver
+	 *            the class resolver to get the locations of the package from
+	 * @param packageName
+	 *            the name of the package, e.g. <code>org.apache.wicket</code>
+	 * @param extensions
+	 *            file extensions without the leading dot
+	 * @return the names of the files relative to the package, e.g. <code>markup/Markup.class</code>
+	 */
+	public static SortedSet<String> scan(final IClassResolver classResolver,
+		final String packageName, final Collection<String> extensions)
+	{
+		Args.notNull(classResolver, "classResolver");
+		Args.notNull(packageName, "packageName");
+		Args.notNull(extensions, "extensions");
+
+		final String packagePath = packageName.replace('.', '/') + '/';
+		final SortedSet<String> names = new TreeSet<String>();
+
+		Iterator<URL> urls = classResolver.getResources(packagePath);
+		while (urls.hasNext())
+		{
+			URL url = urls.next();
+			File file = Files.getLocalFileFromUrl(url);
+			if (file == null)
+			{
+				log.debug("Cannot scan {}", url);
+			}
+			else if ("jar".equals(url.getProtocol()))
+			{
+				scanJar(file, packagePath, extensions, names);
+			}
+			else if (file.isDirectory())
+			{
+				scanDirectory(file, "", extensions, names);
+			}
+		}
+		return names;
+	}
+
+	private static void scanDirectory(final File directory, final String prefix,
+		final Collection<String> extensions, final Collection<String> names)
+	{
+		File[] files = directory.listFiles();
+		if (files == null)
+		{
+			return;
+		}
+
+		for (File file : files)
+		{
+			if (file.isDirectory())
+			{
+				scanDirectory(file, prefix + file.getName() + '/', extensions, names);
+			}
+			else if (extensions.contains(Files.extension(file.getName())))
+			{
+				names.add(prefix + file.getName());
+			}
+		}
+	}
+
+	private static void scanJar(final File file, final String packagePath,
+		final Collection<String> extensions, final Collection<String> names)
+	{
+		JarFile jar = null;
+		try
+		{
+			jar = new JarFile(file);
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements())
+			{
+				JarEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (entry.isDirectory() == false && name.startsWith(packagePath) &&
+					extensions.contains(Files.extension(name)))
+				{
+					names.add(name.substring(packagePath.length()));
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			log.warn("Cannot scan " + file, e);
+		}
+		finally
+		{
+			if (jar != null)
+			{
+				try
+				{
+					jar.close();
+				}
+				catch (IOException e)
+				{
+					log.debug("Cannot close " + file, e);
+				}
+			}
+		}
+	}
+}
@@ -28,6 +28,7 @@ import org.apache.wicket.markup.parser.IXmlPullParser;
 import org.apache.wicket.markup.parser.XmlPullParser;
 import org.apache.wicket.markup.parser.filter.RootMarkupFilter;
 import org.apache.wicket.settings.IMarkupSettings;
+import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.resource.StringResourceStream;
 import org.slf4j.Logger;
@@ -173,12 +174,21 @@ public abstract class AbstractMarkupParser
 
 		// Initialize the xml parser
 		MarkupResourceStream markupResourceStream = markup.getMarkupResourceStream();
-		xmlParser.parse(markupResourceStream.getResource().getInputStream(),
-			markupSettings.getDefaultMarkupEncoding());
+		try
+		{
+			xmlParser.parse(markupResourceStream.getResource().getInputStream(),
+				markupSettings.getDefaultMarkupEncoding());
 
-		// parse the xml markup and tokenize it into wicket relevant markup
-		// elements
-		parseMarkup();
+			// parse the xml markup and tokenize it into wicket relevant markup
+			// elements
+			parseMarkup();
+		}
+		finally
+		{
+			// a streaming xml parser closes the input only once it has read all of it. Closing
+			// the resource also lets it be read again, e.g. for the checksum of precompiled markup
+			IOUtils.closeQuietly(markupResourceStream);
+		}
 
 		markupResourceStream.setEncoding(xmlParser.getEncoding());
 		markupResourceStream.setDoctype(xmlParser.getDoctype());
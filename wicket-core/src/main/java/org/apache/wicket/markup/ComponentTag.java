@@ -16,6 +16,9 @@
  */
 package org.apache.wicket.markup;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,6 +34,7 @@ import org.apache.wicket.markup.parser.XmlTag.TagType;
 import org.apache.wicket.markup.parser.filter.HtmlHandler;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.util.lang.Generics;
+import org.apache.wicket.util.lang.WicketObjects;
 import org.apache.wicket.util.string.AppendingStringBuffer;
 import org.apache.wicket.util.string.StringValue;
 import org.apache.wicket.util.string.Strings;
@@ -49,6 +53,8 @@ import org.slf4j.LoggerFactory;
  */
 public class ComponentTag extends MarkupElement
 {
+	private static final long serialVersionUID = 1L;
+
 	/** Log. */
 	private static final Logger log = LoggerFactory.getLogger(ComponentTag.class);
 
@@ -90,7 +96,7 @@ public class ComponentTag extends MarkupElement
 	 * about the tags origin is lost. In some cases like wicket:head and wicket:link this
 	 * information however is required.
 	 */
-	private WeakReference<Class<? extends Component>> markupClassRef = null;
+	private transient WeakReference<Class<? extends Component>> markupClassRef = null;
 
 	/** added behaviors */
 	private List<Behavior> behaviors;
@@ -827,6 +833,31 @@ public class ComponentTag extends MarkupElement
 		return (markupClassRef == null ? null : markupClassRef.get());
 	}
 
+	private void writeObject(final ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+
+		Class<? extends Component> markupClass = getMarkupClass();
+		out.writeObject(markupClass != null ? markupClass.getName() : null);
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException,
+		ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		String markupClassName = (String)in.readObject();
+		if (markupClassName != null)
+		{
+			Class<? extends Component> markupClass = WicketObjects.resolveClass(markupClassName);
+			if (markupClass == null)
+			{
+				throw new ClassNotFoundException(markupClassName);
+			}
+			setMarkupClass(markupClass);
+		}
+	}
+
 	/**
 	 * Set the class of wicket component which contains the wicket:head tag.
 	 * 
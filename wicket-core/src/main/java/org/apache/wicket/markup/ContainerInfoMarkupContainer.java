@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.util.Locale;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.util.resource.IResourceStream;
+
+/**
+ * Stands in for an instance of the container class described by a {@link ContainerInfo}, so that
+ * its markup can be loaded and cached without instantiating the class, e.g. to preload the markup
+ * cache when the application starts. It provides the same markup resource stream and cache key
+ * the default implementations would for an instance with this information.
+ *
+ * @see MarkupFactory#getMarkup(ContainerInfo, boolean)
+ */
+final class ContainerInfoMarkupContainer extends MarkupContainer
+	implements
+		IMarkupResourceStreamProvider,
+		IMarkupCacheKeyProvider
+{
+	private static final long serialVersionUID = 1L;
+
+	private final ContainerInfo containerInfo;
+
+	/**
+	 * Construct.
+	 *
+	 * @param containerInfo
+	 */
+	ContainerInfoMarkupContainer(final ContainerInfo containerInfo)
+	{
+		super("containerInfo");
+
+		this.containerInfo = containerInfo;
+	}
+
+	/**
+	 * @return the information about the container this one stands in for
+	 */
+	ContainerInfo getContainerInfo()
+	{
+		return containerInfo;
+	}
+
+	@Override
+	public IResourceStream getMarkupResourceStream(final MarkupContainer container,
+		final Class<?> containerClass)
+	{
+		return new DefaultMarkupResourceStreamProvider().getMarkupResourceStream(containerInfo,
+			containerClass);
+	}
+
+	@Override
+	public String getCacheKey(final MarkupContainer container, final Class<?> containerClass)
+	{
+		return DefaultMarkupCacheKeyProvider.getCacheKey(containerClass,
+			containerInfo.getVariation(), containerInfo.getStyle(), containerInfo.getLocale(),
+			containerInfo.getMarkupType());
+	}
+
+	@Override
+	public MarkupType getMarkupType()
+	{
+		return containerInfo.getMarkupType();
+	}
+
+	@Override
+	public Locale getLocale()
+	{
+		return containerInfo.getLocale();
+	}
+
+	@Override
+	public String getVariation()
+	{
+		return containerInfo.getVariation();
+	}
+}
@@ -49,22 +49,40 @@ public class DefaultMarkupCacheKeyProvider implements IMarkupCacheKeyProvider
 	 */
 	@Override
 	public String getCacheKey(final MarkupContainer container, final Class<?> clazz)
+	{
+		return getCacheKey(clazz, container.getVariation(), container.getStyle(),
+			container.getLocale(), container.getMarkupType());
+	}
+
+	/**
+	 * Construct the key from the container's information instead of the container itself.
+	 * 
+	 * @param clazz
+	 *            The clazz to get the key for
+	 * @param variation
+	 * @param style
+	 * @param locale
+	 * @param markupType
+	 * @return Key that uniquely identifies any markup that might be associated with a container
+	 *         with this information
+	 */
+	static String getCacheKey(final Class<?> clazz, final String variation, final String style,
+		final Locale locale, final MarkupType markupType)
 	{
 		final String classname = clazz.getName();
 		final StringBuilder buffer = new StringBuilder(classname.length() + 64);
 		buffer.append(classname);
 
-		if (container.getVariation() != null)
+		if (variation != null)
 		{
-			buffer.append('_').append(container.getVariation());
+			buffer.append('_').append(variation);
 		}
 
-		if (container.getStyle() != null)
+		if (style != null)
 		{
-			buffer.append('_').append(container.getStyle());
+			buffer.append('_').append(style);
 		}
 
-		final Locale locale = container.getLocale();
 		if (locale != null)
 		{
 			buffer.append('_').append(locale.getLanguage());
@@ -83,7 +101,7 @@ public class DefaultMarkupCacheKeyProvider implements IMarkupCacheKeyProvider
 			}
 		}
 
-		buffer.append('.').append(container.getMarkupType().getExtension());
+		buffer.append('.').append(markupType.getExtension());
 		return buffer.toString();
 	}
 }
@@ -65,18 +65,31 @@ public class DefaultMarkupResourceStreamProvider implements IMarkupResourceStrea
 	@Override
 	public IResourceStream getMarkupResourceStream(final MarkupContainer container,
 		Class<?> containerClass)
+	{
+		return getMarkupResourceStream(new ContainerInfo(container), containerClass);
+	}
+
+	/**
+	 * Create a new markup resource stream from the container's information instead of the
+	 * container itself.
+	 * 
+	 * @param containerInfo
+	 * @param containerClass
+	 *            The container the markup should be associated with
+	 * @return A IResourceStream if the resource was found
+	 */
+	final IResourceStream getMarkupResourceStream(final ContainerInfo containerInfo,
+		Class<?> containerClass)
 	{
 		// Get locator to search for the resource
 		final IResourceStreamLocator locator = Application.get()
 			.getResourceSettings()
 			.getResourceStreamLocator();
 
-		String style = container.getStyle();
-		String variation = container.getVariation();
-		Locale locale = container.getLocale();
-
-		MarkupType markupType = container.getMarkupType();
-		String ext = (markupType != null ? markupType.getExtension() : null);
+		String style = containerInfo.getStyle();
+		String variation = containerInfo.getVariation();
+		Locale locale = containerInfo.getLocale();
+		String ext = containerInfo.getFileExtension();
 
 		// Markup is associated with the containers class. Walk up the class
 		// hierarchy up to MarkupContainer to find the containers markup
@@ -84,14 +97,13 @@ public class DefaultMarkupResourceStreamProvider implements IMarkupResourceStrea
 		while (containerClass != MarkupContainer.class)
 		{
 			String path = containerClass.getName().replace('.', '/');
-			IResourceStream resourceStream = locator.locate(container.getClass(), path, style,
-				variation, locale, ext, false);
+			IResourceStream resourceStream = locator.locate(containerInfo.getContainerClass(),
+				path, style, variation, locale, ext, false);
 
 			// Did we find it already?
 			if (resourceStream != null)
 			{
-				return new MarkupResourceStream(resourceStream, new ContainerInfo(container),
-					containerClass);
+				return new MarkupResourceStream(resourceStream, containerInfo, containerClass);
 			}
 
 			// Walk up the class hierarchy one level, if markup has not
@@ -29,6 +29,8 @@ import org.apache.wicket.request.Response;
  */
 public class HtmlSpecialTag extends MarkupElement
 {
+	private static final long serialVersionUID = 1L;
+
 	/** The underlying xml tag */
 	protected final XmlTag xmlTag;
 
@@ -19,8 +19,10 @@ package org.apache.wicket.markup;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
@@ -52,6 +54,18 @@ public class Markup implements IMarkupFragment
 	/** The associated markup file */
 	private final MarkupResourceStream markupResourceStream;
 
+	/**
+	 * Marks a markup (fragment) whose id index could not be built, e.g. because of a missing close
+	 * tag. {@link #find(String)} has to scan such a markup on every call.
+	 */
+	static final Map<String, IMarkupFragment> NO_INDEX = Collections.emptyMap();
+
+	/**
+	 * The fragments of all child tags by id, built once the markup is immutable. Null while the
+	 * markup is still mutable.
+	 */
+	private volatile Map<String, IMarkupFragment> fragments;
+
 	/**
 	 * Take the markup string, parse it and return the Markup (list of MarkupElements).
 	 * <p>
@@ -185,6 +199,28 @@ public class Markup implements IMarkupFragment
 		}
 
 		markupElements = Collections.unmodifiableList(markupElements);
+
+		// the elements don't change anymore, hence child markup can be looked up by id
+		Map<String, IMarkupFragment> index = new HashMap<String, IMarkupFragment>();
+		try
+		{
+			find(null, index);
+			fragments = index;
+		}
+		catch (RuntimeException ex)
+		{
+			// e.g. a missing close tag. Keep the error for the find() that runs into it.
+			log.debug("Unable to index the markup " + markupResourceStream, ex);
+			fragments = NO_INDEX;
+		}
+	}
+
+	/**
+	 * @return True, if {@link #makeImmutable()} has been called
+	 */
+	final boolean isImmutable()
+	{
+		return fragments != null;
 	}
 
 	@Override
@@ -192,6 +228,26 @@ public class Markup implements IMarkupFragment
 	{
 		Args.notEmpty(id, "id");
 
+		Map<String, IMarkupFragment> index = fragments;
+		if ((index != null) && (index != NO_INDEX))
+		{
+			return index.get(id);
+		}
+		return find(id, null);
+	}
+
+	/**
+	 * Scans the markup for the open tag with the id, skipping the bodies of other component tags.
+	 * 
+	 * @param id
+	 *            The id to look for. Ignored if index is not null.
+	 * @param index
+	 *            If not null, receives the fragment of the first tag of every id found by the
+	 *            scan
+	 * @return The fragment or null if not found
+	 */
+	private IMarkupFragment find(final String id, final Map<String, IMarkupFragment> index)
+	{
 		MarkupStream stream = new MarkupStream(this);
 		stream.setCurrentIndex(0);
 		while (stream.hasMore())
@@ -202,7 +258,14 @@ public class Markup implements IMarkupFragment
 				ComponentTag tag = stream.getTag();
 				if (tag.isOpen() || tag.isOpenClose())
 				{
-					if (tag.getId().equals(id))
+					if (index != null)
+					{
+						if (index.containsKey(tag.getId()) == false)
+						{
+							index.put(tag.getId(), stream.getMarkupFragment());
+						}
+					}
+					else if (tag.getId().equals(id))
 					{
 						return stream.getMarkupFragment();
 					}
@@ -24,8 +24,10 @@ import org.apache.wicket.Application;
 import org.apache.wicket.MarkupContainer;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.settings.IMarkupSettings;
+import org.apache.wicket.util.IProvider;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.listener.IChangeListener;
+import org.apache.wicket.util.thread.SingleFlight;
 import org.apache.wicket.util.watch.IModifiable;
 import org.apache.wicket.util.watch.IModificationWatcher;
 import org.apache.wicket.util.watch.ModificationWatcher;
@@ -39,6 +41,9 @@ import org.slf4j.LoggerFactory;
  * If the application is in development mode and a markup file changes, it'll automatically be
  * removed from the cache and reloaded when needed.
  * <p>
+ * Concurrent requests for markup not yet cached are coalesced: only one thread loads the markup of
+ * a cache key, the others wait for it and get the very same markup.
+ * <p>
  * MarkupCache is registered with {@link MarkupFactory} which in turn is registered with
  * {@link IMarkupSettings} and thus can be replaced with a subclassed version.
  * 
@@ -64,6 +69,9 @@ public class MarkupCache implements IMarkupCache
 	 */
 	private final ICache<String, String> markupKeyCache;
 
+	/** Coalesces the concurrent loads of the same cache key */
+	private final SingleFlight<String, Markup> loads = new SingleFlight<String, Markup>();
+
 	/** The markup cache key provider used by MarkupCache */
 	private IMarkupCacheKeyProvider markupCacheKeyProvider;
 
@@ -266,11 +274,29 @@ public class MarkupCache implements IMarkupCache
 		return markupCache;
 	}
 
+	/**
+	 * @return the number of markup loads, including the loads with caching disabled or reloading
+	 *         enforced
+	 */
+	public final long getLoadCount()
+	{
+		return loads.getLoads();
+	}
+
+	/**
+	 * @return the number of requests which waited for markup loaded by another thread instead of
+	 *         loading it themselves
+	 */
+	public final long getCoalescedLoadCount()
+	{
+		return loads.getCoalescedLoads();
+	}
+
 	@Override
 	public final Markup getMarkup(final MarkupContainer container, final Class<?> clazz,
 		final boolean enforceReload)
 	{
-		Class<?> containerClass = MarkupFactory.get().getContainerClass(container, clazz);
+		final Class<?> containerClass = MarkupFactory.get().getContainerClass(container, clazz);
 
 		// Get the cache key to be associated with the markup resource stream.
 		// If the cacheKey returned == null, than caching is disabled for the resource stream.
@@ -287,26 +313,27 @@ public class MarkupCache implements IMarkupCache
 		// If markup not found in cache or cache disabled, than ...
 		if (markup == null)
 		{
-			if (log.isDebugEnabled())
+			if ((enforceReload == false) && (cacheKey != null))
 			{
-				log.debug("Load markup: cacheKey=" + cacheKey);
-			}
-
-			// Get the markup resource stream for the container
-			final MarkupResourceStream resourceStream = MarkupFactory.get()
-				.getMarkupResourceStream(container, containerClass);
-
-			// Found markup?
-			if (resourceStream != null)
-			{
-				resourceStream.setCacheKey(cacheKey);
-
-				// load the markup and watch for changes
-				markup = loadMarkupAndWatchForChanges(container, resourceStream, enforceReload);
+				// let a single thread load the markup, the others wait for it
+				markup = loads.load(cacheKey, new IProvider<Markup>()
+				{
+					@Override
+					public Markup get()
+					{
+						// another thread might have loaded it in the meantime
+						Markup cached = getMarkupFromCache(cacheKey, container);
+						if (cached != null)
+						{
+							return cached;
+						}
+						return locateAndLoadMarkup(container, containerClass, cacheKey, false);
+					}
+				});
 			}
 			else
 			{
-				markup = onMarkupNotFound(cacheKey, container, Markup.NO_MARKUP);
+				markup = locateAndLoadMarkup(container, containerClass, cacheKey, enforceReload);
 			}
 		}
 
@@ -319,6 +346,43 @@ public class MarkupCache implements IMarkupCache
 		return markup;
 	}
 
+	/**
+	 * Locates the markup resource stream of the container and loads the markup.
+	 * 
+	 * @param container
+	 *            The original requesting markup container
+	 * @param containerClass
+	 *            The class to get the markup for
+	 * @param cacheKey
+	 *            If null, than the markup will not be cached
+	 * @param enforceReload
+	 *            The cache will be ignored and all, including inherited markup files, will be
+	 *            reloaded
+	 * @return The markup. Markup.NO_MARKUP, if not found.
+	 */
+	private Markup locateAndLoadMarkup(final MarkupContainer container,
+		final Class<?> containerClass, final String cacheKey, final boolean enforceReload)
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("Load markup: cacheKey=" + cacheKey);
+		}
+
+		// Get the markup resource stream for the container
+		final MarkupResourceStream resourceStream = MarkupFactory.get().getMarkupResourceStream(
+			container, containerClass);
+
+		// Found markup?
+		if (resourceStream != null)
+		{
+			resourceStream.setCacheKey(cacheKey);
+
+			// load the markup and watch for changes
+			return loadMarkupAndWatchForChanges(container, resourceStream, enforceReload);
+		}
+		return onMarkupNotFound(cacheKey, container, Markup.NO_MARKUP);
+	}
+
 	/**
 	 * Will be called if the markup was not in the cache yet and could not be found either.
 	 * <p>
@@ -384,13 +448,11 @@ public class MarkupCache implements IMarkupCache
 			}
 			else
 			{
-				// We don't lock the cache while loading a markup. Thus it may
-				// happen that the very same markup gets loaded twice (the first
-				// markup being loaded, but not yet in the cache, and another
-				// request requesting the very same markup). Since markup
-				// loading in avg takes less than 100ms, it is not really an
-				// issue. For consistency reasons however, we should always use
-				// the markup loaded first which is why it gets returned.
+				// Concurrent loads are coalesced per cache key only. Thus it may
+				// still happen that the very same markup gets loaded twice, e.g.
+				// for two cache keys with the same location or if reloading is
+				// enforced. For consistency reasons we should always use the
+				// markup loaded first which is why it gets returned.
 				markup = markupCache.get(locationString);
 			}
 		}
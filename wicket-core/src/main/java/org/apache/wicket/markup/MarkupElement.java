@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.markup;
 
+import org.apache.wicket.IClusterable;
+
 /**
  * Base class for different kinds of markup elements. Markup elements are held in a Markup container
  * object.
@@ -27,12 +29,17 @@ package org.apache.wicket.markup;
  * <li>RawMarkup, which is a section of unparsed markup having no meaning to Wicket.
  * </ul>
  * 
+ * Markup elements are serializable, so that parsed markup can be stored, see
+ * {@link org.apache.wicket.markup.loader.PrecompiledMarkupLoader}.
+ * 
  * @see org.apache.wicket.markup.RawMarkup
  * @see ComponentTag
  * @author Jonathan Locke
  */
-public abstract class MarkupElement
+public abstract class MarkupElement implements IClusterable
 {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Constructor.
 	 */
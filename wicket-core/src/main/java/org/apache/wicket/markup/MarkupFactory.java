@@ -119,13 +119,14 @@ public class MarkupFactory
 	}
 
 	/**
-	 * Subclasses can override this to use custom parsers.
+	 * Subclasses can override this to use custom parsers. By default the parser is in streaming
+	 * mode, so it doesn't read the whole markup into memory.
 	 * 
 	 * @return parser instance used by {@link MarkupParser} to parse markup.
 	 */
 	protected IXmlPullParser newXmlPullParser()
 	{
-		return new XmlPullParser();
+		return new XmlPullParser(true);
 	}
 
 	/**
@@ -243,6 +244,28 @@ public class MarkupFactory
 		return loadMarkup(container, markupResourceStream, enforceReload);
 	}
 
+	/**
+	 * Get the markup associated with a container class without an instance of it, e.g. to preload
+	 * the markup cache. The markup is looked up and cached just like for an instance of the class
+	 * with the locale, style, variation and markup type given by the container info. Containers
+	 * providing their own markup resource stream or cache key are not supported.
+	 * 
+	 * @param containerInfo
+	 *            The class and the information of the container to find the markup for
+	 * @param enforceReload
+	 *            The cache will be ignored and all, including inherited markup files, will be
+	 *            reloaded. Whatever is in the cache, it will be ignored
+	 * @return The markup associated with the container class. Null, if the markup was not found.
+	 *         Wicket Exception in case of errors.
+	 */
+	public final Markup getMarkup(final ContainerInfo containerInfo, final boolean enforceReload)
+	{
+		Args.notNull(containerInfo, "containerInfo");
+
+		return getMarkup(new ContainerInfoMarkupContainer(containerInfo),
+			containerInfo.getContainerClass(), enforceReload);
+	}
+
 	/**
 	 * Without a markup type we can not search for a file and we can not construct the cacheKey. We
 	 * can not even load associated markup as required for Panels. Though every MarkupContainer can
@@ -368,15 +391,23 @@ public class MarkupFactory
 	{
 		Args.notNull(container, "container");
 
+		// the class of the container a stand-in is used for
+		Class<?> actualClass = container.getClass();
+		if (container instanceof ContainerInfoMarkupContainer)
+		{
+			actualClass = ((ContainerInfoMarkupContainer)container).getContainerInfo()
+				.getContainerClass();
+		}
+
 		Class<?> containerClass = clazz;
 		if (clazz == null)
 		{
-			containerClass = container.getClass();
+			containerClass = actualClass;
 		}
-		else if (!clazz.isAssignableFrom(container.getClass()))
+		else if (!clazz.isAssignableFrom(actualClass))
 		{
 			throw new IllegalArgumentException("Parameter clazz must be an instance of " +
-				container.getClass().getName() + ", but is a " + clazz.getName());
+				actualClass.getName() + ", but is a " + clazz.getName());
 		}
 		return containerClass;
 	}
@@ -16,7 +16,9 @@
  */
 package org.apache.wicket.markup;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.apache.wicket.markup.parser.filter.HtmlHandler;
 import org.apache.wicket.util.lang.Args;
@@ -47,6 +49,12 @@ public class MarkupFragment implements IMarkupFragment
 	/** The size of the fragment (usually from open to close tag) */
 	private final int size;
 
+	/**
+	 * The fragments of all child tags by id. Built on the first {@link #find(String)} once the root
+	 * markup is immutable.
+	 */
+	private volatile Map<String, IMarkupFragment> fragments;
+
 	/**
 	 * Construct.
 	 * 
@@ -149,6 +157,47 @@ public class MarkupFragment implements IMarkupFragment
 	{
 		Args.notEmpty(id, "id");
 
+		Map<String, IMarkupFragment> index = fragments;
+		if (index == null)
+		{
+			Markup root = getRootMarkup();
+			if ((root != null) && root.isImmutable())
+			{
+				// racing threads build equal indexes, which is harmless
+				index = new HashMap<String, IMarkupFragment>();
+				try
+				{
+					find(null, index);
+				}
+				catch (RuntimeException ex)
+				{
+					// keep the error for the find() that runs into it
+					index = Markup.NO_INDEX;
+				}
+				fragments = index;
+			}
+		}
+
+		if ((index != null) && (index != Markup.NO_INDEX))
+		{
+			return index.get(id);
+		}
+		return find(id, null);
+	}
+
+	/**
+	 * Scans the fragment for the open tag with the id, skipping the bodies of other component
+	 * tags.
+	 * 
+	 * @param id
+	 *            The id to look for. Ignored if index is not null.
+	 * @param index
+	 *            If not null, receives the fragment of the first tag of every id found by the
+	 *            scan
+	 * @return The fragment or null if not found
+	 */
+	private IMarkupFragment find(final String id, final Map<String, IMarkupFragment> index)
+	{
 		MarkupStream stream = new MarkupStream(this);
 		stream.setCurrentIndex(1);
 		while (stream.hasMore())
@@ -159,7 +208,14 @@ public class MarkupFragment implements IMarkupFragment
 				ComponentTag tag = stream.getTag();
 				if (tag.isOpen() || tag.isOpenClose())
 				{
-					if (tag.getId().equals(id))
+					if (index != null)
+					{
+						if (index.containsKey(tag.getId()) == false)
+						{
+							index.put(tag.getId(), stream.getMarkupFragment());
+						}
+					}
+					else if (tag.getId().equals(id))
 					{
 						return stream.getMarkupFragment();
 					}
@@ -84,6 +84,9 @@ public class MergedMarkup extends Markup
 		// Merge derived and base markup
 		merge(markup, baseMarkup, extendIndex);
 
+		// Like parsed markup, the merged markup doesn't change anymore
+		makeImmutable();
+
 		if (log.isDebugEnabled())
 		{
 			log.debug("Merge markup: " + toString());
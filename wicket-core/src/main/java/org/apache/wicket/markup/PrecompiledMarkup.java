@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.settings.IMarkupSettings;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Objects;
+import org.apache.wicket.util.lang.WicketObjects;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+
+/**
+ * Reads and writes parsed {@link Markup} in a binary form, so that it can be loaded without running
+ * the {@link MarkupParser} and its filters again.
+ * <p>
+ * Besides the markup elements the binary form contains the size and the checksum of the markup
+ * resource it was parsed from, the container class it was parsed for and a key describing the
+ * settings that affect parsing. Binary markup which doesn't match the current resource, container
+ * or settings is considered stale and not read. Note that markup filters added by a custom
+ * {@link MarkupFactory} can't be detected, the precompiled markup must be created with the same
+ * factory the application uses.
+ *
+ * @see org.apache.wicket.markup.loader.PrecompiledMarkupLoader
+ * @see org.apache.wicket.markup.loader.MarkupPrecompiler
+ */
+public final class PrecompiledMarkup
+{
+	/** The file extension appended to the name of the markup file */
+	public static final String EXTENSION = ".wmc";
+
+	/** Identifies the binary form */
+	private static final int MAGIC = 0x57434D4B;
+
+	/** Increment whenever the binary form changes */
+	private static final int VERSION = 1;
+
+	/**
+	 * Construct.
+	 */
+	private PrecompiledMarkup()
+	{
+	}
+
+	/**
+	 * Writes the markup together with the size and checksum of its resource.
+	 *
+	 * @param markup
+	 *            the parsed markup
+	 * @param out
+	 *            the stream to write to, it is not closed
+	 * @throws IOException
+	 * @throws ResourceStreamNotFoundException
+	 */
+	public static void write(final Markup markup, final OutputStream out) throws IOException,
+		ResourceStreamNotFoundException
+	{
+		MarkupResourceStream markupResourceStream = markup.getMarkupResourceStream();
+		byte[] source = toByteArray(markupResourceStream.getResource());
+
+		List<MarkupElement> elements = new ArrayList<MarkupElement>(markup.size());
+		for (MarkupElement element : markup)
+		{
+			elements.add(element);
+		}
+
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeInt(MAGIC);
+		oos.writeInt(VERSION);
+		oos.writeUTF(getConfiguration());
+		oos.writeObject(getContainerClassName(markupResourceStream));
+		oos.writeInt(source.length);
+		oos.writeLong(checksum(source));
+		oos.writeObject(markupResourceStream.getEncoding());
+		oos.writeObject(markupResourceStream.getWicketNamespace());
+		oos.writeObject(markupResourceStream.getDoctype());
+		oos.writeObject(elements);
+		oos.flush();
+	}
+
+	/**
+	 * Reads markup written by {@link #write(Markup, OutputStream)}.
+	 *
+	 * @param markupResourceStream
+	 *            the markup resource the binary form was created from
+	 * @param in
+	 *            the stream to read the binary form from, it is not closed
+	 * @return the immutable markup or <code>null</code> if the binary form doesn't match the
+	 *         markup resource, its container or the current settings
+	 * @throws IOException
+	 * @throws ResourceStreamNotFoundException
+	 * @throws ClassNotFoundException
+	 */
+	public static Markup read(final MarkupResourceStream markupResourceStream,
+		final InputStream in) throws IOException, ResourceStreamNotFoundException,
+		ClassNotFoundException
+	{
+		ObjectInputStream ois = new ResolvingObjectInputStream(in);
+		if ((ois.readInt() != MAGIC) || (ois.readInt() != VERSION) ||
+			!getConfiguration().equals(ois.readUTF()) ||
+			!Objects.equal(getContainerClassName(markupResourceStream), ois.readObject()))
+		{
+			return null;
+		}
+
+		int length = ois.readInt();
+		long checksum = ois.readLong();
+		byte[] source = toByteArray(markupResourceStream.getResource());
+		if ((source.length != length) || (checksum(source) != checksum))
+		{
+			return null;
+		}
+
+		markupResourceStream.setEncoding((String)ois.readObject());
+		markupResourceStream.setWicketNamespace((String)ois.readObject());
+		markupResourceStream.setDoctype((String)ois.readObject());
+
+		@SuppressWarnings("unchecked")
+		List<MarkupElement> elements = (List<MarkupElement>)ois.readObject();
+
+		Markup markup = new Markup(markupResourceStream);
+		for (MarkupElement element : elements)
+		{
+			markup.addMarkupElement(element);
+		}
+		markup.makeImmutable();
+		return markup;
+	}
+
+	/**
+	 * @return a key describing the settings the parsed markup depends on
+	 */
+	private static String getConfiguration()
+	{
+		Application application = Application.get();
+		IMarkupSettings markupSettings = application.getMarkupSettings();
+		return application.getFrameworkSettings().getVersion() + ':' +
+			markupSettings.getMarkupFactory().getClass().getName() + ':' +
+			markupSettings.getDefaultMarkupEncoding() + ':' + markupSettings.getStripComments() +
+			':' + markupSettings.getCompressWhitespace();
+	}
+
+	/**
+	 * The container class determines some of the filters and e.g. the ids generated for tags in
+	 * <code>&lt;wicket:head&gt;</code>.
+	 * 
+	 * @param markupResourceStream
+	 * @return the name of the container class the markup is parsed for
+	 */
+	private static String getContainerClassName(final MarkupResourceStream markupResourceStream)
+	{
+		ContainerInfo containerInfo = markupResourceStream.getContainerInfo();
+		if ((containerInfo == null) || (containerInfo.getContainerClass() == null))
+		{
+			return null;
+		}
+		return containerInfo.getContainerClass().getName();
+	}
+
+	private static byte[] toByteArray(final IResourceStream resourceStream) throws IOException,
+		ResourceStreamNotFoundException
+	{
+		try
+		{
+			return IOUtils.toByteArray(resourceStream.getInputStream());
+		}
+		finally
+		{
+			resourceStream.close();
+		}
+	}
+
+	private static long checksum(final byte[] bytes)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	/**
+	 * Resolves the classes of the markup elements with the application's class resolver, e.g. the
+	 * behaviors attached to component tags.
+	 */
+	private static final class ResolvingObjectInputStream extends ObjectInputStream
+	{
+		private ResolvingObjectInputStream(final InputStream in) throws IOException
+		{
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException,
+			ClassNotFoundException
+		{
+			try
+			{
+				return super.resolveClass(desc);
+			}
+			catch (ClassNotFoundException ex)
+			{
+				Class<?> resolved = WicketObjects.resolveClass(desc.getName());
+				if (resolved == null)
+				{
+					throw ex;
+				}
+				return resolved;
+			}
+		}
+	}
+}
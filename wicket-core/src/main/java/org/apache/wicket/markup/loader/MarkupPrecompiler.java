@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.markup.ContainerInfo;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.markup.MarkupType;
+import org.apache.wicket.markup.PrecompiledMarkup;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.resource.FileResourceStream;
+import org.apache.wicket.util.tester.BaseWicketTester;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses all the markup files found in a classes directory and stores the markup in the binary form
+ * read by the {@link PrecompiledMarkupLoader}. It is meant to run as part of the build, after the
+ * classes have been compiled and the resources copied, e.g. with the exec-maven-plugin:
+ *
+ * <pre>
+ * java org.apache.wicket.markup.loader.MarkupPrecompiler com.example.MyApplication target/classes
+ * </pre>
+ *
+ * The application is started in deployment mode, so that the markup is parsed with the very
+ * settings it is loaded with. The classes directory and the application's dependencies must be on
+ * the classpath.
+ * <p>
+ * Note that {@link #main(String[])} starts the application with a mock servlet context, like the
+ * {@link BaseWicketTester} does, so its <code>init()</code> sees neither the real servlet context
+ * nor the filter's init parameters. If the markup settings depend on them, initialize the
+ * application yourself and use {@link #precompile(Application)} instead.
+ * <p>
+ * A markup file is associated with the {@link MarkupContainer} class of the same name, ignoring any
+ * locale, style or variation suffixes. The markup is precompiled for this class as container,
+ * markup loaded for a subclass (e.g. the base markup in markup inheritance) is parsed as usual.
+ */
+public class MarkupPrecompiler
+{
+	/** Log for reporting. */
+	private static final Logger log = LoggerFactory.getLogger(MarkupPrecompiler.class);
+
+	/** The extension of the markup files to precompile */
+	private static final String MARKUP_EXTENSION = ".html";
+
+	private final File classesDirectory;
+
+	private final File outputDirectory;
+
+	/**
+	 * Construct.
+	 *
+	 * @param classesDirectory
+	 *            the directory to search for markup files
+	 * @param outputDirectory
+	 *            the directory to write the precompiled markup to
+	 */
+	public MarkupPrecompiler(final File classesDirectory, final File outputDirectory)
+	{
+		this.classesDirectory = classesDirectory;
+		this.outputDirectory = outputDirectory;
+	}
+
+	/**
+	 * Precompiles all markup files. Requires the application to be attached to the current thread.
+	 * Markup files that can't be associated with a class or fail to parse are logged and skipped.
+	 *
+	 * @return the number of precompiled markup files
+	 */
+	public int precompile()
+	{
+		return precompileDirectory(classesDirectory, "");
+	}
+
+	/**
+	 * Precompiles all markup files with an application which has been initialized already, e.g.
+	 * with its real servlet context and init parameters.
+	 *
+	 * @param application
+	 *            the initialized application
+	 * @return the number of precompiled markup files
+	 */
+	public int precompile(final Application application)
+	{
+		Args.notNull(application, "application");
+
+		Application previous = ThreadContext.getApplication();
+		ThreadContext.setApplication(application);
+		try
+		{
+			return precompile();
+		}
+		finally
+		{
+			ThreadContext.setApplication(previous);
+		}
+	}
+
+	/**
+	 * @param directory
+	 * @param path
+	 *            the path of the directory relative to the classes directory
+	 * @return the number of precompiled markup files
+	 */
+	private int precompileDirectory(final File directory, final String path)
+	{
+		int count = 0;
+		File[] files = directory.listFiles();
+		if (files == null)
+		{
+			return count;
+		}
+
+		for (File file : files)
+		{
+			String name = path + file.getName();
+			if (file.isDirectory())
+			{
+				count += precompileDirectory(file, name + '/');
+			}
+			else if (name.endsWith(MARKUP_EXTENSION) && precompileFile(file, name))
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @param file
+	 * @param name
+	 *            the path of the file relative to the classes directory
+	 * @return whether the markup was precompiled
+	 */
+	private boolean precompileFile(final File file, final String name)
+	{
+		Class<?> markupClass = getMarkupClass(name.substring(0,
+			name.length() - MARKUP_EXTENSION.length()).replace('/', '.'));
+		if (markupClass == null)
+		{
+			log.debug("No markup container class found for {}", name);
+			return false;
+		}
+
+		OutputStream out = null;
+		try
+		{
+			ContainerInfo containerInfo = new ContainerInfo(markupClass, null, null, null,
+				MarkupType.HTML_MARKUP_TYPE);
+			MarkupResourceStream markupResourceStream = new MarkupResourceStream(
+				new FileResourceStream(file), containerInfo, markupClass);
+			Markup markup;
+			try
+			{
+				markup = MarkupFactory.get().newMarkupParser(markupResourceStream).parse();
+			}
+			finally
+			{
+				// the resource is read again for its checksum
+				markupResourceStream.close();
+			}
+
+			File target = new File(outputDirectory, name + PrecompiledMarkup.EXTENSION);
+			target.getParentFile().mkdirs();
+			out = new FileOutputStream(target);
+			PrecompiledMarkup.write(markup, out);
+			return true;
+		}
+		catch (Exception ex)
+		{
+			log.warn("Failed to precompile markup " + name, ex);
+			return false;
+		}
+		finally
+		{
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	/**
+	 * Finds the class a markup file belongs to by removing the suffixes separated by '_' until a
+	 * {@link MarkupContainer} class is found.
+	 *
+	 * @param name
+	 *            the name of the markup file without extension, using '.' as separator
+	 * @return the class or <code>null</code> if there is none
+	 */
+	private Class<?> getMarkupClass(String name)
+	{
+		int packageIndex = name.lastIndexOf('.');
+		while (true)
+		{
+			try
+			{
+				Class<?> clazz = Class.forName(name, false, Thread.currentThread()
+					.getContextClassLoader());
+				if (MarkupContainer.class.isAssignableFrom(clazz))
+				{
+					return clazz;
+				}
+			}
+			catch (ClassNotFoundException ex)
+			{
+				// try without the suffix
+			}
+			catch (LinkageError ex)
+			{
+				log.debug("Failed to load class " + name, ex);
+			}
+
+			int index = name.lastIndexOf('_');
+			if (index <= packageIndex)
+			{
+				return null;
+			}
+			name = name.substring(0, index);
+		}
+	}
+
+	/**
+	 * Usage: <code>MarkupPrecompiler &lt;applicationClass&gt; &lt;classesDirectory&gt;
+	 * [&lt;outputDirectory&gt;]</code>. The precompiled markup is written to the classes directory
+	 * if no output directory is given.
+	 * <p>
+	 * The application is initialized with a mock servlet context and without init parameters.
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(final String[] args) throws Exception
+	{
+		if ((args.length < 2) || (args.length > 3))
+		{
+			System.err.println("Usage: " + MarkupPrecompiler.class.getName() +
+				" <applicationClass> <classesDirectory> [<outputDirectory>]");
+			System.exit(1);
+		}
+
+		File classesDirectory = new File(args[1]);
+		File outputDirectory = (args.length == 3) ? new File(args[2]) : classesDirectory;
+
+		if (System.getProperty("wicket." + Application.CONFIGURATION) == null)
+		{
+			System.setProperty("wicket." + Application.CONFIGURATION,
+				RuntimeConfigurationType.DEPLOYMENT.name());
+		}
+
+		WebApplication application = (WebApplication)Class.forName(args[0], true,
+			Thread.currentThread().getContextClassLoader()).newInstance();
+		BaseWicketTester tester = new BaseWicketTester(application);
+		try
+		{
+			int count = new MarkupPrecompiler(classesDirectory, outputDirectory).precompile();
+			log.info("Precompiled {} markup files to {}", count, outputDirectory);
+		}
+		finally
+		{
+			tester.destroy();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.markup.PrecompiledMarkup;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A markup loader which, in deployment mode, loads the markup created by the
+ * {@link MarkupPrecompiler} instead of parsing the markup resource. The precompiled markup is
+ * looked up next to the markup file, e.g. <code>MyPage.html.wmc</code> for
+ * <code>MyPage.html</code>. If there is none or it is stale, the markup is parsed as usual.
+ * Markup inheritance is applied just like with the {@link DefaultMarkupLoader}.
+ * <p>
+ * To use it, return it from your {@link MarkupFactory}:
+ *
+ * <pre>
+ * getMarkupSettings().setMarkupFactory(new MarkupFactory()
+ * {
+ * 	&#064;Override
+ * 	public IMarkupLoader getMarkupLoader()
+ * 	{
+ * 		return new PrecompiledMarkupLoader();
+ * 	}
+ * });
+ * </pre>
+ *
+ * @see PrecompiledMarkup
+ */
+public class PrecompiledMarkupLoader implements IMarkupLoader
+{
+	/** Log for reporting. */
+	private static final Logger log = LoggerFactory.getLogger(PrecompiledMarkupLoader.class);
+
+	/**
+	 * Constructor.
+	 */
+	public PrecompiledMarkupLoader()
+	{
+	}
+
+	/**
+	 * Uses {@link InheritedMarkupMarkupLoader} to apply markup inheritance to the precompiled or
+	 * parsed markup.
+	 */
+	@Override
+	public final Markup loadMarkup(final MarkupContainer container,
+		final MarkupResourceStream markupResourceStream, final IMarkupLoader baseLoader,
+		final boolean enforceReload) throws IOException, ResourceStreamNotFoundException
+	{
+		IMarkupLoader loader = new InheritedMarkupMarkupLoader();
+		return loader.loadMarkup(container, markupResourceStream, new IMarkupLoader()
+		{
+			@Override
+			public Markup loadMarkup(final MarkupContainer container,
+				final MarkupResourceStream markupResourceStream, final IMarkupLoader baseLoader,
+				final boolean enforceReload) throws IOException, ResourceStreamNotFoundException
+			{
+				Markup markup = null;
+				if ((enforceReload == false) && Application.get().usesDeploymentConfig())
+				{
+					markup = loadPrecompiledMarkup(markupResourceStream);
+				}
+				if (markup == null)
+				{
+					markup = new SimpleMarkupLoader().loadMarkup(container, markupResourceStream,
+						null, enforceReload);
+				}
+				return markup;
+			}
+		}, enforceReload);
+	}
+
+	/**
+	 * @param markupResourceStream
+	 * @return the precompiled markup or <code>null</code> if there is none or it is stale
+	 */
+	protected Markup loadPrecompiledMarkup(final MarkupResourceStream markupResourceStream)
+	{
+		String name = getPrecompiledMarkupName(markupResourceStream);
+		Class<? extends Component> markupClass = markupResourceStream.getMarkupClass();
+		if ((name == null) || (markupClass == null))
+		{
+			return null;
+		}
+
+		InputStream in = getPrecompiledMarkupStream(markupClass, name);
+		if (in == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			Markup markup = PrecompiledMarkup.read(markupResourceStream, in);
+			if (markup == null)
+			{
+				log.debug("Precompiled markup is stale: {}", name);
+			}
+			return markup;
+		}
+		catch (Exception ex)
+		{
+			log.warn("Failed to read precompiled markup " + name + ", parsing " +
+				markupResourceStream.locationAsString() + " instead", ex);
+			return null;
+		}
+		finally
+		{
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Opens the precompiled markup. By default it is looked up on the classpath next to the markup
+	 * class.
+	 *
+	 * @param markupClass
+	 *            the class the markup belongs to
+	 * @param name
+	 *            the name of the precompiled markup relative to the markup class
+	 * @return the stream or <code>null</code> if there is no precompiled markup
+	 */
+	protected InputStream getPrecompiledMarkupStream(final Class<?> markupClass, final String name)
+	{
+		return markupClass.getResourceAsStream(name);
+	}
+
+	/**
+	 * @param markupResourceStream
+	 * @return the name of the precompiled markup relative to the markup class or
+	 *         <code>null</code> if the markup resource has no location
+	 */
+	static String getPrecompiledMarkupName(final MarkupResourceStream markupResourceStream)
+	{
+		String location = markupResourceStream.locationAsString();
+		if (location == null)
+		{
+			return null;
+		}
+		int index = Math.max(location.lastIndexOf('/'), location.lastIndexOf('\\'));
+		return location.substring(index + 1) + PrecompiledMarkup.EXTENSION;
+	}
+}
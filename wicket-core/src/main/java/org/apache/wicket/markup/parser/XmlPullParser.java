@@ -17,15 +17,16 @@
 package org.apache.wicket.markup.parser;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.text.ParseException;
 
 import org.apache.wicket.markup.parser.XmlTag.TagType;
 import org.apache.wicket.markup.parser.XmlTag.TextSegment;
-import org.apache.wicket.util.io.FullyBufferedReader;
 import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.io.IncrementallyBufferedReader;
+import org.apache.wicket.util.io.Streams;
 import org.apache.wicket.util.io.XmlReader;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.parse.metapattern.parsers.TagNameParser;
@@ -35,6 +36,12 @@ import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 /**
  * A fairly shallow markup pull parser which parses a markup string of a given type of markup (for
  * example, html, xml, vxml or wml) into ComponentTag and RawMarkup tokens.
+ * <p>
+ * By default the whole markup is read into memory before parsing. In streaming mode it is read in
+ * chunks while parsing and the markup before the position marker is discarded, so
+ * {@link #getInput(int, int)} can't access it anymore. This suits parsers which, like the
+ * {@link org.apache.wicket.markup.MarkupParser}, only access the markup from the position marker
+ * on.
  * 
  * @author Jonathan Locke
  * @author Juergen Donnerstag
@@ -54,10 +61,13 @@ public final class XmlPullParser implements IXmlPullParser
 	private XmlReader xmlReader;
 
 	/**
-	 * A XML independent reader which loads the whole source data into memory and which provides
+	 * A XML independent reader which loads the source data into memory and which provides
 	 * convenience methods to access the data.
 	 */
-	private FullyBufferedReader input;
+	private IncrementallyBufferedReader input;
+
+	/** Whether the markup is read while parsing and discarded when no longer needed */
+	private final boolean streaming;
 
 	/** temporary variable which will hold the name of the closing tag. */
 	private String skipUntilText;
@@ -75,10 +85,23 @@ public final class XmlPullParser implements IXmlPullParser
 	private XmlTag lastTag;
 
 	/**
-	 * Construct.
+	 * Construct a parser which reads the whole markup into memory.
 	 */
 	public XmlPullParser()
 	{
+		this(false);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param streaming
+	 *            whether the markup is read in chunks while parsing and the markup before the
+	 *            position marker is discarded
+	 */
+	public XmlPullParser(final boolean streaming)
+	{
+		this.streaming = streaming;
 	}
 
 	@Override
@@ -124,7 +147,7 @@ public final class XmlPullParser implements IXmlPullParser
 		while (!skipUntilText.equalsIgnoreCase(endTagText))
 		{
 			pos = input.find("</", pos + 1);
-			if ((pos == -1) || ((pos + (tagNameLen + 2)) >= input.size()))
+			if ((pos == -1) || input.isEndOfInput(pos + (tagNameLen + 2)))
 			{
 				throw new ParseException(
 					skipUntilText + " tag not closed" + getLineAndColumnText(), startIndex);
@@ -167,7 +190,7 @@ public final class XmlPullParser implements IXmlPullParser
 	public final HttpTagType next() throws ParseException
 	{
 		// Reached end of markup file?
-		if (input.getPosition() >= input.size())
+		if (input.isEndOfInput(input.getPosition()))
 		{
 			return HttpTagType.NOT_INITIALIZED;
 		}
@@ -206,7 +229,7 @@ public final class XmlPullParser implements IXmlPullParser
 		// Get index of closing tag and advance past the tag
 		int closeBracketIndex = -1;
 
-		if (openBracketIndex != -1 && openBracketIndex < input.size() - 1)
+		if (openBracketIndex != -1 && !input.isEndOfInput(openBracketIndex + 1))
 		{
 			char nextChar = input.charAt(openBracketIndex + 1);
 
@@ -507,7 +530,7 @@ public final class XmlPullParser implements IXmlPullParser
 	{
 		char quote = 0;
 
-		for (; startIndex < input.size(); startIndex++)
+		for (; !input.isEndOfInput(startIndex); startIndex++)
 		{
 			final char charAt = input.charAt(startIndex);
 			if (quote != 0)
@@ -547,7 +570,10 @@ public final class XmlPullParser implements IXmlPullParser
 	public void parse(final CharSequence string) throws IOException,
 		ResourceStreamNotFoundException
 	{
-		parse(new ByteArrayInputStream(string.toString().getBytes()), null);
+		Args.notNull(string, "string");
+
+		xmlReader = new XmlReader(new StringReader(string.toString()));
+		init();
 	}
 
 	/**
@@ -580,15 +606,39 @@ public final class XmlPullParser implements IXmlPullParser
 	{
 		Args.notNull(inputStream, "inputStream");
 
+		boolean close = true;
 		try
 		{
 			xmlReader = new XmlReader(new BufferedInputStream(inputStream, 4000), encoding);
-			input = new FullyBufferedReader(xmlReader);
+			init();
+
+			// in streaming mode the input is closed once it has been read
+			close = !streaming;
 		}
 		finally
 		{
-			IOUtils.closeQuietly(inputStream);
-			IOUtils.closeQuietly(xmlReader);
+			if (close)
+			{
+				IOUtils.closeQuietly(inputStream);
+				IOUtils.closeQuietly(xmlReader);
+			}
+		}
+	}
+
+	/**
+	 * Initializes the input from the xml reader. Unless in streaming mode all the markup is read.
+	 * 
+	 * @throws IOException
+	 */
+	private void init() throws IOException
+	{
+		if (streaming)
+		{
+			input = new IncrementallyBufferedReader(xmlReader);
+		}
+		else
+		{
+			input = new IncrementallyBufferedReader(Streams.readString(xmlReader));
 		}
 	}
 
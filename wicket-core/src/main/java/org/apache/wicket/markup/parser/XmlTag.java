@@ -19,6 +19,7 @@ package org.apache.wicket.markup.parser;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.apache.wicket.IClusterable;
 import org.apache.wicket.markup.parser.IXmlPullParser.HttpTagType;
 import org.apache.wicket.util.lang.Objects;
 import org.apache.wicket.util.string.AppendingStringBuffer;
@@ -35,8 +36,10 @@ import org.slf4j.LoggerFactory;
  * 
  * @author Jonathan Locke
  */
-public class XmlTag
+public class XmlTag implements IClusterable
 {
+	private static final long serialVersionUID = 1L;
+
 	/** Log. */
 	private static final Logger log = LoggerFactory.getLogger(XmlTag.class);
 
@@ -621,8 +624,10 @@ public class XmlTag
 		return buffer;
 	}
 
-	static class TextSegment
+	static class TextSegment implements IClusterable
 	{
+		private static final long serialVersionUID = 1L;
+
 		/** Column number. */
 		final int columnNumber;
 
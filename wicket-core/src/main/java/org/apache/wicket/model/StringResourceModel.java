@@ -16,7 +16,6 @@
  */
 package org.apache.wicket.model;
 
-import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Locale;
 
@@ -25,7 +24,7 @@ import org.apache.wicket.Component;
 import org.apache.wicket.Localizer;
 import org.apache.wicket.Session;
 import org.apache.wicket.resource.loader.ComponentStringResourceLoader;
-import org.apache.wicket.util.string.Strings;
+import org.apache.wicket.util.string.interpolator.MessageTemplate;
 import org.apache.wicket.util.string.interpolator.PropertyVariableInterpolator;
 
 
@@ -413,13 +412,16 @@ public class StringResourceModel extends LoadableDetachableModel<String>
 		Object[] parameters = getParameters();
 		if (parameters == null || parameters.length == 0)
 		{
-			// Get the string resource, doing any property substitutions as part
-			// of the get operation
-			value = localizer.getString(getResourceKey(), component, model, defaultValue);
+			// Get the string resource, the property substitutions are done by the cached template
+			value = localizer.getString(getResourceKey(), component, null, defaultValue);
 			if (value == null)
 			{
 				value = defaultValue;
 			}
+			if (value != null && model != null)
+			{
+				value = MessageTemplate.forProperties(value).format(null, model.getObject());
+			}
 		}
 		else
 		{
@@ -432,6 +434,8 @@ public class StringResourceModel extends LoadableDetachableModel<String>
 			}
 			if (value != null)
 			{
+				final Object modelObject = model != null ? model.getObject() : null;
+
 				// Build the real parameters
 				Object[] realParams = new Object[parameters.length];
 				for (int i = 0; i < parameters.length; i++)
@@ -443,7 +447,7 @@ public class StringResourceModel extends LoadableDetachableModel<String>
 					else if (model != null && parameters[i] instanceof String)
 					{
 						realParams[i] = PropertyVariableInterpolator.interpolate(
-							(String)parameters[i], model.getObject());
+							(String)parameters[i], modelObject);
 					}
 					else
 					{
@@ -451,30 +455,10 @@ public class StringResourceModel extends LoadableDetachableModel<String>
 					}
 				}
 
-				// Escape all single quotes outside {..}
-				if (value.indexOf('\'') != -1)
-				{
-					value = escapeQuotes(value);
-				}
-
-				if (model != null)
-				{
-					// First escape all substitute properties so that message format doesn't try to
-					// parse that.
-					value = Strings.replaceAll(value, "${", "$'{'").toString();
-				}
-
-				// Apply the parameters
-				final MessageFormat format = new MessageFormat(value, locale);
-				value = format.format(realParams);
-
-				if (model != null)
-				{
-					// un escape the substitute properties
-					value = Strings.replaceAll(value, "$'{'", "${").toString();
-					// now substitute the properties
-					value = localizer.substitutePropertyExpressions(component, value, model);
-				}
+				// Apply the parameters and substitute the properties, the message is parsed only
+				// once per locale
+				value = MessageTemplate.forMessage(value, locale, model != null).format(
+					realParams, modelObject);
 			}
 		}
 
@@ -482,39 +466,6 @@ public class StringResourceModel extends LoadableDetachableModel<String>
 		return value;
 	}
 
-	/**
-	 * Replace "'" with "''" outside of "{..}"
-	 * 
-	 * @param value
-	 * @return escaped message format
-	 */
-	private String escapeQuotes(final String value)
-	{
-		StringBuilder newValue = new StringBuilder(value.length() + 10);
-		int count = 0;
-		for (int i = 0; i < value.length(); i++)
-		{
-			char ch = value.charAt(i);
-			if (ch == '{')
-			{
-				count += 1;
-			}
-			else if (ch == '}')
-			{
-				count -= 1;
-			}
-
-			newValue.append(ch);
-			if ((ch == '\'') && (count == 0))
-			{
-				// Escape "'"
-				newValue.append(ch);
-			}
-		}
-
-		return newValue.toString();
-	}
-
 	/**
 	 * This method just returns debug information, so it won't return the localized string. Please
 	 * use getString() for that.
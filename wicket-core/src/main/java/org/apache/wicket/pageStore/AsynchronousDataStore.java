@@ -16,13 +16,18 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.wicket.util.lang.Args;
 import org.slf4j.Logger;
@@ -33,12 +38,20 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Creates an {@link Entry} for each triple (sessionId, pageId, data) and puts it in
  * {@link #entries} queue if there is room. Acts as producer.<br/>
- * Later {@link PageSavingRunnable} reads in blocking manner from {@link #entries} and saves each
- * entry. Acts as consumer.
+ * Later {@link PageSavingRunnable} reads in blocking manner from {@link #entries} and saves the
+ * entries. Acts as consumer.
+ * </p>
+ * By default it starts only one instance of {@link PageSavingRunnable} because all we need is to
+ * make the page storing asynchronous. We don't want to write concurrently in the wrapped
+ * {@link IDataStore}, though it may happen in the extreme case when the queue is full. These cases
+ * should be avoided.
+ * <p>
+ * Optionally the consumer drains up to <em>batchSize</em> entries per wake-up. Only the newest data
+ * of a page is written when several versions of it are waiting, and the writes are grouped by
+ * session. Several consumers may be started as well; each of them has its own queue and the
+ * entries are distributed by the hash of their session id, so the pages of one session are still
+ * written by one thread only.
  * </p>
- * It starts only one instance of {@link PageSavingRunnable} because all we need is to make the page
- * storing asynchronous. We don't want to write concurrently in the wrapped {@link IDataStore},
- * though it may happen in the extreme case when the queue is full. These cases should be avoided.
  * 
  * @author Matej Knopp
  */
@@ -68,9 +81,20 @@ public class AsynchronousDataStore implements IDataStore
 	private final IDataStore dataStore;
 
 	/**
-	 * The queue where the entries which have to be saved are temporary stored
+	 * The queues where the entries which have to be saved are temporary stored. One per
+	 * {@link PageSavingRunnable}.
+	 */
+	private final List<BlockingQueue<Entry>> entries;
+
+	/**
+	 * The threads running the {@link PageSavingRunnable}s
+	 */
+	private final List<Thread> threads;
+
+	/**
+	 * The statistics of the asynchronous saving
 	 */
-	private final BlockingQueue<Entry> entries;
+	private final Statistics statistics;
 
 	/**
 	 * A map 'sessionId:::pageId' -> {@link Entry}. Used for fast retrieval of {@link Entry}s which
@@ -88,16 +112,54 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	public AsynchronousDataStore(final IDataStore dataStore, final int capacity)
 	{
+		this(dataStore, capacity, 1, 1);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore} that actually saved the data
+	 * @param capacity
+	 *            the capacity of the queue(s) that delay the saving
+	 * @param batchSize
+	 *            the maximum number of entries saved per wake-up of a saving thread
+	 * @param threadCount
+	 *            the number of threads which save the entries
+	 */
+	public AsynchronousDataStore(final IDataStore dataStore, final int capacity,
+		final int batchSize, final int threadCount)
+	{
+		if (batchSize < 1)
+		{
+			throw new IllegalArgumentException("The batch size should be at least 1.");
+		}
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException("There should be at least one saving thread.");
+		}
+
 		this.dataStore = dataStore;
 		destroy = new AtomicBoolean(false);
-		entries = new LinkedBlockingQueue<Entry>(capacity);
 		entryMap = new ConcurrentHashMap<String, Entry>();
+		statistics = new Statistics();
+		entries = new ArrayList<BlockingQueue<Entry>>(threadCount);
+		threads = new ArrayList<Thread>(threadCount);
 
-		PageSavingRunnable savingRunnable = new PageSavingRunnable(dataStore, entries, entryMap,
-			destroy);
-		Thread thread = new Thread(savingRunnable, "Wicket-PageSavingThread");
-		thread.setDaemon(true);
-		thread.start();
+		for (int i = 0; i < threadCount; i++)
+		{
+			BlockingQueue<Entry> queue = new LinkedBlockingQueue<Entry>(capacity);
+			entries.add(queue);
+
+			PageSavingRunnable savingRunnable = new PageSavingRunnable(dataStore, queue,
+				entryMap, destroy, batchSize, statistics);
+			String name = threadCount == 1 ? "Wicket-PageSavingThread"
+				: "Wicket-PageSavingThread-" + i;
+			Thread thread = new Thread(savingRunnable, name);
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
 	}
 
 	/**
@@ -110,9 +172,9 @@ public class AsynchronousDataStore implements IDataStore
 
 		try
 		{
-			synchronized (destroy)
+			for (Thread thread : threads)
 			{
-				destroy.wait();
+				thread.join();
 			}
 		}
 		catch (InterruptedException e)
@@ -123,6 +185,37 @@ public class AsynchronousDataStore implements IDataStore
 		dataStore.destroy();
 	}
 
+	/**
+	 * @return the statistics of the asynchronous saving
+	 */
+	public Statistics getStatistics()
+	{
+		return statistics;
+	}
+
+	/**
+	 * @return the number of entries waiting to be saved
+	 */
+	public int getQueueSize()
+	{
+		int size = 0;
+		for (BlockingQueue<Entry> queue : entries)
+		{
+			size += queue.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @param sessionId
+	 * @return the queue for the entries of the given session
+	 */
+	private BlockingQueue<Entry> getQueue(final String sessionId)
+	{
+		int index = (sessionId.hashCode() & 0x7fffffff) % entries.size();
+		return entries.get(index);
+	}
+
 	/**
 	 * Little helper
 	 * 
@@ -178,7 +271,7 @@ public class AsynchronousDataStore implements IDataStore
 			Entry entry = entryMap.remove(key);
 			if (entry != null)
 			{
-				entries.remove(entry);
+				getQueue(sessionId).remove(entry);
 			}
 		}
 
@@ -191,7 +284,7 @@ public class AsynchronousDataStore implements IDataStore
 	@Override
 	public void removeData(final String sessionId)
 	{
-		for (Iterator<Entry> itor = entries.iterator(); itor.hasNext();)
+		for (Iterator<Entry> itor = getQueue(sessionId).iterator(); itor.hasNext();)
 		{
 			Entry entry = itor.next();
 			if (entry != null) // this check is not needed in JDK6
@@ -224,19 +317,21 @@ public class AsynchronousDataStore implements IDataStore
 
 		try
 		{
-			boolean added = entries.offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
+			boolean added = getQueue(sessionId).offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
 
 			if (added == false)
 			{
 				log.debug("Storing synchronously page with id '{}' in session '{}'", id, sessionId);
-				entryMap.remove(key);
+				statistics.synchronousFallbacks.incrementAndGet();
+				entryMap.remove(key, entry);
 				dataStore.storeData(sessionId, id, data);
 			}
 		}
 		catch (InterruptedException e)
 		{
 			log.error(e.getMessage(), e);
-			entryMap.remove(key);
+			statistics.synchronousFallbacks.incrementAndGet();
+			entryMap.remove(key, entry);
 			dataStore.storeData(sessionId, id, data);
 		}
 	}
@@ -263,7 +358,8 @@ public class AsynchronousDataStore implements IDataStore
 	}
 
 	/**
-	 * The structure used for an entry in the queue
+	 * The structure used for an entry in the queue. Entries are compared by identity, so a newer
+	 * entry for the same page is never mistaken for an older one.
 	 */
 	private static class Entry
 	{
@@ -279,43 +375,74 @@ public class AsynchronousDataStore implements IDataStore
 		}
 
 		@Override
-		public int hashCode()
+		public String toString()
 		{
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + pageId;
-			result = prime * result + ((sessionId == null) ? 0 : sessionId.hashCode());
-			return result;
+			return "Entry [sessionId=" + sessionId + ", pageId=" + pageId + "]";
 		}
 
-		@Override
-		public boolean equals(Object obj)
+	}
+
+	/**
+	 * Counters describing the work of an {@link AsynchronousDataStore}
+	 */
+	public static class Statistics
+	{
+		private final AtomicLong batches = new AtomicLong();
+
+		private final AtomicLong stored = new AtomicLong();
+
+		private final AtomicLong coalesced = new AtomicLong();
+
+		private final AtomicLong synchronousFallbacks = new AtomicLong();
+
+		/**
+		 * @return the number of batches saved by the saving threads
+		 */
+		public long getBatchCount()
 		{
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			Entry other = (Entry)obj;
-			if (pageId != other.pageId)
-				return false;
-			if (sessionId == null)
-			{
-				if (other.sessionId != null)
-					return false;
-			}
-			else if (!sessionId.equals(other.sessionId))
-				return false;
-			return true;
+			return batches.get();
+		}
+
+		/**
+		 * @return the number of entries saved by the saving threads
+		 */
+		public long getStoredCount()
+		{
+			return stored.get();
+		}
+
+		/**
+		 * @return the average number of entries saved per batch
+		 */
+		public double getAverageBatchSize()
+		{
+			long batchCount = batches.get();
+			return batchCount > 0 ? (double)stored.get() / batchCount : 0;
+		}
+
+		/**
+		 * @return the number of entries which were not saved because a newer version of the same
+		 *         page was waiting to be saved
+		 */
+		public long getCoalescedCount()
+		{
+			return coalesced.get();
+		}
+
+		/**
+		 * @return the number of entries saved synchronously because the queue was full
+		 */
+		public long getSynchronousFallbackCount()
+		{
+			return synchronousFallbacks.get();
 		}
 
 		@Override
 		public String toString()
 		{
-			return "Entry [sessionId=" + sessionId + ", pageId=" + pageId + "]";
+			return "Statistics [batches=" + batches + ", stored=" + stored + ", coalesced=" +
+				coalesced + ", synchronousFallbacks=" + synchronousFallbacks + "]";
 		}
-
 	}
 
 	/**
@@ -333,18 +460,26 @@ public class AsynchronousDataStore implements IDataStore
 
 		private final IDataStore dataStore;
 
+		private final int batchSize;
+
+		private final Statistics statistics;
+
 		private PageSavingRunnable(IDataStore dataStore, BlockingQueue<Entry> entries,
-			ConcurrentMap<String, Entry> entryMap, AtomicBoolean destroy)
+			ConcurrentMap<String, Entry> entryMap, AtomicBoolean destroy, int batchSize,
+			Statistics statistics)
 		{
 			this.dataStore = dataStore;
 			this.entries = entries;
 			this.entryMap = entryMap;
 			this.destroy = destroy;
+			this.batchSize = batchSize;
+			this.statistics = statistics;
 		}
 
 		@Override
 		public void run()
 		{
+			List<Entry> batch = new ArrayList<Entry>(batchSize);
 			while (destroy.get() == false)
 			{
 				Entry entry = null;
@@ -359,16 +494,66 @@ public class AsynchronousDataStore implements IDataStore
 
 				if (entry != null)
 				{
-					log.debug("Saving asynchronously: {}...", entry);
-					dataStore.storeData(entry.sessionId, entry.pageId, entry.data);
-					entryMap.remove(getKey(entry));
+					batch.add(entry);
+					entries.drainTo(batch, batchSize - 1);
+					save(batch);
+					batch.clear();
 				}
 			}
 
-			synchronized (destroy)
+			// save what is left before the wrapped data store is destroyed
+			entries.drainTo(batch);
+			save(batch);
+		}
+
+		/**
+		 * Saves the newest version of each page in the batch, grouped by session
+		 * 
+		 * @param batch
+		 */
+		private void save(List<Entry> batch)
+		{
+			if (batch.isEmpty())
 			{
-				destroy.notify();
+				return;
 			}
+
+			// sessionId -> entries
+			Map<String, List<Entry>> sessions = new LinkedHashMap<String, List<Entry>>();
+			int coalesced = 0;
+			for (Entry entry : batch)
+			{
+				if (entryMap.get(getKey(entry)) != entry)
+				{
+					// a newer version of the page is waiting or the page has been removed
+					coalesced++;
+					continue;
+				}
+
+				List<Entry> pages = sessions.get(entry.sessionId);
+				if (pages == null)
+				{
+					pages = new ArrayList<Entry>();
+					sessions.put(entry.sessionId, pages);
+				}
+				pages.add(entry);
+			}
+
+			int stored = 0;
+			for (List<Entry> pages : sessions.values())
+			{
+				for (Entry entry : pages)
+				{
+					log.debug("Saving asynchronously: {}...", entry);
+					dataStore.storeData(entry.sessionId, entry.pageId, entry.data);
+					entryMap.remove(getKey(entry), entry);
+					stored++;
+				}
+			}
+
+			statistics.batches.incrementAndGet();
+			statistics.stored.addAndGet(stored);
+			statistics.coalesced.addAndGet(coalesced);
 		}
 	}
 
@@ -17,14 +17,18 @@
 package org.apache.wicket.pageStore;
 
 import java.io.Serializable;
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,13 +65,32 @@ public class DefaultPageStore implements IPageStore
 	 */
 	public DefaultPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
 		final int cacheSize)
+	{
+		this(pageSerializer, dataStore, cacheSize, Bytes.MAX);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param pageSerializer
+	 *            the {@link ISerializer} that will be used to convert pages from/to byte arrays
+	 * @param dataStore
+	 *            the {@link IDataStore} that actually stores the pages
+	 * @param cacheSize
+	 *            the number of pages to cache in memory before passing them to
+	 *            {@link IDataStore#storeData(String, int, byte[])}
+	 * @param cacheMaxSize
+	 *            the maximum total size of the pages cached in memory
+	 */
+	public DefaultPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
+		final int cacheSize, final Bytes cacheMaxSize)
 	{
 		Args.notNull(pageSerializer, "pageSerializer");
 		Args.notNull(dataStore, "DataStore");
 
 		this.pageSerializer = pageSerializer;
 		pageDataStore = dataStore;
-		serializedPagesCache = new SerializedPagesCache(cacheSize);
+		serializedPagesCache = new SerializedPagesCache(cacheSize, cacheMaxSize);
 	}
 
 	/**
@@ -79,6 +102,14 @@ public class DefaultPageStore implements IPageStore
 		pageDataStore.destroy();
 	}
 
+	/**
+	 * @return the cache of the recently serialized pages
+	 */
+	public SerializedPagesCache getSerializedPagesCache()
+	{
+		return serializedPagesCache;
+	}
+
 	/**
 	 * @param sessionId
 	 * @param pageId
@@ -404,24 +435,62 @@ public class DefaultPageStore implements IPageStore
 	 * For example a page is serialized during request, but it might be also later serialized on
 	 * session replication. The purpose of this cache is to make sure that the data obtained from
 	 * first serialization is reused on second serialization.
+	 * <p>
+	 * The pages are indexed by session and page id. To avoid a single application wide lock the
+	 * cache is split into segments, each with its own share of the capacity and its own lock. Each
+	 * segment evicts its least recently used pages once it holds too many pages or too many bytes.
 	 * 
 	 * @author Matej Knopp
 	 */
-	static class SerializedPagesCache
+	public static class SerializedPagesCache
 	{
+		/** the minimum number of pages per segment */
+		private static final int MIN_SEGMENT_SIZE = 8;
+
+		private static final int MAX_SEGMENTS = 16;
+
 		private final int size;
 
-		private final List<SoftReference<SerializedPage>> cache;
+		private final Segment[] segments;
+
+		private final AtomicLong hits = new AtomicLong();
+
+		private final AtomicLong misses = new AtomicLong();
+
+		private final AtomicLong evictions = new AtomicLong();
 
 		/**
 		 * Construct.
 		 * 
 		 * @param size
+		 *            the maximum number of pages
 		 */
 		public SerializedPagesCache(final int size)
 		{
+			this(size, Bytes.MAX);
+		}
+
+		/**
+		 * Construct.
+		 * 
+		 * @param size
+		 *            the maximum number of pages
+		 * @param maxSize
+		 *            the maximum total size of the pages
+		 */
+		public SerializedPagesCache(final int size, final Bytes maxSize)
+		{
+			Args.notNull(maxSize, "maxSize");
+
 			this.size = size;
-			cache = new ArrayList<SoftReference<SerializedPage>>(size);
+			int segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, size / MIN_SEGMENT_SIZE));
+			int segmentSize = (size + segmentCount - 1) / segmentCount;
+			long segmentMaxSize = maxSize.bytes() / segmentCount;
+			segments = new Segment[segmentCount];
+			for (int i = 0; i < segmentCount; i++)
+			{
+				segments[i] = new Segment(segmentSize, segmentMaxSize);
+			}
 		}
 
 		/**
@@ -436,19 +505,11 @@ public class DefaultPageStore implements IPageStore
 
 			if (size > 0)
 			{
-				synchronized (cache)
+				PageKey key = new PageKey(sessionId, id);
+				Segment segment = getSegment(key);
+				synchronized (segment)
 				{
-					for (Iterator<SoftReference<SerializedPage>> i = cache.iterator(); i.hasNext();)
-					{
-						SoftReference<SerializedPage> ref = i.next();
-						SerializedPage entry = ref.get();
-						if (entry != null && entry.getPageId() == id &&
-							entry.getSessionId().equals(sessionId))
-						{
-							i.remove();
-							return entry;
-						}
-					}
+					return segment.remove(key);
 				}
 			}
 			return null;
@@ -464,17 +525,16 @@ public class DefaultPageStore implements IPageStore
 		{
 			Args.notNull(sessionId, "sessionId");
 
-			if (size > 0)
+			for (Segment segment : segments)
 			{
-				synchronized (cache)
+				synchronized (segment)
 				{
-					for (Iterator<SoftReference<SerializedPage>> i = cache.iterator(); i.hasNext();)
+					Set<Integer> pageIds = segment.sessionPages.get(sessionId);
+					if (pageIds != null)
 					{
-						SoftReference<SerializedPage> ref = i.next();
-						SerializedPage entry = ref.get();
-						if (entry != null && entry.getSessionId().equals(sessionId))
+						for (Integer pageId : new ArrayList<Integer>(pageIds))
 						{
-							i.remove();
+							segment.remove(new PageKey(sessionId, pageId));
 						}
 					}
 				}
@@ -483,8 +543,8 @@ public class DefaultPageStore implements IPageStore
 
 		/**
 		 * Returns a {@link SerializedPage} by looking it up by <code>sessionId</code> and
-		 * <code>pageId</code>. If there is a match then it is <i>touched</i>, i.e. it is moved at
-		 * the top of the cache.
+		 * <code>pageId</code>. If there is a match then it is <i>touched</i>, i.e. it becomes the
+		 * most recently used page.
 		 * 
 		 * @param sessionId
 		 * @param pageId
@@ -497,26 +557,20 @@ public class DefaultPageStore implements IPageStore
 			SerializedPage result = null;
 			if (size > 0)
 			{
-				synchronized (cache)
+				PageKey key = new PageKey(sessionId, pageId);
+				Segment segment = getSegment(key);
+				synchronized (segment)
 				{
-					for (Iterator<SoftReference<SerializedPage>> i = cache.iterator(); i.hasNext();)
-					{
-						SoftReference<SerializedPage> ref = i.next();
-						SerializedPage entry = ref.get();
-						if (entry != null && entry.getPageId() == pageId &&
-							entry.getSessionId().equals(sessionId))
-						{
-							i.remove();
-							result = entry;
-							break;
-						}
-					}
+					result = segment.pages.get(key);
+				}
 
-					if (result != null)
-					{
-						// move to top
-						storePage(result);
-					}
+				if (result != null)
+				{
+					hits.incrementAndGet();
+				}
+				else
+				{
+					misses.incrementAndGet();
 				}
 			}
 			return result;
@@ -525,34 +579,197 @@ public class DefaultPageStore implements IPageStore
 		/**
 		 * Store the serialized page in cache
 		 * 
-		 * @param sessionId
 		 * @param page
 		 */
 		void storePage(SerializedPage page)
 		{
-			SoftReference<SerializedPage> ref = new SoftReference<SerializedPage>(page);
-
 			if (size > 0)
 			{
-				synchronized (cache)
+				PageKey key = new PageKey(page.getSessionId(), page.getPageId());
+				Segment segment = getSegment(key);
+				synchronized (segment)
 				{
-					for (Iterator<SoftReference<SerializedPage>> i = cache.iterator(); i.hasNext();)
-					{
-						SoftReference<SerializedPage> r = i.next();
-						SerializedPage entry = r.get();
-						if (entry != null && entry.equals(page))
-						{
-							i.remove();
-							break;
-						}
-					}
+					evictions.addAndGet(segment.put(key, page));
+				}
+			}
+		}
+
+		/**
+		 * @return how many times a page was found in the cache
+		 */
+		public long getHits()
+		{
+			return hits.get();
+		}
 
-					cache.add(ref);
-					if (cache.size() > size)
+		/**
+		 * @return how many times a page was not found in the cache
+		 */
+		public long getMisses()
+		{
+			return misses.get();
+		}
+
+		/**
+		 * @return how many pages have been removed from the cache to make room for other pages
+		 */
+		public long getEvictions()
+		{
+			return evictions.get();
+		}
+
+		/**
+		 * @return the number of cached pages
+		 */
+		public int getCount()
+		{
+			int count = 0;
+			for (Segment segment : segments)
+			{
+				synchronized (segment)
+				{
+					count += segment.pages.size();
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * @return the total size of the cached pages
+		 */
+		public Bytes getSize()
+		{
+			long bytes = 0;
+			for (Segment segment : segments)
+			{
+				synchronized (segment)
+				{
+					bytes += segment.bytes;
+				}
+			}
+			return Bytes.bytes(bytes);
+		}
+
+		private Segment getSegment(final PageKey key)
+		{
+			int hash = key.hashCode();
+			hash ^= (hash >>> 16);
+			return segments[(hash & 0x7fffffff) % segments.length];
+		}
+
+		/**
+		 * A part of the cached pages, in access order. Guarded by its own monitor.
+		 */
+		private static class Segment
+		{
+			private final LinkedHashMap<PageKey, SerializedPage> pages = new LinkedHashMap<PageKey, SerializedPage>(
+				16, 0.75f, true);
+
+			/** session id -> ids of the cached pages of the session */
+			private final Map<String, Set<Integer>> sessionPages = new HashMap<String, Set<Integer>>();
+
+			private final int maxCount;
+
+			private final long maxBytes;
+
+			private long bytes;
+
+			private Segment(final int maxCount, final long maxBytes)
+			{
+				this.maxCount = maxCount;
+				this.maxBytes = maxBytes;
+			}
+
+			/**
+			 * @param key
+			 * @param page
+			 * @return the number of evicted pages
+			 */
+			private int put(final PageKey key, final SerializedPage page)
+			{
+				remove(key);
+
+				long length = length(page);
+				if (length > maxBytes)
+				{
+					return 0;
+				}
+
+				pages.put(key, page);
+				bytes += length;
+				Set<Integer> pageIds = sessionPages.get(key.sessionId);
+				if (pageIds == null)
+				{
+					pageIds = new HashSet<Integer>();
+					sessionPages.put(key.sessionId, pageIds);
+				}
+				pageIds.add(key.pageId);
+
+				int evicted = 0;
+				while (pages.size() > maxCount || bytes > maxBytes)
+				{
+					remove(pages.keySet().iterator().next());
+					evicted++;
+				}
+				return evicted;
+			}
+
+			private SerializedPage remove(final PageKey key)
+			{
+				SerializedPage page = pages.remove(key);
+				if (page != null)
+				{
+					bytes -= length(page);
+					Set<Integer> pageIds = sessionPages.get(key.sessionId);
+					pageIds.remove(key.pageId);
+					if (pageIds.isEmpty())
 					{
-						cache.remove(0);
+						sessionPages.remove(key.sessionId);
 					}
 				}
+				return page;
+			}
+
+			private static long length(final SerializedPage page)
+			{
+				return page.getData() != null ? page.getData().length : 0;
+			}
+		}
+
+		/**
+		 * The key of a cached page
+		 */
+		private static class PageKey
+		{
+			private final String sessionId;
+
+			private final int pageId;
+
+			private PageKey(final String sessionId, final int pageId)
+			{
+				this.sessionId = sessionId;
+				this.pageId = pageId;
+			}
+
+			@Override
+			public boolean equals(final Object obj)
+			{
+				if (this == obj)
+				{
+					return true;
+				}
+				if (obj instanceof PageKey == false)
+				{
+					return false;
+				}
+				PageKey other = (PageKey)obj;
+				return pageId == other.pageId && sessionId.equals(other.sessionId);
+			}
+
+			@Override
+			public int hashCode()
+			{
+				return 31 * sessionId.hashCode() + pageId;
 			}
 		}
 	}
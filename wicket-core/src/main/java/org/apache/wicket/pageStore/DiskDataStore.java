@@ -18,14 +18,12 @@ package org.apache.wicket.pageStore;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
@@ -34,11 +32,12 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.pageStore.PageWindowManager.PageWindow;
 import org.apache.wicket.util.file.Files;
-import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Bytes;
 import org.slf4j.Logger;
@@ -53,6 +52,18 @@ public class DiskDataStore implements IDataStore
 
 	private static final String INDEX_FILE_NAME = "DiskDataStoreIndex";
 
+	/**
+	 * The default number of file channels kept open by {@link FileChannelPool}
+	 */
+	public static final int DEFAULT_FILE_CHANNEL_POOL_CAPACITY = 50;
+
+	/**
+	 * A cache that holds the data stores of all applications. Used to expose the statistics of the
+	 * {@link FileChannelPool} (e.g. via JMX). <br/>
+	 * applicationName -> data store
+	 */
+	private static final ConcurrentMap<String, DiskDataStore> dataStores = new ConcurrentHashMap<String, DiskDataStore>();
+
 	private final String applicationName;
 
 	private final Bytes maxSizePerPageSession;
@@ -61,21 +72,40 @@ public class DiskDataStore implements IDataStore
 
 	private final ConcurrentMap<String, SessionEntry> sessionEntryMap;
 
+	private final FileChannelPool fileChannelPool;
+
 	/**
 	 * Construct.
 	 * 
 	 * @param applicationName
 	 * @param fileStoreFolder
 	 * @param maxSizePerSession
-	 * @param fileChannelPoolCapacity
 	 */
 	public DiskDataStore(final String applicationName, final File fileStoreFolder,
 		final Bytes maxSizePerSession)
+	{
+		this(applicationName, fileStoreFolder, maxSizePerSession,
+			DEFAULT_FILE_CHANNEL_POOL_CAPACITY);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 * @param maxSizePerSession
+	 * @param fileChannelPoolCapacity
+	 *            the maximum number of session files kept open at the same time
+	 */
+	public DiskDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes maxSizePerSession, final int fileChannelPoolCapacity)
 	{
 		this.applicationName = applicationName;
 		this.fileStoreFolder = fileStoreFolder;
 		maxSizePerPageSession = Args.notNull(maxSizePerSession, "maxSizePerSession");
 		sessionEntryMap = new ConcurrentHashMap<String, SessionEntry>();
+		fileChannelPool = new FileChannelPool(fileChannelPoolCapacity);
+		dataStores.put(applicationName, this);
 
 		try
 		{
@@ -105,9 +135,30 @@ public class DiskDataStore implements IDataStore
 	{
 		log.debug("Destroying...");
 		saveIndex();
+		fileChannelPool.destroy();
+		dataStores.remove(applicationName, this);
 		log.debug("Destroyed.");
 	}
 
+	/**
+	 * @return the pool with the opened file channels of the session files
+	 */
+	public FileChannelPool getFileChannelPool()
+	{
+		return fileChannelPool;
+	}
+
+	/**
+	 * @param applicationName
+	 *            the name of the application
+	 * @return the {@link DiskDataStore} of the application with the given name or {@code null} if
+	 *         there is no such
+	 */
+	public static DiskDataStore get(final String applicationName)
+	{
+		return dataStores.get(applicationName);
+	}
+
 	/**
 	 * @see org.apache.wicket.pageStore.IDataStore#getData(java.lang.String, int)
 	 */
@@ -269,22 +320,57 @@ public class DiskDataStore implements IDataStore
 	}
 
 	/**
-	 * 
+	 * The pages of a single session.
+	 * <p>
+	 * The {@link PageWindowManager} is guarded by a read-write lock: allocating and removing page
+	 * windows needs the write lock, while looking up windows and the positional reads and writes of
+	 * the page data only need the read lock. This way pages of the same session can be restored
+	 * concurrently. A writer downgrades to the read lock once its window is allocated, and an
+	 * additional lock per page (striped by page id) keeps readers away from a window which is still
+	 * being written.
 	 */
 	protected static class SessionEntry implements Serializable
 	{
 		private static final long serialVersionUID = 1L;
 
+		/** the number of locks used to guard the page windows while their data is read or written */
+		private static final int PAGE_LOCK_STRIPES = 16;
+
 		private final String sessionId;
 		private transient DiskDataStore diskDataStore;
 		private String fileName;
 		private PageWindowManager manager;
-		private boolean unbound = false;
+		private volatile boolean unbound = false;
+
+		private transient ReadWriteLock managerLock;
+		private transient ReadWriteLock[] pageLocks;
 
 		protected SessionEntry(DiskDataStore diskDataStore, String sessionId)
 		{
 			this.diskDataStore = diskDataStore;
 			this.sessionId = sessionId;
+			initLocks();
+		}
+
+		private void initLocks()
+		{
+			managerLock = new ReentrantReadWriteLock();
+			pageLocks = new ReadWriteLock[PAGE_LOCK_STRIPES];
+			for (int i = 0; i < pageLocks.length; i++)
+			{
+				pageLocks[i] = new ReentrantReadWriteLock();
+			}
+		}
+
+		private ReadWriteLock getPageLock(int pageId)
+		{
+			return pageLocks[(pageId & 0x7fffffff) % pageLocks.length];
+		}
+
+		private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException
+		{
+			s.defaultReadObject();
+			initLocks();
 		}
 
 		public PageWindowManager getManager()
@@ -319,41 +405,82 @@ public class DiskDataStore implements IDataStore
 		 * @param pageId
 		 * @param data
 		 */
-		public synchronized void savePage(int pageId, byte data[])
+		public void savePage(int pageId, byte data[])
 		{
-			if (unbound)
+			// only save page that has some data
+			if (unbound || data == null)
 			{
 				return;
 			}
-			// only save page that has some data
-			if (data != null)
-			{
-				// allocate window for page
-				PageWindow window = getManager().createPageWindow(pageId, data.length);
 
-				FileChannel channel = getFileChannel(true);
-				if (channel != null)
+			ReadWriteLock pageLock = getPageLock(pageId);
+			pageLock.writeLock().lock();
+			try
+			{
+				PageWindow window;
+				managerLock.writeLock().lock();
+				try
 				{
-					try
-					{
-						// write the content
-						channel.write(ByteBuffer.wrap(data), window.getFilePartOffset());
-					}
-					catch (IOException e)
-					{
-						log.error("Error writing to a channel " + channel, e);
-					}
-					finally
+					if (unbound)
 					{
-						IOUtils.closeQuietly(channel);
+						return;
 					}
+					// allocate window for page
+					window = getManager().createPageWindow(pageId, data.length);
+
+					// downgrade, so other pages can be read while this one is written
+					managerLock.readLock().lock();
 				}
-				else
+				finally
 				{
-					log.warn(
-						"Cannot save page with id '{}' because the data file cannot be opened.",
-						pageId);
+					managerLock.writeLock().unlock();
 				}
+
+				try
+				{
+					writePage(window, data);
+				}
+				finally
+				{
+					managerLock.readLock().unlock();
+				}
+			}
+			finally
+			{
+				pageLock.writeLock().unlock();
+			}
+		}
+
+		/**
+		 * Writes the page data into the part of the pagemap file specified by the given
+		 * PageWindow.
+		 * 
+		 * @param window
+		 * @param data
+		 */
+		private void writePage(PageWindow window, byte data[])
+		{
+			FileChannel channel = getFileChannel(true);
+			if (channel != null)
+			{
+				try
+				{
+					// write the content
+					channel.write(ByteBuffer.wrap(data), window.getFilePartOffset());
+				}
+				catch (IOException e)
+				{
+					log.error("Error writing to a channel " + channel, e);
+				}
+				finally
+				{
+					diskDataStore.fileChannelPool.returnFileChannel(channel);
+				}
+			}
+			else
+			{
+				log.warn("Cannot save page with id '{}' because the data file cannot be opened.",
+					window.getPageId());
 			}
 		}
 
@@ -362,13 +489,21 @@ public class DiskDataStore implements IDataStore
 		 * 
 		 * @param pageId
 		 */
-		public synchronized void removePage(int pageId)
+		public void removePage(int pageId)
 		{
-			if (unbound)
+			managerLock.writeLock().lock();
+			try
 			{
-				return;
+				if (unbound)
+				{
+					return;
+				}
+				getManager().removePage(pageId);
+			}
+			finally
+			{
+				managerLock.writeLock().unlock();
 			}
-			getManager().removePage(pageId);
 		}
 
 		/**
@@ -398,31 +533,23 @@ public class DiskDataStore implements IDataStore
 				}
 				finally
 				{
-					IOUtils.closeQuietly(channel);
+					diskDataStore.fileChannelPool.returnFileChannel(channel);
 				}
 			}
 			return result;
 		}
 
+		/**
+		 * Obtains the channel of the session file from the pool. It has to be returned with
+		 * {@link FileChannelPool#returnFileChannel(FileChannel)} once the read or write is done.
+		 * 
+		 * @param create
+		 *            whether to create the file if it doesn't exist
+		 * @return the channel or {@code null} if the file cannot be opened
+		 */
 		private FileChannel getFileChannel(boolean create)
 		{
-			FileChannel channel = null;
-			File file = new File(getFileName());
-			if (create || file.exists())
-			{
-				String mode = create ? "rw" : "r";
-				try
-				{
-					RandomAccessFile randomAccessFile = new RandomAccessFile(file, mode);
-					channel = randomAccessFile.getChannel();
-				}
-				catch (FileNotFoundException fnfx)
-				{
-					// can happen if the file is locked. WICKET-4176
-					log.error(fnfx.getMessage(), fnfx);
-				}
-			}
-			return channel;
+			return diskDataStore.fileChannelPool.getFileChannel(getFileName(), create);
 		}
 
 		/**
@@ -431,32 +558,61 @@ public class DiskDataStore implements IDataStore
 		 * @param id
 		 * @return page data or null if the page is no longer in pagemap file
 		 */
-		public synchronized byte[] loadPage(int id)
+		public byte[] loadPage(int id)
 		{
-			if (unbound)
+			ReadWriteLock pageLock = getPageLock(id);
+			pageLock.readLock().lock();
+			try
 			{
-				return null;
+				managerLock.readLock().lock();
+				try
+				{
+					if (unbound || manager == null)
+					{
+						return null;
+					}
+					byte[] result = null;
+					PageWindow window = manager.getPageWindow(id);
+					if (window != null)
+					{
+						result = loadPage(window);
+					}
+					return result;
+				}
+				finally
+				{
+					managerLock.readLock().unlock();
+				}
 			}
-			byte[] result = null;
-			PageWindow window = getManager().getPageWindow(id);
-			if (window != null)
+			finally
 			{
-				result = loadPage(window);
+				pageLock.readLock().unlock();
 			}
-			return result;
 		}
 
 		/**
 		 * Deletes all files for this session.
 		 */
-		public synchronized void unbind()
+		public void unbind()
 		{
-			File sessionFolder = diskDataStore.getSessionFolder(sessionId, false);
-			if (sessionFolder.exists())
+			managerLock.writeLock().lock();
+			try
+			{
+				if (fileName != null)
+				{
+					diskDataStore.fileChannelPool.closeAndDeleteFileChannel(fileName);
+				}
+				File sessionFolder = diskDataStore.getSessionFolder(sessionId, false);
+				if (sessionFolder.exists())
+				{
+					Files.removeFolder(sessionFolder);
+				}
+				unbound = true;
+			}
+			finally
 			{
-				Files.removeFolder(sessionFolder);
+				managerLock.writeLock().unlock();
 			}
-			unbound = true;
 		}
 	}
 
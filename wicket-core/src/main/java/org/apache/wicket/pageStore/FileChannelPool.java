@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread safe pool of {@link FileChannel}s keyed by file name.
+ * <p>
+ * Opening a file for every page read and write is expensive, so {@link DiskDataStore} keeps the
+ * channels of the most recently used session files open. When the pool exceeds its capacity the
+ * least recently used channels which are not currently in use are closed.
+ * <p>
+ * Each channel obtained with {@link #getFileChannel(String, boolean)} must be given back with
+ * {@link #returnFileChannel(FileChannel)}. A channel is never closed while it is in use; if it gets
+ * evicted or its file is removed in the meantime it is closed as soon as it is returned.
+ */
+public class FileChannelPool
+{
+	private static final Logger log = LoggerFactory.getLogger(FileChannelPool.class);
+
+	/** file name -> channel, in access order (least recently used first) */
+	private final LinkedHashMap<String, FileChannel> nameToChannel = new LinkedHashMap<String, FileChannel>(
+		16, 0.75f, true);
+
+	/** channel -> number of users currently holding the channel */
+	private final Map<FileChannel, Integer> channelToUseCount = new HashMap<FileChannel, Integer>();
+
+	/** channels which have to be closed as soon as they are not used anymore */
+	private final List<FileChannel> channelsToClose = new ArrayList<FileChannel>();
+
+	private final int capacity;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Construct.
+	 *
+	 * @param capacity
+	 *            the maximum number of opened channels. Once reached, the least recently used
+	 *            channels are closed
+	 */
+	public FileChannelPool(final int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("Capacity must be at least one.");
+		}
+		this.capacity = capacity;
+		log.debug("Starting pool with capacity {} channels", capacity);
+	}
+
+	/**
+	 * Returns the channel for the given file. If there is no pooled channel for the file a new one
+	 * is opened. The returned channel must be given back with {@link #returnFileChannel(FileChannel)}.
+	 *
+	 * @param fileName
+	 *            the name of the file
+	 * @param createIfDoesNotExist
+	 *            whether to create the file if it doesn't exist yet
+	 * @return the channel or {@code null} if the file does not exist and must not be created or
+	 *         cannot be opened
+	 */
+	public synchronized FileChannel getFileChannel(final String fileName,
+		final boolean createIfDoesNotExist)
+	{
+		FileChannel channel = nameToChannel.get(fileName);
+		if (channel != null)
+		{
+			hits.incrementAndGet();
+		}
+		else
+		{
+			channel = newFileChannel(fileName, createIfDoesNotExist);
+			if (channel == null)
+			{
+				return null;
+			}
+			misses.incrementAndGet();
+			nameToChannel.put(fileName, channel);
+			channelToUseCount.put(channel, 0);
+			reduceChannelsIfNecessary();
+		}
+
+		channelToUseCount.put(channel, channelToUseCount.get(channel) + 1);
+		return channel;
+	}
+
+	/**
+	 * Gives back a channel obtained with {@link #getFileChannel(String, boolean)}.
+	 *
+	 * @param channel
+	 */
+	public synchronized void returnFileChannel(final FileChannel channel)
+	{
+		Integer count = channelToUseCount.get(channel);
+		if (count == null)
+		{
+			log.warn("Returning a channel which doesn't belong to the pool: {}", channel);
+			return;
+		}
+
+		if (count > 1)
+		{
+			channelToUseCount.put(channel, count - 1);
+		}
+		else
+		{
+			channelToUseCount.put(channel, 0);
+			if (channelsToClose.remove(channel))
+			{
+				channelToUseCount.remove(channel);
+				IOUtils.closeQuietly(channel);
+			}
+		}
+	}
+
+	/**
+	 * Closes the channel for the given file (if it is pooled) and deletes the file.
+	 *
+	 * @param fileName
+	 */
+	public synchronized void closeAndDeleteFileChannel(final String fileName)
+	{
+		FileChannel channel = nameToChannel.remove(fileName);
+		if (channel != null)
+		{
+			closeWhenUnused(channel);
+		}
+
+		File file = new File(fileName);
+		if (file.exists() && file.delete() == false)
+		{
+			log.warn("Couldn't delete file {}", fileName);
+		}
+	}
+
+	/**
+	 * Closes all the pooled channels.
+	 */
+	public synchronized void destroy()
+	{
+		log.debug("Destroying FileChannel pool");
+		for (FileChannel channel : nameToChannel.values())
+		{
+			IOUtils.closeQuietly(channel);
+		}
+		for (FileChannel channel : channelsToClose)
+		{
+			IOUtils.closeQuietly(channel);
+		}
+		nameToChannel.clear();
+		channelToUseCount.clear();
+		channelsToClose.clear();
+	}
+
+	/**
+	 * @return the maximum number of opened channels
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * @return the number of currently pooled channels
+	 */
+	public synchronized int getSize()
+	{
+		return nameToChannel.size();
+	}
+
+	/**
+	 * @return how many times an already opened channel has been reused
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return how many times a new channel had to be opened
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return how many channels have been closed because the pool was full
+	 */
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	/**
+	 * Closes the least recently used channels until the size of the pool doesn't exceed its
+	 * capacity.
+	 */
+	private void reduceChannelsIfNecessary()
+	{
+		Iterator<Map.Entry<String, FileChannel>> iterator = nameToChannel.entrySet().iterator();
+		while (nameToChannel.size() > capacity && iterator.hasNext())
+		{
+			FileChannel channel = iterator.next().getValue();
+			iterator.remove();
+			closeWhenUnused(channel);
+			evictions.incrementAndGet();
+		}
+	}
+
+	private void closeWhenUnused(final FileChannel channel)
+	{
+		Integer count = channelToUseCount.get(channel);
+		if (count == null || count == 0)
+		{
+			channelToUseCount.remove(channel);
+			IOUtils.closeQuietly(channel);
+		}
+		else
+		{
+			channelsToClose.add(channel);
+		}
+	}
+
+	private FileChannel newFileChannel(final String fileName, final boolean createIfDoesNotExist)
+	{
+		File file = new File(fileName);
+		if (!createIfDoesNotExist && !file.exists())
+		{
+			return null;
+		}
+
+		try
+		{
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			return randomAccessFile.getChannel();
+		}
+		catch (FileNotFoundException fnfx)
+		{
+			// can happen if the file is locked. WICKET-4176
+			log.error(fnfx.getMessage(), fnfx);
+			return null;
+		}
+	}
+}
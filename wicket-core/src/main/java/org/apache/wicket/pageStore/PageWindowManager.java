@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,6 +30,10 @@ import org.apache.wicket.util.collections.IntHashMap;
  * The pages are stored inside the file in a cyclic way. Newer pages are placed after older ones,
  * until the maximum file size is reached. After that, the next page is stored in the beginning of
  * the file.
+ * <p>
+ * This class is not thread safe. The modifying methods rebuild the index of the windows eagerly,
+ * so looking up windows doesn't modify its state and concurrent reads are fine as long as they are
+ * guarded against the modifications (see {@link DiskDataStore.SessionEntry}).
  * 
  * @author Matej Knopp
  */
@@ -59,8 +65,9 @@ public class PageWindowManager implements Serializable
 
 	/**
 	 * map from page id to list of pagewindow indices (referring to the windows list) - to improve
-	 * searching speed the index must be cleaned when the instances in the windows list change their
-	 * indexes (e.g. items are shifted on page window removal)
+	 * searching speed the index must be rebuilt when the instances in the windows list change their
+	 * indexes (e.g. items are shifted on page window removal). It is null only while a modification
+	 * is in progress.
 	 */
 	private IntHashMap<Integer> idToWindowIndex = null;
 
@@ -119,11 +126,6 @@ public class PageWindowManager implements Serializable
 	 */
 	private int getWindowIndex(int pageId)
 	{
-		if (idToWindowIndex == null)
-		{
-			rebuildIndices();
-		}
-
 		Integer result = idToWindowIndex.get(pageId);
 		return result != null ? result : -1;
 	}
@@ -374,7 +376,15 @@ public class PageWindowManager implements Serializable
 		PageWindowInternal window = allocatePageWindow(index, size);
 		window.pageId = pageId;
 
-		putWindowIndex(pageId, index);
+		if (idToWindowIndex == null)
+		{
+			// windows have been split or merged
+			rebuildIndices();
+		}
+		else
+		{
+			putWindowIndex(pageId, index);
+		}
 		return new PageWindow(window);
 	}
 
@@ -473,6 +483,18 @@ public class PageWindowManager implements Serializable
 	public PageWindowManager(long maxSize)
 	{
 		this.maxSize = maxSize;
+		rebuildIndices();
+	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException
+	{
+		s.defaultReadObject();
+
+		// older versions left the index to be rebuilt by the next lookup
+		if (idToWindowIndex == null)
+		{
+			rebuildIndices();
+		}
 	}
 
 	/**
@@ -0,0 +1,632 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.thread.ICode;
+import org.apache.wicket.util.thread.Task;
+import org.apache.wicket.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data store which keeps the pages of all sessions in a small number of large, memory-mapped
+ * segment files.
+ * <p>
+ * Pages are only ever appended to the current segment. When it is full a new segment is started
+ * and once the total size of all segments would exceed the configured maximum the oldest segment
+ * is dropped together with all pages in it. An in-memory index maps (sessionId, pageId) to the
+ * location of the page's bytes, so reading a page never opens a file and is served directly from
+ * the mapped memory.
+ * <p>
+ * Overwritten and removed pages leave holes in their segments. A background task copies the
+ * still used pages out of segments which are mostly empty and deletes these segments. Segments
+ * without any used pages (e.g. after their sessions expired) are deleted immediately.
+ * <p>
+ * Unlike {@link DiskDataStore} the pages do not survive a restart of the application.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * <!--@formatter:off-->
+ * MyApp#init()
+ * {
+ *
+ * 	setPageManagerProvider(new DefaultPageManagerProvider(this)
+ * 	{
+ * 		protected IDataStore newDataStore()
+ * 		{
+ * 			return new SegmentDataStore(getName(), getStoreSettings().getFileStoreFolder(),
+ * 				Bytes.megabytes(16), Bytes.megabytes(512));
+ * 		}
+ * 	}
+ * }
+ * <!--@formatter:on-->
+ * </pre>
+ */
+public class SegmentDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(SegmentDataStore.class);
+
+	/**
+	 * Segments which have less used bytes than this ratio of their size are compacted
+	 */
+	private static final double COMPACTION_THRESHOLD = 0.5d;
+
+	/**
+	 * The default time between two runs of the compaction
+	 */
+	private static final Duration DEFAULT_COMPACTION_INTERVAL = Duration.seconds(30);
+
+	private final File storeFolder;
+
+	private final int segmentSize;
+
+	private final long maxSize;
+
+	/**
+	 * sessionId -> (pageId -> location). Modified only while holding the lock of
+	 * {@link #segments}.
+	 */
+	private final ConcurrentMap<String, ConcurrentMap<Integer, Location>> index;
+
+	/**
+	 * All segments, the oldest first. The last one is the one pages are appended to.
+	 */
+	private final LinkedList<Segment> segments;
+
+	private final Task compactionTask;
+
+	private int nextSegmentId = 0;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 *            the name of the application
+	 * @param fileStoreFolder
+	 *            the folder where the segment files are created
+	 * @param segmentSize
+	 *            the size of a single segment file
+	 * @param maxSize
+	 *            the maximum size of all segment files together
+	 */
+	public SegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes segmentSize, final Bytes maxSize)
+	{
+		this(applicationName, fileStoreFolder, segmentSize, maxSize, DEFAULT_COMPACTION_INTERVAL);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 *            the name of the application
+	 * @param fileStoreFolder
+	 *            the folder where the segment files are created
+	 * @param segmentSize
+	 *            the size of a single segment file
+	 * @param maxSize
+	 *            the maximum size of all segment files together
+	 * @param compactionInterval
+	 *            the time between two runs of the compaction. {@code null} disables the background
+	 *            compaction
+	 */
+	public SegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes segmentSize, final Bytes maxSize, final Duration compactionInterval)
+	{
+		Args.notNull(applicationName, "applicationName");
+		Args.notNull(fileStoreFolder, "fileStoreFolder");
+		Args.notNull(segmentSize, "segmentSize");
+		Args.notNull(maxSize, "maxSize");
+
+		if (segmentSize.bytes() < 1 || segmentSize.bytes() > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("The segment size must be between 1 byte and 2GB.");
+		}
+		if (maxSize.bytes() < segmentSize.bytes())
+		{
+			throw new IllegalArgumentException(
+				"The maximum size must be at least the size of one segment.");
+		}
+
+		this.segmentSize = (int)segmentSize.bytes();
+		this.maxSize = maxSize.bytes();
+		storeFolder = new File(fileStoreFolder, applicationName + "-segmentstore");
+		index = new ConcurrentHashMap<String, ConcurrentMap<Integer, Location>>();
+		segments = new LinkedList<Segment>();
+
+		try
+		{
+			// the pages of a previous run are not restored
+			if (storeFolder.exists())
+			{
+				Files.removeFolder(storeFolder);
+			}
+			if (storeFolder.mkdirs() == false)
+			{
+				log.warn("Cannot create the segment store folder {}", storeFolder);
+			}
+		}
+		catch (SecurityException e)
+		{
+			throw new WicketRuntimeException(
+				"SecurityException occurred while creating SegmentDataStore. Consider using a non-disk based IDataStore implementation. "
+					+ "See org.apache.wicket.Application.setPageManagerProvider(IPageManagerProvider)",
+				e);
+		}
+
+		if (compactionInterval != null)
+		{
+			compactionTask = new Task("SegmentDataStore compaction");
+			compactionTask.setDaemon(true);
+			compactionTask.run(compactionInterval, new ICode()
+			{
+				@Override
+				public void run(final Logger log)
+				{
+					compact();
+				}
+			});
+		}
+		else
+		{
+			compactionTask = null;
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#getData(java.lang.String, int)
+	 */
+	@Override
+	public byte[] getData(final String sessionId, final int id)
+	{
+		byte[] pageData = null;
+		ByteBuffer buffer = getDataBuffer(sessionId, id);
+		if (buffer != null)
+		{
+			pageData = new byte[buffer.remaining()];
+			buffer.get(pageData);
+		}
+
+		log.debug("Returning data{} for page with id '{}' in session with id '{}'", new Object[] {
+				pageData != null ? "" : "(null)", id, sessionId });
+		return pageData;
+	}
+
+	/**
+	 * Returns the stored data of a page without copying it.
+	 *
+	 * @param sessionId
+	 *            Session ID
+	 * @param id
+	 *            Page ID
+	 * @return a read-only view of the page data in the mapped segment or {@code null} if there is
+	 *         no such page
+	 */
+	public ByteBuffer getDataBuffer(final String sessionId, final int id)
+	{
+		Map<Integer, Location> pages = index.get(sessionId);
+		if (pages != null)
+		{
+			Location location = pages.get(id);
+			if (location != null)
+			{
+				// the bytes of a segment are never overwritten so the location stays valid even
+				// if the page is replaced or its segment gets compacted in the meantime
+				return location.segment.read(location.offset, location.length);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
+	 */
+	@Override
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		if (data == null)
+		{
+			return;
+		}
+
+		synchronized (segments)
+		{
+			Segment segment = getSegmentFor(data.length);
+			if (segment == null)
+			{
+				log.warn("Cannot save page with id '{}' because no segment could be created.", id);
+				return;
+			}
+
+			Location location = new Location(segment, segment.append(data), data.length);
+
+			ConcurrentMap<Integer, Location> pages = index.get(sessionId);
+			if (pages == null)
+			{
+				pages = new ConcurrentHashMap<Integer, Location>();
+				index.put(sessionId, pages);
+			}
+			release(pages.put(id, location));
+		}
+
+		log.debug("Stored data for page with id '{}' in session with id '{}'", id, sessionId);
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String, int)
+	 */
+	@Override
+	public void removeData(final String sessionId, final int id)
+	{
+		synchronized (segments)
+		{
+			Map<Integer, Location> pages = index.get(sessionId);
+			if (pages != null)
+			{
+				log.debug("Removing data for page with id '{}' in session with id '{}'",
+					new Object[] { id, sessionId });
+				release(pages.remove(id));
+				if (pages.isEmpty())
+				{
+					index.remove(sessionId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#removeData(java.lang.String)
+	 */
+	@Override
+	public void removeData(final String sessionId)
+	{
+		synchronized (segments)
+		{
+			Map<Integer, Location> pages = index.remove(sessionId);
+			if (pages != null)
+			{
+				log.debug("Removing data for pages in session with id '{}'", sessionId);
+				for (Location location : pages.values())
+				{
+					release(location);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#destroy()
+	 */
+	@Override
+	public void destroy()
+	{
+		log.debug("Destroying...");
+		if (compactionTask != null)
+		{
+			compactionTask.interrupt();
+		}
+		synchronized (segments)
+		{
+			index.clear();
+			for (Segment segment : segments)
+			{
+				segment.delete();
+			}
+			segments.clear();
+		}
+		Files.removeFolder(storeFolder);
+		log.debug("Destroyed.");
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#isReplicated()
+	 */
+	@Override
+	public boolean isReplicated()
+	{
+		return false;
+	}
+
+	/**
+	 * @see org.apache.wicket.pageStore.IDataStore#canBeAsynchronous()
+	 */
+	@Override
+	public boolean canBeAsynchronous()
+	{
+		return true;
+	}
+
+	/**
+	 * @return the number of segment files currently in use
+	 */
+	public int getSegmentCount()
+	{
+		synchronized (segments)
+		{
+			return segments.size();
+		}
+	}
+
+	/**
+	 * Copies the used pages out of the segments which are mostly empty and deletes these segments.
+	 * Called periodically by a background task.
+	 */
+	public void compact()
+	{
+		synchronized (segments)
+		{
+			for (Segment segment : new ArrayList<Segment>(segments))
+			{
+				Segment current = segments.getLast();
+				if (segment == current)
+				{
+					break;
+				}
+				if (segment.used < segment.position * COMPACTION_THRESHOLD &&
+					segment.used <= current.remaining())
+				{
+					compact(segment, current);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves all pages stored in {@code segment} to {@code target} and deletes {@code segment}.
+	 *
+	 * @param segment
+	 * @param target
+	 */
+	private void compact(final Segment segment, final Segment target)
+	{
+		int moved = 0;
+		for (Map<Integer, Location> pages : index.values())
+		{
+			for (Map.Entry<Integer, Location> entry : pages.entrySet())
+			{
+				Location location = entry.getValue();
+				if (location.segment == segment)
+				{
+					ByteBuffer data = segment.read(location.offset, location.length);
+					pages.put(entry.getKey(), new Location(target, target.append(data),
+						location.length));
+					moved++;
+				}
+			}
+		}
+
+		log.debug("Compacted segment {}: moved {} pages", segment.file, moved);
+		segments.remove(segment);
+		segment.delete();
+	}
+
+	/**
+	 * Returns the segment where a page of the given size should be appended. Starts a new segment
+	 * (and drops the oldest ones if necessary) if the current one is full.
+	 *
+	 * @param length
+	 *            the size of the page
+	 * @return the segment or {@code null} if a new segment cannot be created
+	 */
+	private Segment getSegmentFor(final int length)
+	{
+		Segment current = segments.isEmpty() ? null : segments.getLast();
+		if (current != null && current.remaining() >= length)
+		{
+			return current;
+		}
+
+		if (length > maxSize)
+		{
+			log.warn("The page is bigger than the maximum size of the store: {} bytes", length);
+			return null;
+		}
+
+		int size = Math.max(segmentSize, length);
+		while (segments.isEmpty() == false && getTotalSize() + size > maxSize)
+		{
+			dropOldestSegment();
+		}
+
+		try
+		{
+			Segment segment = new Segment(new File(storeFolder, "segment-" + nextSegmentId++),
+				size);
+			segments.add(segment);
+			if (current != null && current.used == 0 && segments.remove(current))
+			{
+				current.delete();
+			}
+			return segment;
+		}
+		catch (IOException e)
+		{
+			log.error("Cannot create a new segment in " + storeFolder, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Deletes the oldest segment together with all pages stored in it.
+	 */
+	private void dropOldestSegment()
+	{
+		Segment oldest = segments.removeFirst();
+		log.debug("Dropping segment {} because the maximum size has been reached", oldest.file);
+
+		for (Iterator<ConcurrentMap<Integer, Location>> i = index.values().iterator(); i.hasNext();)
+		{
+			Map<Integer, Location> pages = i.next();
+			for (Iterator<Location> j = pages.values().iterator(); j.hasNext();)
+			{
+				if (j.next().segment == oldest)
+				{
+					j.remove();
+				}
+			}
+			if (pages.isEmpty())
+			{
+				i.remove();
+			}
+		}
+		oldest.delete();
+	}
+
+	/**
+	 * Marks the bytes at the given location as unused. Deletes its segment if it is not the current
+	 * one and doesn't contain used bytes anymore.
+	 *
+	 * @param location
+	 *            the location of a page which has been removed or replaced. May be {@code null}
+	 */
+	private void release(final Location location)
+	{
+		if (location != null)
+		{
+			Segment segment = location.segment;
+			segment.used -= location.length;
+			if (segment.used == 0 && segment != segments.peekLast() && segments.remove(segment))
+			{
+				log.debug("Deleting the unused segment {}", segment.file);
+				segment.delete();
+			}
+		}
+	}
+
+	private long getTotalSize()
+	{
+		long size = 0;
+		for (Segment segment : segments)
+		{
+			size += segment.buffer.capacity();
+		}
+		return size;
+	}
+
+	/**
+	 * The location of a page's bytes.
+	 */
+	private static class Location
+	{
+		private final Segment segment;
+		private final int offset;
+		private final int length;
+
+		private Location(final Segment segment, final int offset, final int length)
+		{
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * A memory-mapped file pages are appended to. Appends happen only while holding the lock of
+	 * {@link SegmentDataStore#segments}.
+	 */
+	private static class Segment
+	{
+		private final File file;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+
+		/** the offset where the next page will be written */
+		private int position = 0;
+
+		/** the number of bytes used by pages which are still in the index */
+		private long used = 0;
+
+		private Segment(final File file, final int size) throws IOException
+		{
+			this.file = file;
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try
+			{
+				channel = randomAccessFile.getChannel();
+				buffer = channel.map(MapMode.READ_WRITE, 0, size);
+			}
+			catch (IOException e)
+			{
+				IOUtils.closeQuietly(randomAccessFile);
+				throw e;
+			}
+		}
+
+		private int remaining()
+		{
+			return buffer.capacity() - position;
+		}
+
+		private int append(final byte[] data)
+		{
+			return append(ByteBuffer.wrap(data));
+		}
+
+		private int append(final ByteBuffer data)
+		{
+			int offset = position;
+			int length = data.remaining();
+			ByteBuffer target = buffer.duplicate();
+			target.position(offset);
+			target.put(data);
+			position += length;
+			used += length;
+			return offset;
+		}
+
+		private ByteBuffer read(final int offset, final int length)
+		{
+			ByteBuffer source = buffer.duplicate();
+			source.position(offset);
+			source.limit(offset + length);
+			return source.slice().asReadOnlyBuffer();
+		}
+
+		/**
+		 * Closes and deletes the segment file. Readers which obtained a location before can still
+		 * read from the mapped memory until it is garbage collected.
+		 */
+		private void delete()
+		{
+			IOUtils.closeQuietly(channel);
+			if (file.delete() == false)
+			{
+				log.debug("Couldn't delete segment file {}", file);
+			}
+		}
+	}
+}
@@ -16,6 +16,9 @@
  */
 package org.apache.wicket.protocol.http;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletResponse;
 
@@ -189,6 +192,13 @@ class HeaderBufferingWebResponse extends WebResponse implements IMetaDataBufferi
 		originalResponse.write(array, offset, length);
 	}
 
+	@Override
+	public void transferFrom(FileChannel channel, long position, long count) throws IOException
+	{
+		writeBuffered();
+		originalResponse.transferFrom(channel, position, count);
+	}
+
 	@Override
 	public void reset()
 	{
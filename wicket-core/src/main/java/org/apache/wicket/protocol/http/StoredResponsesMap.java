@@ -16,19 +16,29 @@
  */
 package org.apache.wicket.protocol.http;
 
-import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.wicket.util.collections.MostRecentlyUsedMap;
 import org.apache.wicket.util.time.Duration;
-import org.apache.wicket.util.time.Time;
 
 /**
  * A map that contains the buffered responses. It has a constraint on the maximum entries that it
  * can contain, and a constraint on the duration of time an entry is considered valid/non-expired
+ * <p>
+ * The entries are spread over several segments by the hash of their key, each with its own lock,
+ * so that concurrent requests rarely wait for each other. Within a segment the entries are kept in
+ * the order they were stored, so expired entries are always found at its head. Each put evicts the
+ * expired entries of its own segment and of one other segment in turn, so that idle segments don't
+ * keep expired responses around.
+ * <p>
+ * The maximum entries bound the whole map, not each segment: the entries of all segments are
+ * counted together, and when a put exceeds the maximum the oldest entry of any segment is evicted.
  */
-class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
+class StoredResponsesMap
 {
-	private static final long serialVersionUID = 1L;
+	private static final int SEGMENTS = 16;
 
 	/**
 	 * The actual object that is stored as a value of the map. It wraps the buffered response and
@@ -37,20 +47,45 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 	private static class Value
 	{
 		/** the original response to store */
-		private BufferedWebResponse response;
+		private final BufferedWebResponse response;
 
-		/** the time when this response is stored */
-		private Time creationTime;
+		/** the time in milliseconds when this response is stored */
+		private final long creationTime;
+
+		/** the order in which the responses are stored, many are stored within a millisecond */
+		private final long sequence;
+
+		private Value(final BufferedWebResponse response, final long creationTime,
+			final long sequence)
+		{
+			this.response = response;
+			this.creationTime = creationTime;
+			this.sequence = sequence;
+		}
 	}
 
 	/**
 	 * The duration of time before a {@link Value} is considered as expired
 	 */
-	private final Duration lifetime;
+	private final long lifetime;
+
+	/** how much entries this map can contain */
+	private final int maxEntries;
+
+	/** the number of entries in all segments */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/** the sequence of the next stored response */
+	private final AtomicLong nextSequence = new AtomicLong();
+
+	private final Segment[] segments;
+
+	/** the segment to evict the expired entries from on the next put */
+	private final AtomicInteger nextSweep = new AtomicInteger();
 
 	/**
 	 * Construct.
-	 * 
+	 *
 	 * @param maxEntries
 	 *            how much entries this map can contain
 	 * @param lifetime
@@ -58,32 +93,30 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 	 */
 	public StoredResponsesMap(int maxEntries, Duration lifetime)
 	{
-		super(maxEntries);
+		if (maxEntries <= 0)
+		{
+			throw new IllegalArgumentException("Must have at least one entry");
+		}
 
-		this.lifetime = lifetime;
-	}
+		this.maxEntries = maxEntries;
+		this.lifetime = lifetime.getMilliseconds();
 
-	@Override
-	protected synchronized boolean removeEldestEntry(java.util.Map.Entry<String, Object> eldest)
-	{
-		boolean removed = super.removeEldestEntry(eldest);
-		if (removed == false)
+		segments = new Segment[Math.min(SEGMENTS, maxEntries)];
+		for (int i = 0; i < segments.length; i++)
 		{
-			Value value = (Value)eldest.getValue();
-			if (value != null)
-			{
-				Duration elapsedTime = Time.now().subtract(value.creationTime);
-				if (lifetime.lessThanOrEqual(elapsedTime))
-				{
-					removedValue = value.response;
-					removed = true;
-				}
-			}
+			segments[i] = new Segment();
 		}
-		return removed;
 	}
 
-	@Override
+	/**
+	 * Stores a buffered response, evicting the expired and, if the map is full, the oldest
+	 * entries.
+	 *
+	 * @param key
+	 * @param bufferedResponse
+	 *            the {@link BufferedWebResponse}
+	 * @return the response previously stored with this key
+	 */
 	public BufferedWebResponse put(String key, Object bufferedResponse)
 	{
 		if (!(bufferedResponse instanceof BufferedWebResponse))
@@ -92,59 +125,205 @@ class StoredResponsesMap extends MostRecentlyUsedMap<String, Object>
 				" can store only instances of " + BufferedWebResponse.class.getSimpleName());
 		}
 
-		Value value = new Value();
-		value.creationTime = Time.now();
-		value.response = (BufferedWebResponse)bufferedResponse;
+		long now = System.currentTimeMillis();
+		Value value = new Value((BufferedWebResponse)bufferedResponse, now,
+			nextSequence.getAndIncrement());
+		Segment segment = segmentFor(key);
+		Value oldValue = segment.put(key, value, now - lifetime);
 
-		Value oldValue;
-		synchronized (this)
+		Segment other = segments[(nextSweep.getAndIncrement() & 0x7fffffff) % segments.length];
+		if (other != segment)
 		{
-			oldValue = (Value)super.put(key, value);
+			other.evict(now - lifetime);
+		}
+
+		while (size.get() > maxEntries)
+		{
+			if (evictEldest() == false)
+			{
+				break;
+			}
 		}
 
 		return oldValue != null ? oldValue.response : null;
 	}
 
-	@Override
+	/**
+	 * @param key
+	 * @return the stored response or <code>null</code> if there is none or it has expired
+	 */
 	public BufferedWebResponse get(Object key)
 	{
-		BufferedWebResponse result = null;
-		Value value;
-		synchronized (this)
+		Value value = segmentFor(key).get(key, System.currentTimeMillis() - lifetime);
+		return value != null ? value.response : null;
+	}
+
+	/**
+	 * @param key
+	 * @return whether a response is stored with the key
+	 */
+	public boolean containsKey(Object key)
+	{
+		return segmentFor(key).containsKey(key);
+	}
+
+	/**
+	 * @param key
+	 * @return the removed response or <code>null</code> if there was none
+	 */
+	public BufferedWebResponse remove(Object key)
+	{
+		Value value = segmentFor(key).remove(key);
+		return value != null ? value.response : null;
+	}
+
+	/**
+	 * Evicts the expired entries of all segments and counts the remaining ones.
+	 *
+	 * @return the number of stored entries
+	 */
+	public int size()
+	{
+		long expiredBefore = System.currentTimeMillis() - lifetime;
+		for (Segment segment : segments)
+		{
+			segment.evict(expiredBefore);
+		}
+		return size.get();
+	}
+
+	/**
+	 * Evicts the oldest entry of all segments.
+	 *
+	 * @return whether an entry was evicted, <code>false</code> if the map is empty
+	 */
+	private boolean evictEldest()
+	{
+		Segment eldestSegment = null;
+		long eldestSequence = Long.MAX_VALUE;
+		for (Segment segment : segments)
 		{
-			value = (Value)super.get(key);
+			long sequence = segment.eldestSequence();
+			if (sequence < eldestSequence)
+			{
+				eldestSegment = segment;
+				eldestSequence = sequence;
+			}
 		}
-		if (value != null)
+		// without a global lock another thread may have changed that segment in the meantime, then
+		// its new oldest entry goes, the map stays bounded either way
+		return (eldestSegment != null) && eldestSegment.evictEldest();
+	}
+
+	private Segment segmentFor(final Object key)
+	{
+		int hash = key.hashCode();
+		// spread the bits, the low ones of string hashes alone are distributed badly
+		hash ^= (hash >>> 20) ^ (hash >>> 12);
+		hash ^= (hash >>> 7) ^ (hash >>> 4);
+		return segments[(hash & 0x7fffffff) % segments.length];
+	}
+
+	/**
+	 * A part of the map guarded by its own lock. It keeps the count of the whole map up to date.
+	 */
+	private class Segment
+	{
+		/** entries in the order they were stored */
+		private final LinkedHashMap<Object, Value> entries = new LinkedHashMap<Object, Value>();
+
+		private synchronized Value put(final String key, final Value value,
+			final long expiredBefore)
 		{
-			Duration elapsedTime = Time.now().subtract(value.creationTime);
-			if (lifetime.greaterThan(elapsedTime))
+			// re-insert to move the entry to the end
+			Value oldValue = entries.remove(key);
+			entries.put(key, value);
+			if (oldValue == null)
 			{
-				result = value.response;
+				size.incrementAndGet();
 			}
-			else
+
+			evict(expiredBefore);
+
+			return oldValue;
+		}
+
+		/**
+		 * Removes the oldest entries while they are expired.
+		 *
+		 * @param expiredBefore
+		 */
+		private synchronized void evict(final long expiredBefore)
+		{
+			Iterator<Value> iterator = entries.values().iterator();
+			while (iterator.hasNext())
 			{
-				// expired, remove it
-				remove(key);
+				Value eldest = iterator.next();
+				if (eldest.creationTime <= expiredBefore)
+				{
+					iterator.remove();
+					size.decrementAndGet();
+				}
+				else
+				{
+					break;
+				}
 			}
 		}
-		return result;
-	}
 
-	@Override
-	public BufferedWebResponse remove(Object key)
-	{
-		Value removedValue;
-		synchronized (this)
+		/**
+		 * @return the sequence of the oldest entry or {@link Long#MAX_VALUE} if the segment is empty
+		 */
+		private synchronized long eldestSequence()
 		{
-			removedValue = (Value)super.remove(key);
+			Iterator<Value> iterator = entries.values().iterator();
+			return iterator.hasNext() ? iterator.next().sequence : Long.MAX_VALUE;
 		}
 
-		return removedValue != null ? removedValue.response : null;
-	}
+		/**
+		 * Removes the oldest entry.
+		 *
+		 * @return whether there was an entry to remove
+		 */
+		private synchronized boolean evictEldest()
+		{
+			Iterator<Value> iterator = entries.values().iterator();
+			if (iterator.hasNext())
+			{
+				iterator.next();
+				iterator.remove();
+				size.decrementAndGet();
+				return true;
+			}
+			return false;
+		}
 
-	@Override
-	public void putAll(Map<? extends String, ?> m)
-	{
-		throw new UnsupportedOperationException();
+		private synchronized Value get(final Object key, final long expiredBefore)
+		{
+			Value value = entries.get(key);
+			if ((value != null) && (value.creationTime <= expiredBefore))
+			{
+				// expired, remove it
+				entries.remove(key);
+				size.decrementAndGet();
+				value = null;
+			}
+			return value;
+		}
+
+		private synchronized boolean containsKey(final Object key)
+		{
+			return entries.containsKey(key);
+		}
+
+		private synchronized Value remove(final Object key)
+		{
+			Value value = entries.remove(key);
+			if (value != null)
+			{
+				size.decrementAndGet();
+			}
+			return value;
+		}
 	}
 }
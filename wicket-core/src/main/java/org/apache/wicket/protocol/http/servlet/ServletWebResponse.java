@@ -17,12 +17,15 @@
 package org.apache.wicket.protocol.http.servlet;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.io.Streams;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.time.Time;
 
@@ -137,6 +140,26 @@ public class ServletWebResponse extends WebResponse
 		}
 	}
 
+	/**
+	 * Copies the file directly to the servlet output stream. Like {@link #write(byte[])}, failures
+	 * to write are thrown as {@link ResponseIOException}, only failures to read the file are thrown
+	 * as {@link IOException}.
+	 */
+	@Override
+	public void transferFrom(FileChannel channel, long position, long count) throws IOException
+	{
+		final OutputStream out;
+		try
+		{
+			out = httpServletResponse.getOutputStream();
+		}
+		catch (IOException e)
+		{
+			throw new ResponseIOException(e);
+		}
+		Streams.copy(channel, position, count, new ResponseOutputStream(out));
+	}
+
 
 	@Override
 	public void setStatus(int sc)
@@ -282,4 +305,43 @@ public class ServletWebResponse extends WebResponse
 		String output = input.replace('\n', ' ').replace('\r', ' ');
 		return output;
 	}
+
+	/**
+	 * Wraps the failures to write to the servlet output stream in a {@link ResponseIOException}.
+	 */
+	private static final class ResponseOutputStream extends OutputStream
+	{
+		private final OutputStream out;
+
+		private ResponseOutputStream(final OutputStream out)
+		{
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b)
+		{
+			try
+			{
+				out.write(b);
+			}
+			catch (IOException e)
+			{
+				throw new ResponseIOException(e);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			try
+			{
+				out.write(b, off, len);
+			}
+			catch (IOException e)
+			{
+				throw new ResponseIOException(e);
+			}
+		}
+	}
 }
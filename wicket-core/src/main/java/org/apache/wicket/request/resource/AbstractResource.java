@@ -19,7 +19,9 @@ package org.apache.wicket.request.resource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletResponse;
@@ -32,9 +34,11 @@ import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.request.resource.caching.IResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
+import org.apache.wicket.response.CompressingResponse;
 import org.apache.wicket.settings.IResourceSettings;
 import org.apache.wicket.util.io.Streams;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.time.Duration;
 import org.apache.wicket.util.time.Time;
 
@@ -64,6 +68,22 @@ public abstract class AbstractResource implements IResource
 		INTERNAL_HEADERS.add("transfer-encoding");
 		INTERNAL_HEADERS.add("connection");
 		INTERNAL_HEADERS.add("content-disposition");
+		INTERNAL_HEADERS.add("content-encoding");
+		INTERNAL_HEADERS.add("etag");
+	}
+
+	/** content types worth compressing besides <em>text/*</em> */
+	private static final Set<String> COMPRESSIBLE_CONTENT_TYPES;
+
+	static
+	{
+		COMPRESSIBLE_CONTENT_TYPES = new HashSet<String>();
+		COMPRESSIBLE_CONTENT_TYPES.add("application/javascript");
+		COMPRESSIBLE_CONTENT_TYPES.add("application/x-javascript");
+		COMPRESSIBLE_CONTENT_TYPES.add("application/json");
+		COMPRESSIBLE_CONTENT_TYPES.add("application/xml");
+		COMPRESSIBLE_CONTENT_TYPES.add("application/xhtml+xml");
+		COMPRESSIBLE_CONTENT_TYPES.add("image/svg+xml");
 	}
 
 	/**
@@ -90,13 +110,17 @@ public abstract class AbstractResource implements IResource
 	public static class ResourceResponse
 	{
 		private Integer errorCode;
+		private Integer statusCode;
 		private String errorMessage;
 		private String fileName = null;
 		private ContentDisposition contentDisposition = ContentDisposition.INLINE;
 		private String contentType = null;
 		private String textEncoding;
 		private long contentLength = -1;
+		private boolean compressible = false;
+		private String contentEncoding;
 		private Time lastModified = null;
+		private String eTag;
 		private WriteCallback writeCallback;
 		private Duration cacheDuration;
 		private WebResponse.CacheScope cacheScope;
@@ -159,6 +183,26 @@ public abstract class AbstractResource implements IResource
 			return errorMessage;
 		}
 
+		/**
+		 * Sets the status code of a successful response, e.g. <em>206 Partial Content</em>. Use
+		 * {@link #setError(Integer)} for errors.
+		 * 
+		 * @param statusCode
+		 *            the status code or <code>null</code> for the default
+		 */
+		public void setStatusCode(Integer statusCode)
+		{
+			this.statusCode = statusCode;
+		}
+
+		/**
+		 * @return status code or <code>null</code>
+		 */
+		public Integer getStatusCode()
+		{
+			return statusCode;
+		}
+
 		/**
 		 * Sets the file name of the resource.
 		 * 
@@ -264,6 +308,52 @@ public abstract class AbstractResource implements IResource
 			return contentLength;
 		}
 
+		/**
+		 * Sets whether the data may be compressed. If the client accepts a supported content
+		 * encoding and the data is not encoded yet (see {@link #setContentEncoding(String)}) the
+		 * data written by the {@link WriteCallback} is compressed on the fly. In that case the
+		 * content length is not sent.
+		 * <p>
+		 * Compressible responses carry a <em>Vary: Accept-Encoding</em> header.
+		 * 
+		 * @param compressible
+		 *            whether the data may be compressed
+		 * @see IResourceSettings#setCompressResources(boolean)
+		 */
+		public void setCompressible(boolean compressible)
+		{
+			this.compressible = compressible;
+		}
+
+		/**
+		 * @return whether the data may be compressed
+		 */
+		public boolean isCompressible()
+		{
+			return compressible;
+		}
+
+		/**
+		 * Sets the content encoding of the data written by the {@link WriteCallback}, e.g. when
+		 * it writes precompressed data. The encoding has to be accepted by the client, see
+		 * {@link AbstractResource#getAcceptedContentEncoding(Attributes)}.
+		 * 
+		 * @param contentEncoding
+		 *            the content encoding or {@code null} if the data is not encoded
+		 */
+		public void setContentEncoding(String contentEncoding)
+		{
+			this.contentEncoding = contentEncoding;
+		}
+
+		/**
+		 * @return the content encoding of the data or {@code null} if it is not encoded
+		 */
+		public String getContentEncoding()
+		{
+			return contentEncoding;
+		}
+
 		/**
 		 * Sets the last modified data of the resource. Even though this method is optional it is
 		 * recommended to set the date. If the date is set properly Wicket can check the
@@ -286,10 +376,34 @@ public abstract class AbstractResource implements IResource
 			return lastModified;
 		}
 
+		/**
+		 * Sets the strong entity tag of the resource data. It has to change whenever the data
+		 * changes, e.g. a digest of the data. If the data is sent with a content encoding, the
+		 * encoding is appended to the tag. The versioned caching strategies use the version of the
+		 * resource, which identifies its content.
+		 * 
+		 * @param eTag
+		 *            the entity tag without quotes or {@code null}
+		 */
+		public void setETag(String eTag)
+		{
+			this.eTag = eTag;
+		}
+
+		/**
+		 * @return the entity tag of the resource data or {@code null}
+		 */
+		public String getETag()
+		{
+			return eTag;
+		}
+
 		/**
 		 * Check to determine if the resource data needs to be written. This method checks the
-		 * <code>If-Modified-Since</code> request header and compares it to lastModified property.
-		 * In order for this method to work {@link #setLastModified(Time)} has to be called first.
+		 * <code>If-None-Match</code> request header and compares it to the entity tag or, if there
+		 * is none, the <code>If-Modified-Since</code> request header and compares it to
+		 * lastModified property. In order for this method to work {@link #setETag(String)} or
+		 * {@link #setLastModified(Time)} has to be called first.
 		 * 
 		 * @param attributes
 		 *            request attributes
@@ -299,6 +413,17 @@ public abstract class AbstractResource implements IResource
 		public boolean dataNeedsToBeWritten(Attributes attributes)
 		{
 			WebRequest request = (WebRequest)attributes.getRequest();
+
+			if (eTag != null)
+			{
+				String ifNoneMatch = request.getHeader("If-None-Match");
+				if (ifNoneMatch != null)
+				{
+					// If-Modified-Since must be ignored when If-None-Match is present
+					return getMatchingETag(ifNoneMatch) == null;
+				}
+			}
+
 			Time ifModifiedSince = request.getIfModifiedSinceHeader();
 
 			if (ifModifiedSince != null && lastModified != null)
@@ -318,6 +443,57 @@ public abstract class AbstractResource implements IResource
 			}
 		}
 
+		/**
+		 * Looks for the entity tag of the resource data in the value of an
+		 * <code>If-None-Match</code> request header. The tags are compared regardless of their
+		 * content encoding suffix.
+		 * 
+		 * @param ifNoneMatch
+		 *            the header value
+		 * @return the strong entity tag of the representation the matching tag of the header value
+		 *         stands for, or {@code null} if there is none
+		 */
+		private String getMatchingETag(String ifNoneMatch)
+		{
+			for (String element : Strings.split(ifNoneMatch, ','))
+			{
+				String tag = element.trim();
+				if ("*".equals(tag))
+				{
+					return getETagHeader();
+				}
+
+				// weak comparison
+				String opaque = tag.startsWith("W/") ? tag.substring(2) : tag;
+				if (opaque.length() < 2 || opaque.charAt(0) != '"' ||
+					opaque.charAt(opaque.length() - 1) != '"')
+				{
+					continue;
+				}
+				opaque = opaque.substring(1, opaque.length() - 1);
+				if (opaque.equals(eTag) || opaque.equals(eTag + "-" + CompressingResponse.GZIP) ||
+					opaque.equals(eTag + "-" + CompressingResponse.DEFLATE))
+				{
+					// the client's tag may be weak, respond with the resource's own one
+					return quote(opaque);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @return the entity tag header value for the resource data as it is written
+		 */
+		private String getETagHeader()
+		{
+			return quote(contentEncoding != null ? eTag + "-" + contentEncoding : eTag);
+		}
+
+		private static String quote(String tag)
+		{
+			return '"' + tag + '"';
+		}
+
 		/**
 		 * disable caching
 		 */
@@ -467,6 +643,119 @@ public abstract class AbstractResource implements IResource
 		return Application.get().getResourceSettings().getCachingStrategy();
 	}
 
+	/**
+	 * Whether data of the given content type is worth compressing, i.e. it is text.
+	 * 
+	 * @param contentType
+	 *            the content type, may be {@code null}
+	 * @return {@code true} if the data should be compressed
+	 */
+	protected boolean isCompressible(final String contentType)
+	{
+		if (contentType == null)
+		{
+			return false;
+		}
+		String type = Strings.beforeFirst(contentType, ';').trim().toLowerCase(Locale.ENGLISH);
+		if (type.length() == 0)
+		{
+			type = contentType.trim().toLowerCase(Locale.ENGLISH);
+		}
+		return type.startsWith("text/") || COMPRESSIBLE_CONTENT_TYPES.contains(type);
+	}
+
+	/**
+	 * Negotiates the content encoding of the response from the <em>Accept-Encoding</em> header of
+	 * the request. <em>gzip</em> is preferred over <em>deflate</em>.
+	 * 
+	 * @param attributes
+	 *            request attributes
+	 * @return {@link CompressingResponse#GZIP}, {@link CompressingResponse#DEFLATE} or {@code null}
+	 *         if the client accepts neither or compression is disabled
+	 * @see IResourceSettings#getCompressResources()
+	 */
+	protected String getAcceptedContentEncoding(final Attributes attributes)
+	{
+		if (Application.exists() &&
+			Application.get().getResourceSettings().getCompressResources() == false)
+		{
+			return null;
+		}
+		if (attributes.getRequest() instanceof WebRequest == false)
+		{
+			return null;
+		}
+		String acceptEncoding = ((WebRequest)attributes.getRequest()).getHeader("Accept-Encoding");
+		if (Strings.isEmpty(acceptEncoding))
+		{
+			return null;
+		}
+
+		boolean gzip = false;
+		boolean deflate = false;
+		boolean any = false;
+		boolean gzipRejected = false;
+		boolean deflateRejected = false;
+		for (String element : Strings.split(acceptEncoding, ','))
+		{
+			String coding = Strings.beforeFirst(element, ';').trim();
+			if (coding.length() == 0)
+			{
+				coding = element.trim();
+			}
+			boolean accepted = isAccepted(Strings.afterFirst(element, ';'));
+			if ("gzip".equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding))
+			{
+				gzip = accepted;
+				gzipRejected = !accepted;
+			}
+			else if ("deflate".equalsIgnoreCase(coding))
+			{
+				deflate = accepted;
+				deflateRejected = !accepted;
+			}
+			else if ("*".equals(coding))
+			{
+				any = accepted;
+			}
+		}
+
+		if (gzip || (any && !gzipRejected))
+		{
+			return CompressingResponse.GZIP;
+		}
+		else if (deflate || (any && !deflateRejected))
+		{
+			return CompressingResponse.DEFLATE;
+		}
+		return null;
+	}
+
+	/**
+	 * @param parameters
+	 *            the parameters of an <em>Accept-Encoding</em> element, e.g. <em>q=0.5</em>
+	 * @return {@code false} if the quality value is zero
+	 */
+	private static boolean isAccepted(final String parameters)
+	{
+		for (String parameter : Strings.split(parameters, ';'))
+		{
+			String name = Strings.beforeFirst(parameter, '=').trim();
+			if ("q".equalsIgnoreCase(name))
+			{
+				try
+				{
+					return Double.parseDouble(Strings.afterFirst(parameter, '=').trim()) > 0;
+				}
+				catch (NumberFormatException e)
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * 
 	 * @see org.apache.wicket.request.resource.IResource#respond(org.apache.wicket.request.resource.IResource.Attributes)
@@ -482,6 +771,23 @@ public abstract class AbstractResource implements IResource
 		{
 			getCachingStrategy().decorateResponse(data, (IStaticCacheableResource)this);
 		}
+
+		// compress the data on the fly if it is not encoded yet
+		CompressingResponse compressingResponse = null;
+		if (data.isCompressible() && data.getContentEncoding() == null &&
+			data.getErrorCode() == null && data.dataNeedsToBeWritten(attributes))
+		{
+			String contentEncoding = getAcceptedContentEncoding(attributes);
+			if (contentEncoding != null)
+			{
+				data.setContentEncoding(contentEncoding);
+				// the length of the compressed data is not known in advance
+				data.setContentLength(-1);
+				compressingResponse = new CompressingResponse(attributes.getResponse(),
+					contentEncoding, getCharset(data));
+			}
+		}
+
 		// set response header
 		setResponseHeaders(data, attributes);
 
@@ -495,7 +801,32 @@ public abstract class AbstractResource implements IResource
 			throw new IllegalStateException("ResourceResponse#setWriteCallback() must be set.");
 		}
 
-		data.getWriteCallback().writeData(attributes);
+		if (compressingResponse != null)
+		{
+			data.getWriteCallback().writeData(
+				new Attributes(attributes.getRequest(), compressingResponse,
+					attributes.getParameters()));
+			compressingResponse.finish();
+		}
+		else
+		{
+			data.getWriteCallback().writeData(attributes);
+		}
+	}
+
+	/**
+	 * @param data
+	 * @return the charset the container would use to encode the characters written to the response
+	 */
+	private static Charset getCharset(final ResourceResponse data)
+	{
+		String mimeType = data.getContentType();
+		String encoding = data.getTextEncoding();
+		if (mimeType != null && mimeType.contains("text") && encoding != null)
+		{
+			return Charset.forName(encoding);
+		}
+		return Charset.forName("ISO-8859-1");
 	}
 
 	/**
@@ -542,6 +873,22 @@ public abstract class AbstractResource implements IResource
 
 			if (!data.dataNeedsToBeWritten(attributes))
 			{
+				boolean encoded = data.getContentEncoding() != null;
+				if (data.getETag() != null)
+				{
+					String ifNoneMatch = ((WebRequest)attributes.getRequest()).getHeader(
+						"If-None-Match");
+					String eTag = ifNoneMatch != null ? data.getMatchingETag(ifNoneMatch) : null;
+					if (eTag != null)
+					{
+						webResponse.setHeader("ETag", eTag);
+						encoded |= eTag.equals(ResourceResponse.quote(data.getETag())) == false;
+					}
+				}
+				if (data.isCompressible() || encoded)
+				{
+					webResponse.addHeader("Vary", "Accept-Encoding");
+				}
 				webResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
 				return;
 			}
@@ -552,6 +899,11 @@ public abstract class AbstractResource implements IResource
 				return;
 			}
 
+			if (data.getStatusCode() != null)
+			{
+				webResponse.setStatus(data.getStatusCode());
+			}
+
 			String fileName = data.getFileName();
 			ContentDisposition disposition = data.getContentDisposition();
 			String mimeType = data.getContentType();
@@ -593,6 +945,22 @@ public abstract class AbstractResource implements IResource
 				webResponse.setContentLength(contentLength);
 			}
 
+			// 6. Content Encoding
+			if (data.getContentEncoding() != null)
+			{
+				webResponse.setHeader("Content-Encoding", data.getContentEncoding());
+			}
+			if (data.isCompressible() || data.getContentEncoding() != null)
+			{
+				webResponse.addHeader("Vary", "Accept-Encoding");
+			}
+
+			// 7. Entity Tag
+			if (data.getETag() != null)
+			{
+				webResponse.setHeader("ETag", data.getETagHeader());
+			}
+
 			// add custom headers and values
 			final HttpHeaderCollection headers = data.getHeaders();
 
@@ -606,7 +974,7 @@ public abstract class AbstractResource implements IResource
 				}
 			}
 
-			// 6. Flush the response
+			// 8. Flush the response
 			// This is necessary for firefox if this resource is an image, otherwise it messes up
 			// other images on page
 			webResponse.flush();
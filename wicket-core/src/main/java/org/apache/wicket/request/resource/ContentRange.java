@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * Represents a range of bytes of a resource requested with the <em>Range</em> header, see <a
+ * href="http://tools.ietf.org/html/rfc7233">RFC 7233</a>.
+ */
+public final class ContentRange
+{
+	/** the maximum number of ranges in a request, more ranges are ignored */
+	private static final int MAX_RANGES = 16;
+
+	private final long first;
+
+	private final long last;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param first
+	 *            the position of the first byte
+	 * @param last
+	 *            the position of the last byte (inclusive)
+	 */
+	public ContentRange(final long first, final long last)
+	{
+		if (first < 0 || last < first)
+		{
+			throw new IllegalArgumentException("Invalid range: " + first + "-" + last);
+		}
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * @return the position of the first byte
+	 */
+	public long getFirst()
+	{
+		return first;
+	}
+
+	/**
+	 * @return the position of the last byte (inclusive)
+	 */
+	public long getLast()
+	{
+		return last;
+	}
+
+	/**
+	 * @return the number of bytes in the range
+	 */
+	public long getLength()
+	{
+		return last - first + 1;
+	}
+
+	/**
+	 * @param totalLength
+	 *            the length of the whole resource
+	 * @return the value of the <em>Content-Range</em> header for this range
+	 */
+	public String toHeaderValue(final long totalLength)
+	{
+		return "bytes " + first + "-" + last + "/" + totalLength;
+	}
+
+	/**
+	 * Parses the value of a <em>Range</em> header. Overlapping and adjacent ranges are merged and
+	 * the result is sorted by position.
+	 * 
+	 * @param header
+	 *            the header value, e.g. <em>bytes=0-499,-500</em>
+	 * @param length
+	 *            the length of the resource
+	 * @return the satisfiable ranges; an empty list if no range is satisfiable; {@code null} if the
+	 *         header is invalid or uses an unknown unit and has to be ignored
+	 */
+	public static List<ContentRange> parse(final String header, final long length)
+	{
+		if (header == null || header.startsWith("bytes=") == false)
+		{
+			return null;
+		}
+
+		String[] specs = Strings.split(header.substring("bytes=".length()), ',');
+		if (specs.length > MAX_RANGES)
+		{
+			return null;
+		}
+
+		List<ContentRange> ranges = new ArrayList<ContentRange>(specs.length);
+		for (String spec : specs)
+		{
+			spec = spec.trim();
+			int dash = spec.indexOf('-');
+			if (dash == -1)
+			{
+				return null;
+			}
+
+			try
+			{
+				String firstPart = spec.substring(0, dash).trim();
+				String lastPart = spec.substring(dash + 1).trim();
+				long first;
+				long last;
+				if (firstPart.length() == 0)
+				{
+					// suffix range: the last n bytes
+					long suffix = Long.parseLong(lastPart);
+					if (suffix <= 0)
+					{
+						continue;
+					}
+					first = Math.max(0, length - suffix);
+					last = length - 1;
+				}
+				else
+				{
+					first = Long.parseLong(firstPart);
+					last = lastPart.length() == 0 ? Long.MAX_VALUE : Long.parseLong(lastPart);
+					if (first < 0 || last < first)
+					{
+						return null;
+					}
+					last = Math.min(last, length - 1);
+				}
+
+				if (first < length)
+				{
+					ranges.add(new ContentRange(first, last));
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				return null;
+			}
+		}
+
+		return merge(ranges);
+	}
+
+	private static List<ContentRange> merge(final List<ContentRange> ranges)
+	{
+		if (ranges.size() < 2)
+		{
+			return ranges;
+		}
+
+		Collections.sort(ranges, new Comparator<ContentRange>()
+		{
+			@Override
+			public int compare(ContentRange r1, ContentRange r2)
+			{
+				return r1.first < r2.first ? -1 : (r1.first == r2.first ? 0 : 1);
+			}
+		});
+
+		List<ContentRange> merged = new ArrayList<ContentRange>(ranges.size());
+		ContentRange current = ranges.get(0);
+		for (int i = 1; i < ranges.size(); i++)
+		{
+			ContentRange next = ranges.get(i);
+			if (next.first <= current.last + 1)
+			{
+				current = new ContentRange(current.first, Math.max(current.last, next.last));
+			}
+			else
+			{
+				merged.add(current);
+				current = next;
+			}
+		}
+		merged.add(current);
+		return merged;
+	}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj instanceof ContentRange == false)
+		{
+			return false;
+		}
+		ContentRange other = (ContentRange)obj;
+		return first == other.first && last == other.last;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (int)(31 * first + last);
+	}
+
+	@Override
+	public String toString()
+	{
+		return first + "-" + last;
+	}
+}
@@ -74,6 +74,19 @@ public class JavaScriptPackageResource extends PackageResource
 		}
 	}
 
+	/**
+	 * The compressed data is cached, so it doesn't have to be compressed for every request.
+	 * Override to return {@code false} if {@link #processResponse(Attributes, byte[])} depends on
+	 * the request.
+	 * 
+	 * @see org.apache.wicket.request.resource.PackageResource#isProcessedResponseCacheable()
+	 */
+	@Override
+	protected boolean isProcessedResponseCacheable()
+	{
+		return true;
+	}
+
 	/**
 	 * Gets the {@link IJavaScriptCompressor} to be used. By default returns the configured
 	 * compressor on application level, but can be overriden by the user application to provide
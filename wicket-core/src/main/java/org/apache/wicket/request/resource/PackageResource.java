@@ -18,6 +18,7 @@ package org.apache.wicket.request.resource;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Locale;
 
 import javax.servlet.http.HttpServletResponse;
@@ -27,7 +28,9 @@ import org.apache.wicket.Session;
 import org.apache.wicket.ThreadContext;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
+import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
+import org.apache.wicket.response.CompressingResponse;
 import org.apache.wicket.settings.IResourceSettings;
 import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Packages;
@@ -166,12 +169,32 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 	private Locale getCurrentLocale()
 	{
-		return locale != null ? locale : Session.get().getLocale();
+		if (locale == null && isSessionAvailable())
+		{
+			return Session.get().getLocale();
+		}
+		return locale;
 	}
 
 	private String getCurrentStyle()
 	{
-		return style != null ? style : Session.get().getStyle();
+		if (style == null && isSessionAvailable())
+		{
+			return Session.get().getStyle();
+		}
+		return style;
+	}
+
+	/**
+	 * The session's locale and style can only be used within a request cycle. Outside of it, e.g.
+	 * while resource versions are precomputed at application startup, the resource is located
+	 * without them.
+	 * 
+	 * @return whether the session's locale and style can be used
+	 */
+	private static boolean isSessionAvailable()
+	{
+		return Session.exists() || RequestCycle.get() != null;
 	}
 
 	/**
@@ -244,6 +267,13 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 	{
 		final ResourceResponse resourceResponse = new ResourceResponse();
 
+		// the entity tag is set by the caching strategy. set it before the resource stream is
+		// opened, so a matching If-None-Match can be answered without touching the resource
+		if (Application.exists())
+		{
+			getCachingStrategy().decorateResponse(resourceResponse, this);
+		}
+
 		if (resourceResponse.dataNeedsToBeWritten(attributes))
 		{
 			// get resource stream
@@ -274,22 +304,83 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 			try
 			{
-				// read resource data
-				final byte[] bytes;
+				final byte[] processed;
 
-				try
+				// whether the processed data depends on the resource data only
+				boolean cacheable = isProcessedResponseCacheable();
+
+				ProcessedResourceCache cache = getProcessedResourceCache();
+				Object key = null;
+				byte[] cached = null;
+				if (cache != null)
 				{
-					bytes = IOUtils.toByteArray(resourceStream.getInputStream());
+					// subclasses may process the same file differently
+					key = Arrays.asList(getClass().getName(), new CacheKey(scopeName,
+						absolutePath, resourceStream.getLocale(), resourceStream.getStyle(),
+						resourceStream.getVariation()));
+					if (cacheable)
+					{
+						cached = cache.get(key, lastModified);
+					}
 				}
-				finally
+
+				if (cached != null)
 				{
 					resourceStream.close();
+					processed = cached;
+				}
+				else
+				{
+					// read resource data
+					final byte[] bytes;
+
+					try
+					{
+						bytes = IOUtils.toByteArray(resourceStream.getInputStream());
+					}
+					finally
+					{
+						resourceStream.close();
+					}
+
+					processed = processResponse(attributes, bytes);
+
+					if (cache != null && cacheable)
+					{
+						cache.put(key, lastModified, processed);
+					}
+
+					// unprocessed data can be cached compressed
+					cacheable |= processed == bytes;
 				}
 
-				final byte[] processed = processResponse(attributes, bytes);
+				byte[] data = processed;
+				if (isCompressible(contentType))
+				{
+					String contentEncoding = getAcceptedContentEncoding(attributes);
+					if (contentEncoding == null)
+					{
+						// other clients may get the compressed data
+						resourceResponse.setCompressible(true);
+					}
+					else
+					{
+						byte[] compressed = getCompressed(cacheable ? cache : null, key,
+							lastModified, processed, contentEncoding);
+						// tiny resources may grow. they are sent as they are, so they must not be
+						// marked compressible either, or they would be compressed on the fly
+						if (compressed.length < processed.length)
+						{
+							resourceResponse.setCompressible(true);
+							resourceResponse.setContentEncoding(contentEncoding);
+							data = compressed;
+						}
+					}
+				}
+				final byte[] written = data;
 
 				// send Content-Length header
-				resourceResponse.setContentLength(processed.length);
+				resourceResponse.setContentLength(written.length);
 
 				// send response body with resource data
 				resourceResponse.setWriteCallback(new WriteCallback()
@@ -297,7 +388,7 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 					@Override
 					public void writeData(Attributes attributes)
 					{
-						attributes.getResponse().write(processed);
+						attributes.getResponse().write(written);
 					}
 				});
 			}
@@ -312,6 +403,11 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 				return sendResourceError(resourceResponse, 500, "Unable to open resource stream");
 			}
 		}
+		else if (Application.exists())
+		{
+			// the response to a revalidation varies with the accepted encoding like the data does
+			resourceResponse.setCompressible(isCompressible(Application.get().getMimeType(path)));
+		}
 
 		return resourceResponse;
 	}
@@ -330,6 +426,69 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 		return original;
 	}
 
+	/**
+	 * Whether the result of {@link #processResponse(Attributes, byte[])} depends only on the data
+	 * of the resource, so it can be kept in the application's {@link ProcessedResourceCache} and
+	 * reused for other requests.
+	 * 
+	 * @return {@code false} by default
+	 */
+	protected boolean isProcessedResponseCacheable()
+	{
+		return false;
+	}
+
+	/**
+	 * Compresses the processed data of the resource. The compressed data is cached if the processed
+	 * data depends on the resource data only, so each version of a resource is compressed only once.
+	 * 
+	 * @param cache
+	 *            the cache or {@code null}
+	 * @param key
+	 *            the cache key of the processed data
+	 * @param lastModified
+	 *            the modification time of the resource
+	 * @param processed
+	 *            the processed data
+	 * @param contentEncoding
+	 *            the content encoding
+	 * @return the compressed data
+	 */
+	private byte[] getCompressed(final ProcessedResourceCache cache, final Object key,
+		final Time lastModified, final byte[] processed, final String contentEncoding)
+	{
+		Object compressedKey = null;
+		if (cache != null)
+		{
+			compressedKey = Arrays.asList(key, contentEncoding);
+			byte[] cached = cache.get(compressedKey, lastModified);
+			if (cached != null)
+			{
+				return cached;
+			}
+		}
+
+		byte[] compressed = CompressingResponse.compress(processed, contentEncoding);
+		if (cache != null)
+		{
+			cache.put(compressedKey, lastModified, compressed);
+		}
+		return compressed;
+	}
+
+	/**
+	 * @return the cache for the processed and compressed data of the resources or {@code null} if
+	 *         there is no application
+	 */
+	private ProcessedResourceCache getProcessedResourceCache()
+	{
+		if (Application.exists())
+		{
+			return Application.get().getResourceSettings().getProcessedResourceCache();
+		}
+		return null;
+	}
+
 	/**
 	 * send resource specific error message and write log entry
 	 * 
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.lang.Objects;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Application wide cache of the processed data of package resources, e.g. compressed JavaScript and
+ * CSS, and of their gzip or deflate encoded data, so the processing doesn't have to be repeated for
+ * every request.
+ * <p>
+ * Each entry remembers the last modification time of the resource it was processed from. A lookup
+ * with a different modification time misses, so resources changed in development mode are
+ * processed again. The total size of the cached data is bounded; the least recently used entries
+ * are dropped first.
+ * 
+ * @see PackageResource#isProcessedResponseCacheable()
+ * @see org.apache.wicket.settings.IResourceSettings#setProcessedResourceCache(ProcessedResourceCache)
+ */
+public class ProcessedResourceCache
+{
+	/** key -> entry, in access order (least recently used first) */
+	private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16,
+		0.75f, true);
+
+	private final long maxSize;
+
+	private long size;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxSize
+	 *            the maximum total size of the cached data
+	 */
+	public ProcessedResourceCache(final Bytes maxSize)
+	{
+		this.maxSize = Args.notNull(maxSize, "maxSize").bytes();
+	}
+
+	/**
+	 * Returns the cached data of a resource.
+	 * 
+	 * @param key
+	 *            the key of the resource
+	 * @param lastModified
+	 *            the current modification time of the resource, may be {@code null}
+	 * @return the cached data or {@code null} if there is no data for the key or it was processed
+	 *         from a differently modified resource
+	 */
+	public synchronized byte[] get(final Object key, final Time lastModified)
+	{
+		Entry entry = entries.get(key);
+		if (entry != null && Objects.equal(entry.lastModified, lastModified))
+		{
+			hits.incrementAndGet();
+			return entry.data;
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Caches the data of a resource. Data bigger than the maximum size of the cache is not cached.
+	 * 
+	 * @param key
+	 *            the key of the resource
+	 * @param lastModified
+	 *            the modification time of the resource the data was processed from, may be
+	 *            {@code null}
+	 * @param data
+	 *            the processed data
+	 */
+	public synchronized void put(final Object key, final Time lastModified, final byte[] data)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(data, "data");
+
+		Entry old = entries.remove(key);
+		if (old != null)
+		{
+			size -= old.data.length;
+		}
+
+		if (data.length <= maxSize)
+		{
+			entries.put(key, new Entry(lastModified, data));
+			size += data.length;
+
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (size > maxSize && iterator.hasNext())
+			{
+				size -= iterator.next().data.length;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all the cached data.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return the total size of the cached data
+	 */
+	public synchronized Bytes getSize()
+	{
+		return Bytes.bytes(size);
+	}
+
+	/**
+	 * @return the maximum total size of the cached data
+	 */
+	public Bytes getMaxSize()
+	{
+		return Bytes.bytes(maxSize);
+	}
+
+	/**
+	 * @return the number of cached resources
+	 */
+	public synchronized int getCount()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return how many times cached data was found
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return how many times data was not found or was stale
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * The cached data with the modification time of the resource it was processed from
+	 */
+	private static class Entry
+	{
+		private final Time lastModified;
+
+		private final byte[] data;
+
+		private Entry(final Time lastModified, final byte[] data)
+		{
+			this.lastModified = lastModified;
+			this.data = data;
+		}
+	}
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.request.resource;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Locale;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -431,4 +433,12 @@ public class ResourceReferenceRegistry
 	{
 		return map.size();
 	}
+
+	/**
+	 * @return Unmodifiable view of the registered resource references (normal and auto-generated)
+	 */
+	public final Collection<ResourceReference> getResourceReferences()
+	{
+		return Collections.unmodifiableCollection(map.values());
+	}
 }
@@ -16,12 +16,23 @@
  */
 package org.apache.wicket.request.resource;
 
+import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.io.Streams;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.resource.IResourceStream;
@@ -34,7 +45,11 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * TODO javadoc
+ * A resource that sends the data of an {@link IResourceStream}.
+ * <p>
+ * If the length of the stream is known, byte ranges can be requested with the <em>Range</em>
+ * header, e.g. to resume a download. The data of file streams is transferred directly from the
+ * file channel, see {@link WebResponse#transferFrom(FileChannel, long, long)}.
  */
 public class ResourceStreamResource extends AbstractResource
 {
@@ -42,6 +57,8 @@ public class ResourceStreamResource extends AbstractResource
 
 	private static final Logger logger = LoggerFactory.getLogger(ResourceStreamResource.class);
 
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
 	private final IResourceStream stream;
 	private String fileName;
 	private ContentDisposition contentDisposition = ContentDisposition.INLINE;
@@ -156,6 +173,7 @@ public class ResourceStreamResource extends AbstractResource
 			}
 			data.setContentType(contentType);
 			data.setTextEncoding(textEncoding);
+			data.setCompressible(isCompressible(contentType));
 
 			if (cacheDuration != null)
 			{
@@ -177,27 +195,280 @@ public class ResourceStreamResource extends AbstractResource
 			else
 			{
 				final InputStream s = inputStream;
-				data.setWriteCallback(new WriteCallback()
+				List<ContentRange> ranges = null;
+				if (length != null && data.getErrorCode() == null)
 				{
-					@Override
-					public void writeData(Attributes attributes)
+					data.getHeaders().addHeader("Accept-Ranges", "bytes");
+					ranges = getRequestedRanges(attributes, data, length.bytes());
+				}
+
+				if (ranges == null)
+				{
+					data.setWriteCallback(new WriteCallback()
 					{
-						try
+						@Override
+						public void writeData(Attributes attributes)
 						{
-							writeStream(attributes, s);
+							try
+							{
+								if (s instanceof FileInputStream &&
+									attributes.getResponse() instanceof WebResponse)
+								{
+									// copy the file without going through the stream
+									FileChannel channel = ((FileInputStream)s).getChannel();
+									long position = channel.position();
+									((WebResponse)attributes.getResponse()).transferFrom(channel,
+										position, channel.size() - position);
+								}
+								else
+								{
+									writeStream(attributes, s);
+								}
+							}
+							catch (IOException e)
+							{
+								throw new WicketRuntimeException(e);
+							}
+							finally
+							{
+								close();
+							}
 						}
-						finally
-						{
-							close();
-						}
-					}
-				});
+					});
+				}
+				else if (ranges.isEmpty())
+				{
+					close();
+					data.setError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				}
+				else
+				{
+					setPartialContent(data, s, ranges, length.bytes());
+				}
 			}
 		}
 
 		return data;
 	}
 
+	/**
+	 * Gets the ranges requested with the <em>Range</em> header, if the <em>If-Range</em>
+	 * condition allows it.
+	 * 
+	 * @param attributes
+	 * @param data
+	 * @param length
+	 *            the length of the stream
+	 * @return the requested ranges or {@code null} if the whole stream has to be sent
+	 * @see ContentRange#parse(String, long)
+	 */
+	private List<ContentRange> getRequestedRanges(final Attributes attributes,
+		final ResourceResponse data, final long length)
+	{
+		if (attributes.getRequest() instanceof WebRequest == false)
+		{
+			return null;
+		}
+		WebRequest request = (WebRequest)attributes.getRequest();
+		String range = request.getHeader("Range");
+		if (range == null || isIfRangeSatisfied(request, data) == false)
+		{
+			return null;
+		}
+		return ContentRange.parse(range, length);
+	}
+
+	/**
+	 * @param request
+	 * @param data
+	 * @return {@code true} if there is no <em>If-Range</em> header or it matches the entity tag or
+	 *         the last modification time of the data
+	 */
+	private boolean isIfRangeSatisfied(final WebRequest request, final ResourceResponse data)
+	{
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange == null)
+		{
+			return true;
+		}
+
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+		{
+			// entity tags are compared strongly, weak ones never match
+			return data.getETag() != null && ifRange.equals('"' + data.getETag() + '"');
+		}
+
+		Time date = request.getDateHeader("If-Range");
+		Time lastModified = data.getLastModified();
+		return date != null && lastModified != null &&
+			date.getMilliseconds() == lastModified.getMilliseconds() / 1000 * 1000;
+	}
+
+	/**
+	 * Configures the response to send the given ranges of the stream with status <em>206 Partial
+	 * Content</em>, as <em>multipart/byteranges</em> if there is more than one range.
+	 * 
+	 * @param data
+	 * @param inputStream
+	 * @param ranges
+	 *            the ranges, sorted and not overlapping
+	 * @param length
+	 *            the length of the stream
+	 */
+	private void setPartialContent(final ResourceResponse data, final InputStream inputStream,
+		final List<ContentRange> ranges, final long length)
+	{
+		data.setStatusCode(HttpServletResponse.SC_PARTIAL_CONTENT);
+		// the ranges refer to the unencoded data
+		data.setCompressible(false);
+
+		if (ranges.size() == 1)
+		{
+			final ContentRange range = ranges.get(0);
+			data.setContentLength(range.getLength());
+			data.getHeaders().addHeader("Content-Range", range.toHeaderValue(length));
+			data.setWriteCallback(new WriteCallback()
+			{
+				@Override
+				public void writeData(Attributes attributes)
+				{
+					try
+					{
+						writeRange(attributes.getResponse(), inputStream, 0, range);
+					}
+					catch (IOException e)
+					{
+						throw new WicketRuntimeException(e);
+					}
+					finally
+					{
+						close();
+					}
+				}
+			});
+			return;
+		}
+
+		final String boundary = "WICKET_BOUNDARY_" + Long.toHexString(System.nanoTime());
+		final List<byte[]> partHeaders = new ArrayList<byte[]>(ranges.size());
+		String partContentType = data.getContentType();
+		if (partContentType != null && partContentType.contains("text") &&
+			data.getTextEncoding() != null)
+		{
+			partContentType += "; charset=" + data.getTextEncoding();
+		}
+
+		long contentLength = 0;
+		for (ContentRange range : ranges)
+		{
+			StringBuilder header = new StringBuilder();
+			header.append("\r\n--").append(boundary).append("\r\n");
+			if (partContentType != null)
+			{
+				header.append("Content-Type: ").append(partContentType).append("\r\n");
+			}
+			header.append("Content-Range: ").append(range.toHeaderValue(length)).append(
+				"\r\n\r\n");
+			byte[] bytes = header.toString().getBytes(ISO_8859_1);
+			partHeaders.add(bytes);
+			contentLength += bytes.length + range.getLength();
+		}
+		final byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(ISO_8859_1);
+		contentLength += end.length;
+
+		data.setContentType("multipart/byteranges; boundary=" + boundary);
+		data.setContentLength(contentLength);
+		data.setWriteCallback(new WriteCallback()
+		{
+			@Override
+			public void writeData(Attributes attributes)
+			{
+				Response response = attributes.getResponse();
+				try
+				{
+					long position = 0;
+					for (int i = 0; i < ranges.size(); i++)
+					{
+						response.write(partHeaders.get(i));
+						position = writeRange(response, inputStream, position, ranges.get(i));
+					}
+					response.write(end);
+				}
+				catch (IOException e)
+				{
+					throw new WicketRuntimeException(e);
+				}
+				finally
+				{
+					close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Writes a range of the stream to the response. The data of file streams is read directly from
+	 * the requested position of the file channel, other streams are skipped up to the range.
+	 * 
+	 * @param response
+	 * @param inputStream
+	 * @param position
+	 *            the current position in the stream
+	 * @param range
+	 *            the range to write, must not start before the current position
+	 * @return the position in the stream after writing
+	 * @throws IOException
+	 */
+	private static long writeRange(final Response response, final InputStream inputStream,
+		final long position, final ContentRange range) throws IOException
+	{
+		if (inputStream instanceof FileInputStream)
+		{
+			FileChannel channel = ((FileInputStream)inputStream).getChannel();
+			if (response instanceof WebResponse)
+			{
+				((WebResponse)response).transferFrom(channel, range.getFirst(), range.getLength());
+			}
+			else
+			{
+				Streams.copy(channel, range.getFirst(), range.getLength(),
+					response.getOutputStream());
+			}
+			// positional reads don't change the position of the channel
+			return position;
+		}
+
+		long skip = range.getFirst() - position;
+		while (skip > 0)
+		{
+			long skipped = inputStream.skip(skip);
+			if (skipped <= 0)
+			{
+				if (inputStream.read() == -1)
+				{
+					throw new EOFException("The stream is shorter than expected");
+				}
+				skipped = 1;
+			}
+			skip -= skipped;
+		}
+
+		byte[] buffer = new byte[(int)Math.min(8192, range.getLength())];
+		long remaining = range.getLength();
+		while (remaining > 0)
+		{
+			int read = inputStream.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+			if (read == -1)
+			{
+				throw new EOFException("The stream is shorter than expected");
+			}
+			response.write(buffer, 0, read);
+			remaining -= read;
+		}
+		return range.getLast() + 1;
+	}
+
 	private void close()
 	{
 		try
@@ -90,6 +90,14 @@ public class FilenameWithVersionResourceCachingStrategy implements IResourceCach
 		return versionPrefix;
 	}
 
+	/**
+	 * @return resource version provider
+	 */
+	public final IResourceVersion getResourceVersion()
+	{
+		return resourceVersion;
+	}
+
 	@Override
 	public void decorateUrl(ResourceUrl url, IStaticCacheableResource resource)
 	{
@@ -178,5 +186,6 @@ public class FilenameWithVersionResourceCachingStrategy implements IResourceCach
 	{
 		response.setCacheDurationToMaximum();
 		response.setCacheScope(WebResponse.CacheScope.PUBLIC);
+		response.setETag(resourceVersion.getVersion(resource));
 	}
 }
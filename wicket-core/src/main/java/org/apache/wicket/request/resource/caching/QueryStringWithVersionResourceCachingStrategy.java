@@ -91,6 +91,14 @@ public class QueryStringWithVersionResourceCachingStrategy implements IResourceC
 		return versionParameter;
 	}
 
+	/**
+	 * @return resource version provider
+	 */
+	public final IResourceVersion getResourceVersion()
+	{
+		return resourceVersion;
+	}
+
 	@Override
 	public void decorateUrl(ResourceUrl url, final IStaticCacheableResource resource)
 	{
@@ -118,5 +126,6 @@ public class QueryStringWithVersionResourceCachingStrategy implements IResourceC
 	{
 		response.setCacheDurationToMaximum();
 		response.setCacheScope(WebResponse.CacheScope.PUBLIC);
+		response.setETag(resourceVersion.getVersion(resource));
 	}
 }
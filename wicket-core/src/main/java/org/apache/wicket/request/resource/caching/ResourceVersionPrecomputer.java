@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource.caching;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.IApplicationListener;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.application.PackageScanner;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.request.resource.ResourceReference.Key;
+import org.apache.wicket.request.resource.caching.version.CachingResourceVersion;
+import org.apache.wicket.request.resource.caching.version.IResourceVersion;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Packages;
+import org.apache.wicket.util.thread.DaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Computes the versions of package resources when the application starts up, so the first
+ * requests after a deployment don't have to calculate them.
+ * <p>
+ * The resources are taken from the application's
+ * {@link org.apache.wicket.request.resource.ResourceReferenceRegistry} and from the packages of
+ * the given scope classes (including their sub packages), which are scanned for files with one of
+ * the configured extensions (<code>js</code> and <code>css</code> by default). The versions are
+ * computed in parallel. If the resource caching strategy keeps its versions in a
+ * {@link CachingResourceVersion} they get pinned there, i.e. they are never evicted for the
+ * lifetime of the application.
+ * <p>
+ * The precomputation is only done for applications in deployment mode. Register an instance in
+ * {@link Application#init()}:
+ * 
+ * <pre>
+ * getApplicationListeners().add(new ResourceVersionPrecomputer(HomePage.class));
+ * </pre>
+ * 
+ * @see CachingResourceVersion#pin(IStaticCacheableResource)
+ */
+public class ResourceVersionPrecomputer implements IApplicationListener
+{
+	private static final Logger log = LoggerFactory.getLogger(ResourceVersionPrecomputer.class);
+
+	/** the scope classes whose packages are scanned for resources */
+	private final List<Class<?>> scopes;
+
+	/** extensions of the scanned files */
+	private final Set<String> extensions = new HashSet<String>();
+
+	/** number of threads computing the versions */
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param scopes
+	 *            the classes whose packages should be scanned for resources in addition to the
+	 *            registered resource references
+	 */
+	public ResourceVersionPrecomputer(final Class<?>... scopes)
+	{
+		Args.notNull(scopes, "scopes");
+
+		this.scopes = new ArrayList<Class<?>>(scopes.length);
+		for (Class<?> scope : scopes)
+		{
+			this.scopes.add(Args.notNull(scope, "scope"));
+		}
+		setExtensions("js", "css");
+	}
+
+	/**
+	 * Sets the extensions of the files to look for when scanning the packages of the scopes.
+	 * 
+	 * @param extensions
+	 *            file extensions without the leading dot
+	 * @return {@code this} for chaining
+	 */
+	public ResourceVersionPrecomputer setExtensions(final String... extensions)
+	{
+		Args.notNull(extensions, "extensions");
+
+		this.extensions.clear();
+		for (String extension : extensions)
+		{
+			this.extensions.add(Args.notEmpty(extension, "extension"));
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the number of threads computing the versions. Defaults to the number of available
+	 * processors.
+	 * 
+	 * @param threadCount
+	 * @return {@code this} for chaining
+	 */
+	public ResourceVersionPrecomputer setThreadCount(final int threadCount)
+	{
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException("threadCount must be greater than zero");
+		}
+		this.threadCount = threadCount;
+		return this;
+	}
+
+	@Override
+	public void onAfterInitialized(final Application application)
+	{
+		if (application.usesDeploymentConfig())
+		{
+			precompute(application);
+		}
+	}
+
+	@Override
+	public void onBeforeDestroyed(final Application application)
+	{
+	}
+
+	/**
+	 * Computes the versions of all the resources found for the application, regardless of its
+	 * configuration type.
+	 * 
+	 * @param application
+	 * @return the number of resources which got a version
+	 */
+	public int precompute(final Application application)
+	{
+		Args.notNull(application, "application");
+
+		final long start = System.currentTimeMillis();
+
+		final IResourceCachingStrategy strategy = application.getResourceSettings()
+			.getCachingStrategy();
+		final IResourceVersion resourceVersion = getResourceVersion(strategy);
+
+		final Collection<ResourceReference> references = findResourceReferences(application);
+
+		final List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(references.size());
+		for (final ResourceReference reference : references)
+		{
+			tasks.add(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call() throws Exception
+				{
+					ThreadContext.setApplication(application);
+					try
+					{
+						return precompute(reference, strategy, resourceVersion);
+					}
+					finally
+					{
+						ThreadContext.detach();
+					}
+				}
+			});
+		}
+
+		int count = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(
+			Math.min(threadCount, Math.max(1, tasks.size())),
+			new DaemonThreadFactory("Wicket-ResourceVersionPrecomputer"));
+		try
+		{
+			for (Future<Boolean> future : executor.invokeAll(tasks))
+			{
+				if (future.get())
+				{
+					count++;
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			log.warn("Interrupted while precomputing the resource versions");
+		}
+		catch (ExecutionException e)
+		{
+			throw new WicketRuntimeException("Error while precomputing the resource versions",
+				e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		log.info("Precomputed the versions of {} resources in {} ms", count,
+			System.currentTimeMillis() - start);
+		return count;
+	}
+
+	/**
+	 * Collects the registered resource references and creates references for the files found in
+	 * the packages of the scopes.
+	 * 
+	 * @param application
+	 * @return the resource references whose versions should be computed
+	 */
+	protected Collection<ResourceReference> findResourceReferences(final Application application)
+	{
+		final Map<Key, ResourceReference> references = new LinkedHashMap<Key, ResourceReference>();
+
+		for (ResourceReference reference : application.getResourceReferenceRegistry()
+			.getResourceReferences())
+		{
+			references.put(new Key(reference), reference);
+		}
+
+		for (Class<?> scope : scopes)
+		{
+			for (String name : scan(application, scope))
+			{
+				ResourceReference reference = new PackageResourceReference(scope, name);
+				Key key = new Key(reference);
+				if (references.containsKey(key) == false)
+				{
+					references.put(key, reference);
+				}
+			}
+		}
+		return references.values();
+	}
+
+	/**
+	 * Scans the package of the scope and its sub packages for files with one of the configured
+	 * extensions.
+	 * 
+	 * @param application
+	 * @param scope
+	 * @return the names of the files relative to the package of the scope
+	 */
+	protected Collection<String> scan(final Application application, final Class<?> scope)
+	{
+		return PackageScanner.scan(application.getApplicationSettings().getClassResolver(),
+			Packages.extractPackageName(scope), extensions);
+	}
+
+	/**
+	 * Computes the version of a single resource.
+	 * 
+	 * @param reference
+	 * @param strategy
+	 *            the caching strategy of the application
+	 * @param resourceVersion
+	 *            the version provider of the caching strategy, may be <code>null</code>
+	 * @return <code>true</code> if the resource got a version
+	 */
+	private boolean precompute(final ResourceReference reference,
+		final IResourceCachingStrategy strategy, final IResourceVersion resourceVersion)
+	{
+		final IResource resource;
+		try
+		{
+			resource = reference.getResource();
+		}
+		catch (RuntimeException e)
+		{
+			// e.g. blocked by the package resource guard
+			log.debug("Skipping " + reference, e);
+			return false;
+		}
+
+		if (resource instanceof IStaticCacheableResource == false)
+		{
+			return false;
+		}
+
+		IStaticCacheableResource cacheable = (IStaticCacheableResource)resource;
+		if (resourceVersion instanceof CachingResourceVersion)
+		{
+			return ((CachingResourceVersion)resourceVersion).pin(cacheable) != null;
+		}
+		else if (resourceVersion != null)
+		{
+			return resourceVersion.getVersion(cacheable) != null;
+		}
+
+		// let the strategy do whatever it caches
+		strategy.decorateUrl(new ResourceUrl(reference.getName(), new PageParameters()), cacheable);
+		return true;
+	}
+
+	private static IResourceVersion getResourceVersion(final IResourceCachingStrategy strategy)
+	{
+		if (strategy instanceof FilenameWithVersionResourceCachingStrategy)
+		{
+			return ((FilenameWithVersionResourceCachingStrategy)strategy).getResourceVersion();
+		}
+		else if (strategy instanceof QueryStringWithVersionResourceCachingStrategy)
+		{
+			return ((QueryStringWithVersionResourceCachingStrategy)strategy).getResourceVersion();
+		}
+		return null;
+	}
+}
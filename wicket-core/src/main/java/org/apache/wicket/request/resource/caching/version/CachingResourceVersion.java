@@ -19,10 +19,12 @@ package org.apache.wicket.request.resource.caching.version;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
 import org.apache.wicket.util.collections.MostRecentlyUsedMap;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Generics;
 
 /**
  * Caches the results of a delegating {@link IResourceVersion} instance
@@ -56,6 +58,11 @@ public class CachingResourceVersion implements IResourceVersion
 	 */
 	private final Map<Serializable, String> cache;
 
+	/**
+	 * pinned resource versions which are never evicted
+	 */
+	private final ConcurrentMap<Serializable, String> pinned = Generics.newConcurrentHashMap();
+
 	/**
 	 * create version cache
 	 * <p/>
@@ -105,8 +112,12 @@ public class CachingResourceVersion implements IResourceVersion
 			return null;
 		}
 		
-		// lookup version in cache
-		String version = cache.get(key);
+		// lookup version in pinned versions and cache
+		String version = pinned.get(key);
+		if (version == null)
+		{
+			version = cache.get(key);
+		}
 
 		// if not found
 		if (version == null)
@@ -148,7 +159,56 @@ public class CachingResourceVersion implements IResourceVersion
 		// if key is available purge cache entry
 		if(key != null)
 		{
+			pinned.remove(key);
 			cache.remove(key);
 		}
 	}
+
+	/**
+	 * compute the version of a cacheable resource and keep it for the 
+	 * lifetime of this instance. Unlike the other cache entries pinned 
+	 * versions are not evicted when the maximum number of entries is 
+	 * exceeded. They can be removed with {@link #invalidate(IStaticCacheableResource)}.
+	 * 
+	 * @param resource
+	 *           cacheable resource
+	 * @return version string or <code>null</code> if the resource has no version
+	 */
+	public String pin(IStaticCacheableResource resource)
+	{
+		// get cache key for resource reference
+		final Serializable key = Args.notNull(resource, "resource").getCacheKey();
+
+		// if key can not be determined do not cache
+		if (key == null)
+		{
+			return null;
+		}
+
+		// reuse a version computed before
+		String version = cache.remove(key);
+
+		if (version == null)
+		{
+			version = delegate.getVersion(resource);
+
+			// replace null values with holder
+			if (version == null)
+			{
+				version = NULL_VALUE;
+			}
+		}
+		pinned.put(key, version);
+
+		//noinspection StringEquality
+		return version == NULL_VALUE ? null : version;
+	}
+
+	/**
+	 * @return number of pinned resource versions
+	 */
+	public int getPinnedCount()
+	{
+		return pinned.size();
+	}
 }
@@ -26,11 +26,13 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.wicket.settings.IResourceSettings;
+import org.apache.wicket.util.IProvider;
 import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.listener.IChangeListener;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.resource.locator.IResourceStreamLocator;
+import org.apache.wicket.util.thread.SingleFlight;
 import org.apache.wicket.util.value.ValueMap;
 import org.apache.wicket.util.watch.IModificationWatcher;
 import org.apache.wicket.util.watch.ModificationWatcher;
@@ -43,6 +45,9 @@ import org.slf4j.LoggerFactory;
  * {@link IResourceStreamLocator} as defined by {@link IResourceSettings#getResourceStreamLocator()}
  * to load the {@link Properties} objects. Depending on the settings, it will assign
  * {@link ModificationWatcher}s to the loaded resources to support reloading.
+ * <p>
+ * Concurrent requests for properties not yet cached are coalesced: only one thread loads the
+ * properties of a path, the others wait for it.
  * 
  * @see org.apache.wicket.settings.IResourceSettings#getPropertiesFactory()
  * 
@@ -59,6 +64,9 @@ public class PropertiesFactory implements IPropertiesFactory
 	/** Cache for all property files loaded */
 	private final Map<String, Properties> propertiesCache = newPropertiesCache();
 
+	/** Coalesces the concurrent loads of the same path */
+	private final SingleFlight<String, Properties> loads = new SingleFlight<String, Properties>();
+
 	/** Provides the environment for properties factory */
 	private final IPropertiesFactoryContext context;
 
@@ -139,62 +147,109 @@ public class PropertiesFactory implements IPropertiesFactory
 		if (propertiesCache != null)
 		{
 			properties = propertiesCache.get(path);
+
+			if (properties == null)
+			{
+				// let a single thread load the properties, the others wait for it
+				properties = loads.load(path, new IProvider<Properties>()
+				{
+					@Override
+					public Properties get()
+					{
+						// another thread might have loaded them in the meantime
+						Properties cached = propertiesCache.get(path);
+						if (cached != null)
+						{
+							return cached;
+						}
+						return loadProperties(clazz, path);
+					}
+				});
+			}
+		}
+		else
+		{
+			properties = loadProperties(clazz, path);
 		}
 
-		if (properties == null)
+		if (properties == Properties.EMPTY_PROPERTIES)
 		{
-			Iterator<IPropertiesLoader> iter = propertiesLoader.iterator();
-			while ((properties == null) && iter.hasNext())
-			{
-				IPropertiesLoader loader = iter.next();
-				String fullPath = path + loader.getFileExtension();
+			// Translate empty properties placeholder to null prior to returning
+			properties = null;
+		}
 
-				// If not in the cache than try to load properties
-				IResourceStream resourceStream = context.getResourceStreamLocator()
-					.locate(clazz, fullPath);
-				if (resourceStream == null)
-				{
-					continue;
-				}
+		return properties;
+	}
 
-				// Watch file modifications
-				final IModificationWatcher watcher = context.getResourceWatcher(true);
-				if (watcher != null)
-				{
-					addToWatcher(path, resourceStream, watcher);
-				}
+	/**
+	 * Loads the properties with the first loader finding a properties file and caches them.
+	 * 
+	 * @param clazz
+	 * @param path
+	 * @return the properties, {@link Properties#EMPTY_PROPERTIES} if none were found
+	 */
+	private Properties loadProperties(final Class<?> clazz, final String path)
+	{
+		Properties properties = null;
+		Iterator<IPropertiesLoader> iter = propertiesLoader.iterator();
+		while ((properties == null) && iter.hasNext())
+		{
+			IPropertiesLoader loader = iter.next();
+			String fullPath = path + loader.getFileExtension();
 
-				ValueMap props = loadFromLoader(loader, resourceStream);
-				if (props != null)
-				{
-					properties = new Properties(path, props);
-				}
+			// If not in the cache than try to load properties
+			IResourceStream resourceStream = context.getResourceStreamLocator().locate(clazz,
+				fullPath);
+			if (resourceStream == null)
+			{
+				continue;
 			}
 
-			// Cache the lookup
-			if (propertiesCache != null)
+			// Watch file modifications
+			final IModificationWatcher watcher = context.getResourceWatcher(true);
+			if (watcher != null)
 			{
-				if (properties == null)
-				{
-					// Could not locate properties, store a placeholder
-					propertiesCache.put(path, Properties.EMPTY_PROPERTIES);
-				}
-				else
-				{
-					propertiesCache.put(path, properties);
-				}
+				addToWatcher(path, resourceStream, watcher);
+			}
+
+			ValueMap props = loadFromLoader(loader, resourceStream);
+			if (props != null)
+			{
+				properties = new Properties(path, props);
 			}
 		}
 
-		if (properties == Properties.EMPTY_PROPERTIES)
+		if (properties == null)
 		{
-			// Translate empty properties placeholder to null prior to returning
-			properties = null;
+			// Could not locate properties, store a placeholder
+			properties = Properties.EMPTY_PROPERTIES;
 		}
 
+		// Cache the lookup
+		if (propertiesCache != null)
+		{
+			propertiesCache.put(path, properties);
+		}
 		return properties;
 	}
 
+	/**
+	 * @return the number of properties loads
+	 */
+	public final long getLoadCount()
+	{
+		return loads.getLoads();
+	}
+
+	/**
+	 * @return the number of requests which waited for properties loaded by another thread instead
+	 *         of loading them themselves
+	 */
+	public final long getCoalescedLoadCount()
+	{
+		return loads.getCoalescedLoads();
+	}
+
 	/**
 	 * 
 	 * @param loader
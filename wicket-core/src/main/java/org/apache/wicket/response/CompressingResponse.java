@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Response that compresses everything written to it with the given content encoding before
+ * passing it to the original response.
+ * <p>
+ * {@link #finish()} must be called after the last write to flush the remaining compressed data
+ * and to release the compressor. The original response is not closed.
+ * 
+ * @see org.apache.wicket.request.resource.AbstractResource.ResourceResponse#setCompressible(boolean)
+ */
+public class CompressingResponse extends Response
+{
+	/** the gzip content encoding */
+	public static final String GZIP = "gzip";
+
+	/** the deflate content encoding */
+	public static final String DEFLATE = "deflate";
+
+	private final Response original;
+
+	private final Charset charset;
+
+	private final DeflaterOutputStream stream;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param original
+	 *            the response the compressed data is written to
+	 * @param contentEncoding
+	 *            {@link #GZIP} or {@link #DEFLATE}
+	 * @param charset
+	 *            the charset used to encode the character sequences written to this response
+	 */
+	public CompressingResponse(final Response original, final String contentEncoding,
+		final Charset charset)
+	{
+		this.original = Args.notNull(original, "original");
+		this.charset = Args.notNull(charset, "charset");
+		stream = newCompressingStream(new FilterOutputStream(original.getOutputStream())
+		{
+			@Override
+			public void write(final byte[] b, final int off, final int len) throws IOException
+			{
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				// keep the original response open
+				flush();
+			}
+		}, contentEncoding);
+	}
+
+	@Override
+	public void write(final CharSequence sequence)
+	{
+		write(sequence.toString().getBytes(charset));
+	}
+
+	@Override
+	public void write(final byte[] array)
+	{
+		write(array, 0, array.length);
+	}
+
+	@Override
+	public void write(final byte[] array, final int offset, final int length)
+	{
+		try
+		{
+			stream.write(array, offset, length);
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException("Cannot write the compressed data", e);
+		}
+	}
+
+	/**
+	 * Writes the remaining compressed data to the original response.
+	 */
+	public void finish()
+	{
+		try
+		{
+			stream.close();
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException("Cannot write the compressed data", e);
+		}
+	}
+
+	@Override
+	public String encodeURL(final CharSequence url)
+	{
+		return original.encodeURL(url);
+	}
+
+	@Override
+	public Object getContainerResponse()
+	{
+		return original.getContainerResponse();
+	}
+
+	/**
+	 * Compresses the given data.
+	 * 
+	 * @param data
+	 *            the data to compress
+	 * @param contentEncoding
+	 *            {@link #GZIP} or {@link #DEFLATE}
+	 * @return the compressed data
+	 */
+	public static byte[] compress(final byte[] data, final String contentEncoding)
+	{
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+		try
+		{
+			DeflaterOutputStream stream = newCompressingStream(compressed, contentEncoding);
+			stream.write(data);
+			stream.close();
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException("Cannot compress the data", e);
+		}
+		return compressed.toByteArray();
+	}
+
+	private static DeflaterOutputStream newCompressingStream(final OutputStream out,
+		final String contentEncoding)
+	{
+		if (GZIP.equals(contentEncoding))
+		{
+			try
+			{
+				return new GZIPOutputStream(out, 8192);
+			}
+			catch (IOException e)
+			{
+				throw new WicketRuntimeException("Cannot write the gzip header", e);
+			}
+		}
+		else if (DEFLATE.equals(contentEncoding))
+		{
+			return new DeflaterOutputStream(out);
+		}
+		throw new IllegalArgumentException("Unsupported content encoding: " + contentEncoding);
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.compress;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ISerializer} decorator that compresses the serialized data with an {@link ICompressor}.
+ * <p>
+ * The compressed data is prefixed with a small header: two magic bytes, the id of the compressor
+ * and the original length. Data smaller than the threshold, or which doesn't get smaller by
+ * compression, is left as is. Data without the header is passed unchanged to the delegate on
+ * deserialization, so the delegate's output must not start with the magic bytes - this holds for
+ * {@link org.apache.wicket.serialize.java.JavaSerializer} whose output always starts with the
+ * serialization stream magic.
+ * <p>
+ * The built-in {@link LzfCompressor} and {@link DeflateCompressor} formats can always be
+ * decompressed, regardless of the configured compressor.
+ * 
+ * @see org.apache.wicket.settings.IStoreSettings#setCompressor(ICompressor)
+ */
+public class CompressingSerializer implements ISerializer
+{
+	private static final Logger log = LoggerFactory.getLogger(CompressingSerializer.class);
+
+	private static final byte MAGIC_1 = 'W';
+
+	private static final byte MAGIC_2 = 'Z';
+
+	private static final int HEADER_LENGTH = 7;
+
+	private final ISerializer delegate;
+
+	private final ICompressor compressor;
+
+	private final int threshold;
+
+	private final Map<Byte, ICompressor> decompressors = new HashMap<Byte, ICompressor>();
+
+	private final CompressionStatistics statistics = new CompressionStatistics();
+
+	/**
+	 * Construct.
+	 * 
+	 * @param delegate
+	 *            the serializer producing the data to compress
+	 * @param compressor
+	 *            the compressor
+	 * @param threshold
+	 *            the minimum size of the data to compress
+	 */
+	public CompressingSerializer(final ISerializer delegate, final ICompressor compressor,
+		final Bytes threshold)
+	{
+		this.delegate = Args.notNull(delegate, "delegate");
+		this.compressor = Args.notNull(compressor, "compressor");
+		this.threshold = (int)Args.notNull(threshold, "threshold").bytes();
+
+		register(new LzfCompressor());
+		register(new DeflateCompressor());
+		register(compressor);
+	}
+
+	private void register(final ICompressor decompressor)
+	{
+		decompressors.put(decompressor.getId(), decompressor);
+	}
+
+	@Override
+	public byte[] serialize(final Object object)
+	{
+		byte[] data = delegate.serialize(object);
+		if (data == null || data.length < threshold)
+		{
+			statistics.skipped();
+			return data;
+		}
+
+		long start = System.nanoTime();
+		byte[] compressed = compressor.compress(data);
+		if (compressed.length + HEADER_LENGTH >= data.length)
+		{
+			statistics.skipped();
+			return data;
+		}
+
+		byte[] result = new byte[compressed.length + HEADER_LENGTH];
+		result[0] = MAGIC_1;
+		result[1] = MAGIC_2;
+		result[2] = compressor.getId();
+		writeInt(result, 3, data.length);
+		System.arraycopy(compressed, 0, result, HEADER_LENGTH, compressed.length);
+
+		long duration = System.nanoTime() - start;
+		statistics.compressed(data.length, result.length, duration);
+		if (log.isDebugEnabled())
+		{
+			log.debug("Compressed {} from {} to {} bytes in {} ns", new Object[] {
+					object.getClass().getName(), data.length, result.length, duration });
+		}
+		return result;
+	}
+
+	@Override
+	public Object deserialize(final byte[] data)
+	{
+		if (data == null || data.length < HEADER_LENGTH || data[0] != MAGIC_1 ||
+			data[1] != MAGIC_2)
+		{
+			return delegate.deserialize(data);
+		}
+
+		ICompressor decompressor = decompressors.get(data[2]);
+		if (decompressor == null)
+		{
+			throw new WicketRuntimeException("Unknown compression format: " + data[2]);
+		}
+
+		long start = System.nanoTime();
+		byte[] decompressed = decompressor.decompress(data, HEADER_LENGTH, data.length -
+			HEADER_LENGTH, readInt(data, 3));
+		statistics.decompressed(System.nanoTime() - start);
+
+		return delegate.deserialize(decompressed);
+	}
+
+	/**
+	 * @return the serializer producing the data to compress
+	 */
+	public ISerializer getDelegate()
+	{
+		return delegate;
+	}
+
+	/**
+	 * @return the compressor
+	 */
+	public ICompressor getCompressor()
+	{
+		return compressor;
+	}
+
+	/**
+	 * @return the statistics about the compression
+	 */
+	public CompressionStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	private static void writeInt(final byte[] data, final int offset, final int value)
+	{
+		data[offset] = (byte)(value >>> 24);
+		data[offset + 1] = (byte)(value >>> 16);
+		data[offset + 2] = (byte)(value >>> 8);
+		data[offset + 3] = (byte)value;
+	}
+
+	private static int readInt(final byte[] data, final int offset)
+	{
+		return ((data[offset] & 0xff) << 24) | ((data[offset + 1] & 0xff) << 16) |
+			((data[offset + 2] & 0xff) << 8) | (data[offset + 3] & 0xff);
+	}
+}
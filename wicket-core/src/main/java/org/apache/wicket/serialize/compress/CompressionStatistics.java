@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.compress;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics collected by {@link CompressingSerializer}.
+ */
+public class CompressionStatistics
+{
+	private final AtomicLong compressedCount = new AtomicLong();
+
+	private final AtomicLong skippedCount = new AtomicLong();
+
+	private final AtomicLong originalBytes = new AtomicLong();
+
+	private final AtomicLong compressedBytes = new AtomicLong();
+
+	private final AtomicLong compressionNanos = new AtomicLong();
+
+	private final AtomicLong decompressedCount = new AtomicLong();
+
+	private final AtomicLong decompressionNanos = new AtomicLong();
+
+	void compressed(final int originalLength, final int compressedLength, final long nanos)
+	{
+		compressedCount.incrementAndGet();
+		originalBytes.addAndGet(originalLength);
+		compressedBytes.addAndGet(compressedLength);
+		compressionNanos.addAndGet(nanos);
+	}
+
+	void skipped()
+	{
+		skippedCount.incrementAndGet();
+	}
+
+	void decompressed(final long nanos)
+	{
+		decompressedCount.incrementAndGet();
+		decompressionNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * @return the number of compressed objects
+	 */
+	public long getCompressedCount()
+	{
+		return compressedCount.get();
+	}
+
+	/**
+	 * @return the number of objects stored uncompressed, because they were smaller than the
+	 *         threshold or didn't get smaller by compression
+	 */
+	public long getSkippedCount()
+	{
+		return skippedCount.get();
+	}
+
+	/**
+	 * @return the size of all the compressed objects before compression
+	 */
+	public long getOriginalBytes()
+	{
+		return originalBytes.get();
+	}
+
+	/**
+	 * @return the size of all the compressed objects after compression
+	 */
+	public long getCompressedBytes()
+	{
+		return compressedBytes.get();
+	}
+
+	/**
+	 * @return the compressed size divided by the original size of all the compressed objects, or
+	 *         {@code 1} if nothing has been compressed yet
+	 */
+	public double getCompressionRatio()
+	{
+		long original = originalBytes.get();
+		return original == 0 ? 1d : (double)compressedBytes.get() / original;
+	}
+
+	/**
+	 * @return the average time in nanoseconds spent compressing an object
+	 */
+	public long getAverageCompressionNanos()
+	{
+		long count = compressedCount.get();
+		return count == 0 ? 0 : compressionNanos.get() / count;
+	}
+
+	/**
+	 * @return the number of decompressed objects
+	 */
+	public long getDecompressedCount()
+	{
+		return decompressedCount.get();
+	}
+
+	/**
+	 * @return the average time in nanoseconds spent decompressing an object
+	 */
+	public long getAverageDecompressionNanos()
+	{
+		long count = decompressedCount.get();
+		return count == 0 ? 0 : decompressionNanos.get() / count;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "CompressionStatistics [compressed=" + getCompressedCount() + ", skipped=" +
+			getSkippedCount() + ", ratio=" + getCompressionRatio() + ", averageCompressionNanos=" +
+			getAverageCompressionNanos() + ", averageDecompressionNanos=" +
+			getAverageDecompressionNanos() + "]";
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.compress;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.wicket.WicketRuntimeException;
+
+/**
+ * A compressor using {@link Deflater} and {@link Inflater}. Compresses better than
+ * {@link LzfCompressor} but is considerably slower.
+ */
+public class DeflateCompressor implements ICompressor
+{
+	/** the id of the format */
+	public static final byte ID = 2;
+
+	private final int level;
+
+	/**
+	 * Construct with {@link Deflater#BEST_SPEED}.
+	 */
+	public DeflateCompressor()
+	{
+		this(Deflater.BEST_SPEED);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param level
+	 *            the compression level (0-9)
+	 * @see Deflater#setLevel(int)
+	 */
+	public DeflateCompressor(final int level)
+	{
+		if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+		{
+			throw new IllegalArgumentException("The compression level must be between " +
+				Deflater.NO_COMPRESSION + " and " + Deflater.BEST_COMPRESSION);
+		}
+		this.level = level;
+	}
+
+	@Override
+	public byte getId()
+	{
+		return ID;
+	}
+
+	@Override
+	public byte[] compress(final byte[] data)
+	{
+		Deflater deflater = new Deflater(level, true);
+		try
+		{
+			deflater.setInput(data);
+			deflater.finish();
+
+			byte[] buffer = new byte[Math.max(64, data.length / 2)];
+			int length = 0;
+			while (!deflater.finished())
+			{
+				if (length == buffer.length)
+				{
+					byte[] larger = new byte[buffer.length * 2];
+					System.arraycopy(buffer, 0, larger, 0, length);
+					buffer = larger;
+				}
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+
+			byte[] result = new byte[length];
+			System.arraycopy(buffer, 0, result, 0, length);
+			return result;
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	@Override
+	public byte[] decompress(final byte[] data, final int offset, final int length,
+		final int originalLength)
+	{
+		Inflater inflater = new Inflater(true);
+		try
+		{
+			// the "nowrap" mode needs an extra dummy byte at the end of the input
+			byte[] input = new byte[length + 1];
+			System.arraycopy(data, offset, input, 0, length);
+			inflater.setInput(input);
+
+			byte[] result = new byte[originalLength];
+			int read = 0;
+			while (read < originalLength && !inflater.finished())
+			{
+				int n = inflater.inflate(result, read, originalLength - read);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+				{
+					break;
+				}
+				read += n;
+			}
+			if (read != originalLength)
+			{
+				throw new WicketRuntimeException("Corrupted deflated data: expected " +
+					originalLength + " bytes but got " + read);
+			}
+			return result;
+		}
+		catch (DataFormatException e)
+		{
+			throw new WicketRuntimeException("Corrupted deflated data", e);
+		}
+		finally
+		{
+			inflater.end();
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "DeflateCompressor [level=" + level + "]";
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.compress;
+
+/**
+ * Compresses and decompresses byte arrays, e.g. serialized pages.
+ * 
+ * @see CompressingSerializer
+ */
+public interface ICompressor
+{
+	/**
+	 * Returns the id of the compression format. It is written together with the compressed data,
+	 * so data can still be decompressed after the configured compressor has been changed. The ids
+	 * {@code 1} to {@code 15} are reserved for the compressors shipped with Wicket.
+	 * 
+	 * @return the id of the format
+	 */
+	byte getId();
+
+	/**
+	 * Compresses the data
+	 * 
+	 * @param data
+	 *            the data to compress
+	 * @return the compressed data
+	 */
+	byte[] compress(byte[] data);
+
+	/**
+	 * Decompresses the data
+	 * 
+	 * @param data
+	 *            the array containing the compressed data
+	 * @param offset
+	 *            the position of the compressed data in the array
+	 * @param length
+	 *            the length of the compressed data
+	 * @param originalLength
+	 *            the length of the data before compression
+	 * @return the decompressed data
+	 */
+	byte[] decompress(byte[] data, int offset, int length, int originalLength);
+}
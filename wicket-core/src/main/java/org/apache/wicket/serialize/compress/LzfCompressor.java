@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.compress;
+
+import java.util.Arrays;
+
+import org.apache.wicket.WicketRuntimeException;
+
+/**
+ * A fast compressor using the LZF format. It trades compression ratio for speed, which usually
+ * makes it the better choice for compressing pages on every request.
+ * <p>
+ * The compressed data is a sequence of chunks, each starting with a control byte:
+ * <ul>
+ * <li>{@code 000LLLLL}: a run of {@code L + 1} literal bytes follows</li>
+ * <li>{@code LLLOOOOO OOOOOOOO}: a back reference of {@code L + 2} bytes at the distance
+ * {@code O + 1}</li>
+ * <li>{@code 111OOOOO LLLLLLLL OOOOOOOO}: a back reference of {@code L + 9} bytes at the distance
+ * {@code O + 1}</li>
+ * </ul>
+ */
+public class LzfCompressor implements ICompressor
+{
+	/** the id of the format */
+	public static final byte ID = 1;
+
+	private static final int HASH_LOG = 14;
+
+	private static final int MAX_LITERAL = 1 << 5;
+
+	private static final int MAX_OFFSET = 1 << 13;
+
+	private static final int MAX_REFERENCE = (1 << 8) + (1 << 3);
+
+	@Override
+	public byte getId()
+	{
+		return ID;
+	}
+
+	@Override
+	public byte[] compress(final byte[] data)
+	{
+		final int length = data.length;
+		final int[] hashTable = new int[1 << HASH_LOG];
+		byte[] out = new byte[length + length / MAX_LITERAL + 16];
+
+		int op = 0;
+		int ip = 0;
+		int literalStart = 0;
+		while (ip < length - 2)
+		{
+			int hash = hash(data, ip);
+			int ref = hashTable[hash] - 1;
+			hashTable[hash] = ip + 1;
+
+			int offset = ip - ref - 1;
+			if (ref >= 0 && offset < MAX_OFFSET && data[ref] == data[ip] &&
+				data[ref + 1] == data[ip + 1] && data[ref + 2] == data[ip + 2])
+			{
+				int maxLength = Math.min(MAX_REFERENCE, length - ip);
+				int matchLength = 3;
+				while (matchLength < maxLength && data[ref + matchLength] == data[ip + matchLength])
+				{
+					matchLength++;
+				}
+
+				op = writeLiterals(data, literalStart, ip, out, op);
+
+				int len = matchLength - 2;
+				if (len < 7)
+				{
+					out[op++] = (byte)((offset >> 8) + (len << 5));
+				}
+				else
+				{
+					out[op++] = (byte)((offset >> 8) + (7 << 5));
+					out[op++] = (byte)(len - 7);
+				}
+				out[op++] = (byte)offset;
+
+				ip += matchLength;
+				literalStart = ip;
+			}
+			else
+			{
+				ip++;
+			}
+		}
+		op = writeLiterals(data, literalStart, length, out, op);
+
+		return Arrays.copyOf(out, op);
+	}
+
+	@Override
+	public byte[] decompress(final byte[] data, final int offset, final int length,
+		final int originalLength)
+	{
+		final byte[] out = new byte[originalLength];
+		final int end = offset + length;
+		int ip = offset;
+		int op = 0;
+		try
+		{
+			while (ip < end)
+			{
+				int ctrl = data[ip++] & 0xff;
+				if (ctrl < MAX_LITERAL)
+				{
+					int count = ctrl + 1;
+					System.arraycopy(data, ip, out, op, count);
+					ip += count;
+					op += count;
+				}
+				else
+				{
+					int len = ctrl >> 5;
+					if (len == 7)
+					{
+						len += data[ip++] & 0xff;
+					}
+					len += 2;
+					int ref = op - ((ctrl & 0x1f) << 8) - (data[ip++] & 0xff) - 1;
+					if (ref < 0)
+					{
+						throw new WicketRuntimeException("Corrupted LZF data: invalid back reference");
+					}
+					// byte by byte because the reference may overlap with the output
+					for (int i = 0; i < len; i++)
+					{
+						out[op++] = out[ref++];
+					}
+				}
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			throw new WicketRuntimeException("Corrupted LZF data", e);
+		}
+
+		if (op != originalLength)
+		{
+			throw new WicketRuntimeException("Corrupted LZF data: expected " + originalLength +
+				" bytes but got " + op);
+		}
+		return out;
+	}
+
+	private static int hash(final byte[] data, final int index)
+	{
+		int value = ((data[index] & 0xff) << 16) | ((data[index + 1] & 0xff) << 8) |
+			(data[index + 2] & 0xff);
+		return (value * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+	private static int writeLiterals(final byte[] data, int from, final int to, final byte[] out,
+		int op)
+	{
+		while (from < to)
+		{
+			int count = Math.min(MAX_LITERAL, to - from);
+			out[op++] = (byte)(count - 1);
+			System.arraycopy(data, from, out, op, count);
+			op += count;
+			from += count;
+		}
+		return op;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "LzfCompressor";
+	}
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.wicket.util.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only dictionary of class descriptors used by {@link DictionaryJavaSerializer}.
+ * <p>
+ * Each distinct class descriptor gets a small integer id when it is serialized for the first time.
+ * The dictionary keeps the descriptors as they were written, so data written against an older
+ * version of a class is read the same way as with full descriptors in the stream. When a file is
+ * given every new descriptor is appended to it immediately, so the ids stay valid for the
+ * serialized data which survives a restart of the application.
+ */
+public class ClassDescriptorDictionary
+{
+	private static final Logger log = LoggerFactory.getLogger(ClassDescriptorDictionary.class);
+
+	/** the file the descriptors are persisted to, or {@code null} */
+	private final File file;
+
+	/** id -> descriptor as read from the stream */
+	private final List<ObjectStreamClass> descriptors = new CopyOnWriteArrayList<ObjectStreamClass>();
+
+	/** serialized descriptor -> id */
+	private final ConcurrentMap<String, Integer> serializedToId = new ConcurrentHashMap<String, Integer>();
+
+	/** local descriptor -> id. ObjectStreamClass doesn't override equals() so this is by identity */
+	private final ConcurrentMap<ObjectStreamClass, Integer> localToId = new ConcurrentHashMap<ObjectStreamClass, Integer>();
+
+	/** whether the registration of new descriptors failed, e.g. because the file is not writable */
+	private volatile boolean failed;
+
+	/**
+	 * Construct a dictionary which lives in memory only.
+	 */
+	public ClassDescriptorDictionary()
+	{
+		this(null);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param file
+	 *            the file to persist the descriptors to. The already persisted descriptors are
+	 *            loaded from it
+	 */
+	public ClassDescriptorDictionary(final File file)
+	{
+		this.file = file;
+		if (file != null)
+		{
+			load();
+		}
+	}
+
+	/**
+	 * Returns the id of the descriptor, registering it if it is not known yet.
+	 * 
+	 * @param desc
+	 *            the local class descriptor
+	 * @return the id or {@code -1} if the descriptor couldn't be registered
+	 */
+	public int getId(final ObjectStreamClass desc)
+	{
+		Integer id = localToId.get(desc);
+		if (id == null)
+		{
+			id = register(desc);
+		}
+		return id;
+	}
+
+	/**
+	 * @param id
+	 * @return the descriptor with the given id or {@code null} if there is none
+	 */
+	public ObjectStreamClass getDescriptor(final int id)
+	{
+		return id >= 0 && id < descriptors.size() ? descriptors.get(id) : null;
+	}
+
+	/**
+	 * @return the number of registered descriptors
+	 */
+	public int size()
+	{
+		return descriptors.size();
+	}
+
+	private synchronized int register(final ObjectStreamClass desc)
+	{
+		Integer id = localToId.get(desc);
+		if (id != null)
+		{
+			return id;
+		}
+		if (failed)
+		{
+			return -1;
+		}
+
+		try
+		{
+			byte[] serialized = serialize(desc);
+			String key = toKey(serialized);
+			id = serializedToId.get(key);
+			if (id == null)
+			{
+				ObjectStreamClass streamDesc = deserialize(serialized);
+				if (file != null)
+				{
+					append(serialized);
+				}
+				id = add(key, streamDesc);
+				log.debug("Registered class descriptor {} of {} with id {}", new Object[] {
+						desc.getName(), desc.getSerialVersionUID(), id });
+			}
+			localToId.put(desc, id);
+			return id;
+		}
+		catch (Exception e)
+		{
+			failed = true;
+			log.error("Couldn't register class descriptor of " + desc.getName() +
+				". Full class descriptors will be written from now on.", e);
+			return -1;
+		}
+	}
+
+	private int add(final String key, final ObjectStreamClass streamDesc)
+	{
+		descriptors.add(streamDesc);
+		int id = descriptors.size() - 1;
+		serializedToId.put(key, id);
+		return id;
+	}
+
+	private void append(final byte[] serialized) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file, true));
+		try
+		{
+			out.writeInt(serialized.length);
+			out.write(serialized);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private void load()
+	{
+		if (file.exists() == false)
+		{
+			File folder = file.getParentFile();
+			if (folder != null && folder.exists() == false && folder.mkdirs() == false)
+			{
+				log.warn("Couldn't create the folder of the class descriptor dictionary {}", file);
+			}
+			return;
+		}
+
+		long validLength = 0;
+		DataInputStream in = null;
+		try
+		{
+			in = new DataInputStream(new FileInputStream(file));
+			while (true)
+			{
+				int length = in.readInt();
+				byte[] serialized = new byte[length];
+				in.readFully(serialized);
+				add(toKey(serialized), deserialize(serialized));
+				validLength += 4 + length;
+			}
+		}
+		catch (EOFException e)
+		{
+			// end of the file, possibly with a partially written descriptor
+		}
+		catch (Exception e)
+		{
+			log.error("Couldn't load all the class descriptors from " + file, e);
+		}
+		finally
+		{
+			IOUtils.closeQuietly(in);
+		}
+
+		if (file.length() > validLength)
+		{
+			truncate(validLength);
+		}
+		log.debug("Loaded {} class descriptors from {}", descriptors.size(), file);
+	}
+
+	private void truncate(final long length)
+	{
+		RandomAccessFile raf = null;
+		try
+		{
+			raf = new RandomAccessFile(file, "rw");
+			raf.setLength(length);
+		}
+		catch (IOException e)
+		{
+			failed = true;
+			log.error("Couldn't truncate the class descriptor dictionary " + file, e);
+		}
+		finally
+		{
+			IOUtils.closeQuietly(raf);
+		}
+	}
+
+	private static String toKey(final byte[] serialized)
+	{
+		char[] chars = new char[serialized.length];
+		for (int i = 0; i < serialized.length; i++)
+		{
+			chars[i] = (char)(serialized[i] & 0xff);
+		}
+		return new String(chars);
+	}
+
+	private static byte[] serialize(final ObjectStreamClass desc) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DescriptorOutputStream out = new DescriptorOutputStream(bytes);
+		out.writeDescriptor(desc);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static ObjectStreamClass deserialize(final byte[] serialized) throws IOException,
+		ClassNotFoundException
+	{
+		DescriptorInputStream in = new DescriptorInputStream(new ByteArrayInputStream(serialized));
+		try
+		{
+			return in.readDescriptor();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes a single class descriptor in the format of the Java serialization stream
+	 */
+	private static class DescriptorOutputStream extends ObjectOutputStream
+	{
+		private DescriptorOutputStream(final OutputStream out) throws IOException
+		{
+			super(out);
+		}
+
+		private void writeDescriptor(final ObjectStreamClass desc) throws IOException
+		{
+			writeClassDescriptor(desc);
+		}
+	}
+
+	/**
+	 * Reads a class descriptor written by {@link DescriptorOutputStream}. The class itself is not
+	 * resolved.
+	 */
+	private static class DescriptorInputStream extends ObjectInputStream
+	{
+		private DescriptorInputStream(final InputStream in) throws IOException
+		{
+			super(in);
+		}
+
+		private ObjectStreamClass readDescriptor() throws IOException, ClassNotFoundException
+		{
+			return readClassDescriptor();
+		}
+	}
+}
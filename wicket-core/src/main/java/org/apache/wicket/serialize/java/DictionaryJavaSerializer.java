@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A {@link JavaSerializer} which writes the class descriptors as small ids of a
+ * {@link ClassDescriptorDictionary} instead of the full descriptors with class names and field
+ * names and types. This makes the serialized pages considerably smaller, especially the small ones
+ * where the descriptors are a major part of the data.
+ * <p>
+ * Descriptors which cannot be registered in the dictionary are written in full.
+ * <p>
+ * The dictionary should be persisted together with the serialized pages, e.g. in the folder of
+ * the {@link org.apache.wicket.pageStore.DiskDataStore}:
+ * 
+ * <pre>
+ * File folder = new File(getStoreSettings().getFileStoreFolder(), getName() + &quot;-filestore&quot;);
+ * getFrameworkSettings().setSerializer(
+ * 	new DictionaryJavaSerializer(getApplicationKey(), new File(folder, &quot;ClassDictionary&quot;)));
+ * </pre>
+ * 
+ * The ids are only meaningful to the dictionary they were created with, so the serialized data
+ * cannot be read by other nodes of a cluster which replicates the sessions with their pages.
+ */
+public class DictionaryJavaSerializer extends JavaSerializer
+{
+	private final ClassDescriptorDictionary dictionary;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param applicationKey
+	 * @param dictionaryFile
+	 *            the file the class descriptors are persisted to
+	 */
+	public DictionaryJavaSerializer(final String applicationKey, final File dictionaryFile)
+	{
+		this(applicationKey, new ClassDescriptorDictionary(Args.notNull(dictionaryFile,
+			"dictionaryFile")));
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param applicationKey
+	 * @param dictionary
+	 *            the dictionary of the class descriptors
+	 */
+	public DictionaryJavaSerializer(final String applicationKey,
+		final ClassDescriptorDictionary dictionary)
+	{
+		super(applicationKey);
+		this.dictionary = Args.notNull(dictionary, "dictionary");
+	}
+
+	/**
+	 * @return the dictionary of the class descriptors
+	 */
+	public ClassDescriptorDictionary getDictionary()
+	{
+		return dictionary;
+	}
+
+	@Override
+	protected ObjectOutputStream newDelegateObjectOutputStream(final OutputStream out)
+		throws IOException
+	{
+		return new DictionaryObjectOutputStream(out, dictionary);
+	}
+
+	@Override
+	protected ObjectInputStream newObjectInputStream(final InputStream in) throws IOException
+	{
+		return new DictionaryObjectInputStream(in, dictionary);
+	}
+
+	/**
+	 * Writes the id of the class descriptor incremented by one, or zero followed by the full
+	 * descriptor.
+	 */
+	private static class DictionaryObjectOutputStream extends ObjectOutputStream
+	{
+		private final ClassDescriptorDictionary dictionary;
+
+		private DictionaryObjectOutputStream(final OutputStream out,
+			final ClassDescriptorDictionary dictionary) throws IOException
+		{
+			super(out);
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		protected void writeClassDescriptor(final ObjectStreamClass desc) throws IOException
+		{
+			int id = dictionary.getId(desc);
+			writeVarInt(id + 1);
+			if (id < 0)
+			{
+				super.writeClassDescriptor(desc);
+			}
+		}
+
+		private void writeVarInt(int value) throws IOException
+		{
+			while ((value & ~0x7f) != 0)
+			{
+				writeByte((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+	}
+
+	/**
+	 * Reads the class descriptors written by {@link DictionaryObjectOutputStream}
+	 */
+	private static class DictionaryObjectInputStream extends ClassResolverObjectInputStream
+	{
+		private final ClassDescriptorDictionary dictionary;
+
+		private DictionaryObjectInputStream(final InputStream in,
+			final ClassDescriptorDictionary dictionary) throws IOException
+		{
+			super(in);
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException,
+			ClassNotFoundException
+		{
+			int id = readVarInt() - 1;
+			if (id < 0)
+			{
+				return super.readClassDescriptor();
+			}
+
+			ObjectStreamClass desc = dictionary.getDescriptor(id);
+			if (desc == null)
+			{
+				throw new InvalidClassException("Unknown class descriptor id: " + id);
+			}
+			return desc;
+		}
+
+		private int readVarInt() throws IOException
+		{
+			int value = 0;
+			int shift = 0;
+			int b;
+			do
+			{
+				b = readUnsignedByte();
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return value;
+		}
+	}
+}
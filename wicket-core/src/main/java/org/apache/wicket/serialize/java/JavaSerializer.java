@@ -17,7 +17,6 @@
 package org.apache.wicket.serialize.java;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.NotSerializableException;
@@ -25,6 +24,8 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.ThreadContext;
@@ -32,8 +33,11 @@ import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.application.IClassResolver;
 import org.apache.wicket.serialize.ISerializer;
 import org.apache.wicket.settings.IApplicationSettings;
+import org.apache.wicket.util.io.ByteArrayOutputStream;
 import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.io.SerializableChecker;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,17 +47,35 @@ import org.slf4j.LoggerFactory;
  * 
  * Requires the application key to enable serialization and deserialisation outside thread in which
  * application thread local is set
+ * <p>
+ * The buffers the objects are serialized into are pooled and reused, so serializing big pages
+ * doesn't produce a new set of growing byte arrays every time. Buffers which grew bigger than the
+ * configured maximum size are not pooled.
  * 
  * @see IObjectStreamFactory
  */
 public class JavaSerializer implements ISerializer
 {
 	private static final Logger log = LoggerFactory.getLogger(JavaSerializer.class);
+
+	/** the default number of pooled buffers */
+	public static final int DEFAULT_BUFFER_POOL_SIZE = 16;
+
+	/** the default maximum size of a pooled buffer */
+	public static final Bytes DEFAULT_MAX_POOLED_BUFFER_SIZE = Bytes.kilobytes(512);
+
+	private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
 	/**
 	 * The key of the application which can be used later to find the proper {@link IClassResolver}
 	 */
 	private final String applicationKey;
 
+	/** the reusable buffers, {@code null} if pooling is disabled */
+	private final BlockingQueue<ByteArrayOutputStream> bufferPool;
+
+	private final long maxPooledBufferSize;
+
 	/**
 	 * Construct.
 	 * 
@@ -61,7 +83,31 @@ public class JavaSerializer implements ISerializer
 	 */
 	public JavaSerializer(final String applicationKey)
 	{
+		this(applicationKey, DEFAULT_BUFFER_POOL_SIZE, DEFAULT_MAX_POOLED_BUFFER_SIZE);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param applicationKey
+	 * @param bufferPoolSize
+	 *            the maximum number of pooled buffers, usually the number of concurrently
+	 *            serializing threads. {@code 0} disables the pooling
+	 * @param maxPooledBufferSize
+	 *            the maximum size of a buffer to be pooled
+	 */
+	public JavaSerializer(final String applicationKey, final int bufferPoolSize,
+		final Bytes maxPooledBufferSize)
+	{
+		if (bufferPoolSize < 0)
+		{
+			throw new IllegalArgumentException("The buffer pool size cannot be negative.");
+		}
 		this.applicationKey = applicationKey;
+		bufferPool = bufferPoolSize > 0 ? new ArrayBlockingQueue<ByteArrayOutputStream>(
+			bufferPoolSize) : null;
+		this.maxPooledBufferSize = Args.notNull(maxPooledBufferSize, "maxPooledBufferSize")
+			.bytes();
 	}
 
 	@Override
@@ -69,7 +115,7 @@ public class JavaSerializer implements ISerializer
 	{
 		try
 		{
-			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final ByteArrayOutputStream out = obtainBuffer();
 			ObjectOutputStream oos = null;
 			try
 			{
@@ -88,7 +134,14 @@ public class JavaSerializer implements ISerializer
 					out.close();
 				}
 			}
-			return out.toByteArray();
+			try
+			{
+				return out.toByteArray();
+			}
+			finally
+			{
+				releaseBuffer(out);
+			}
 		}
 		catch (Exception e)
 		{
@@ -98,6 +151,34 @@ public class JavaSerializer implements ISerializer
 		return null;
 	}
 
+	/**
+	 * @return a pooled buffer or a new one if there is none available
+	 */
+	private ByteArrayOutputStream obtainBuffer()
+	{
+		ByteArrayOutputStream buffer = bufferPool != null ? bufferPool.poll() : null;
+		if (buffer == null)
+		{
+			buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Gives back a buffer obtained with {@link #obtainBuffer()}. It is pooled for reuse unless it
+	 * grew too big or the pool is full.
+	 * 
+	 * @param buffer
+	 */
+	private void releaseBuffer(final ByteArrayOutputStream buffer)
+	{
+		if (bufferPool != null && buffer.size() <= maxPooledBufferSize)
+		{
+			buffer.reset();
+			bufferPool.offer(buffer);
+		}
+	}
+
 	@Override
 	public Object deserialize(final byte[] data)
 	{
@@ -164,6 +245,8 @@ public class JavaSerializer implements ISerializer
 
 	/**
 	 * Gets a new instance of an {@link ObjectOutputStream} with the provided {@link OutputStream}.
+	 * The stream reports non serializable objects with the help of {@link SerializableChecker}
+	 * when it is available, otherwise it is a plain {@link ObjectOutputStream}.
 	 * 
 	 * @param out
 	 *            The output stream that should be used for the writing
@@ -173,14 +256,42 @@ public class JavaSerializer implements ISerializer
 	 */
 	protected ObjectOutputStream newObjectOutputStream(OutputStream out) throws IOException
 	{
-		return new CheckerObjectOutputStream(out);
+		ObjectOutputStream oos = newDelegateObjectOutputStream(out);
+		if (SerializableChecker.isAvailable())
+		{
+			return new CheckerObjectOutputStream(oos);
+		}
+		return oos;
+	}
+
+	/**
+	 * Gets a new instance of the {@link ObjectOutputStream} which actually writes the objects.
+	 * Unlike {@link #newObjectOutputStream(OutputStream)} it doesn't report serialization
+	 * problems.
+	 * 
+	 * @param out
+	 *            The output stream that should be used for the writing
+	 * @return a new object output stream instance
+	 * @throws IOException
+	 *             if an I/O error occurs while writing stream header
+	 */
+	protected ObjectOutputStream newDelegateObjectOutputStream(OutputStream out)
+		throws IOException
+	{
+		return new ObjectOutputStream(out);
 	}
 
 	/**
 	 * Extend {@link ObjectInputStream} to add framework class resolution logic.
 	 */
-	private static class ClassResolverObjectInputStream extends ObjectInputStream
+	protected static class ClassResolverObjectInputStream extends ObjectInputStream
 	{
+		/**
+		 * Construct.
+		 * 
+		 * @param in
+		 * @throws IOException
+		 */
 		public ClassResolverObjectInputStream(InputStream in) throws IOException
 		{
 			super(in);
@@ -239,9 +350,9 @@ public class JavaSerializer implements ISerializer
 	{
 		private final ObjectOutputStream oos;
 
-		public CheckerObjectOutputStream(OutputStream out) throws IOException
+		public CheckerObjectOutputStream(ObjectOutputStream oos) throws IOException
 		{
-			oos = new ObjectOutputStream(out);
+			this.oos = oos;
 		}
 
 		@Override
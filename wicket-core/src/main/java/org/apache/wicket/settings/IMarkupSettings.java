@@ -16,6 +16,9 @@
  */
 package org.apache.wicket.settings;
 
+import java.util.List;
+import java.util.Locale;
+
 import org.apache.wicket.markup.MarkupFactory;
 
 /**
@@ -169,4 +172,49 @@ public interface IMarkupSettings
 	 * @param factory
 	 */
 	void setMarkupFactory(MarkupFactory factory);
+
+	/**
+	 * @return the names of the packages whose pages and panels are warmed up at startup
+	 * @see #setWarmUpPackages(String...)
+	 */
+	List<String> getWarmUpPackages();
+
+	/**
+	 * Sets the packages whose pages and panels get their markup loaded when the application starts
+	 * up, so that the first requests find it in the markup cache. Sub packages are included. No
+	 * packages are warmed up by default.
+	 * 
+	 * @param packageNames
+	 *            the names of the packages, e.g. <code>com.example.pages</code>
+	 * @see org.apache.wicket.application.ComponentWarmUp
+	 * @see IResourceSettings#setWarmUpProperties(boolean)
+	 */
+	void setWarmUpPackages(String... packageNames);
+
+	/**
+	 * @return the locales the markup and properties are warmed up for
+	 * @see #setWarmUpLocales(Locale...)
+	 */
+	List<Locale> getWarmUpLocales();
+
+	/**
+	 * Sets the locales the markup and properties of the warmed up classes are loaded for. Defaults
+	 * to the default locale of the JVM.
+	 * 
+	 * @param locales
+	 */
+	void setWarmUpLocales(Locale... locales);
+
+	/**
+	 * @return the number of threads warming up the pages and panels
+	 */
+	int getWarmUpThreadCount();
+
+	/**
+	 * Sets the number of threads warming up the pages and panels in parallel. Defaults to the
+	 * number of available processors.
+	 * 
+	 * @param threadCount
+	 */
+	void setWarmUpThreadCount(int threadCount);
 }
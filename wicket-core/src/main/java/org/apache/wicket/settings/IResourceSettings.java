@@ -25,6 +25,7 @@ import org.apache.wicket.javascript.IJavaScriptCompressor;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.markup.html.PackageResourceGuard;
 import org.apache.wicket.model.IModel;
+import org.apache.wicket.request.resource.ProcessedResourceCache;
 import org.apache.wicket.request.resource.caching.IResourceCachingStrategy;
 import org.apache.wicket.resource.IPropertiesFactory;
 import org.apache.wicket.resource.IPropertiesFactoryContext;
@@ -345,4 +346,54 @@ public interface IResourceSettings extends IPropertiesFactoryContext
 	 *         CssPackageResource}. Null is a valid value.
 	 */
 	ICssCompressor getCssCompressor();
+
+	/**
+	 * Gets the cache of the processed data of package resources, e.g. the compressed JavaScript
+	 * and CSS files.
+	 * 
+	 * @return the cache or {@code null} if the processed data is not cached
+	 */
+	ProcessedResourceCache getProcessedResourceCache();
+
+	/**
+	 * Sets the cache of the processed data of package resources. By default a cache of 4MB is used.
+	 * The cache is cleared whenever the JavaScript or CSS compressor is changed.
+	 * 
+	 * @param cache
+	 *            the cache or {@code null} to process the resources for every request
+	 * @see org.apache.wicket.request.resource.PackageResource#isProcessedResponseCacheable()
+	 */
+	void setProcessedResourceCache(ProcessedResourceCache cache);
+
+	/**
+	 * @return whether resources may be sent compressed to clients accepting it
+	 */
+	boolean getCompressResources();
+
+	/**
+	 * Sets whether the data of compressible resources, e.g. package resources with a text content
+	 * type, is sent gzip or deflate encoded to clients which accept it. Disable it if the responses
+	 * are already compressed by a filter or proxy in front of the application. Enabled by default.
+	 * 
+	 * @param compressResources
+	 *            whether resources may be sent compressed
+	 * @see org.apache.wicket.request.resource.AbstractResource.ResourceResponse#setCompressible(boolean)
+	 */
+	void setCompressResources(boolean compressResources);
+
+	/**
+	 * @return whether the properties of the warmed up pages and panels are loaded at startup
+	 * @see #setWarmUpProperties(boolean)
+	 */
+	boolean getWarmUpProperties();
+
+	/**
+	 * Sets whether the properties files of the pages and panels warmed up at startup are loaded
+	 * along with their markup. Enabled by default, but nothing is warmed up unless some packages
+	 * are configured.
+	 * 
+	 * @param warmUpProperties
+	 * @see IMarkupSettings#setWarmUpPackages(String...)
+	 */
+	void setWarmUpProperties(boolean warmUpProperties);
 }
@@ -23,6 +23,10 @@ import org.apache.wicket.pageStore.AsynchronousDataStore;
 import org.apache.wicket.pageStore.DiskDataStore;
 import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.pageStore.IPageStore;
+import org.apache.wicket.serialize.compress.CompressingSerializer;
+import org.apache.wicket.serialize.compress.DeflateCompressor;
+import org.apache.wicket.serialize.compress.ICompressor;
+import org.apache.wicket.serialize.compress.LzfCompressor;
 import org.apache.wicket.util.lang.Bytes;
 
 /**
@@ -53,6 +57,21 @@ public interface IStoreSettings
 	 */
 	void setInmemoryCacheSize(int inmemoryCacheSize);
 
+	/**
+	 * @return the maximum total size of the page instances which will be stored in the application
+	 *         scoped cache
+	 */
+	Bytes getInmemoryCacheMaxSize();
+
+	/**
+	 * Sets the maximum total size of the page instances which will be stored in the application
+	 * scoped cache. Once it is exceeded the least recently used pages are removed from the cache.
+	 * 
+	 * @param inmemoryCacheMaxSize
+	 *            the maximum total size of the cached pages, {@link Bytes#MAX} for no limit
+	 */
+	void setInmemoryCacheMaxSize(Bytes inmemoryCacheMaxSize);
+
 	/**
 	 * @return maximum page size. After this size is exceeded, the {@link DiskDataStore} will start
 	 *         saving the pages at the beginning of file.
@@ -85,6 +104,21 @@ public interface IStoreSettings
 	 */
 	void setFileStoreFolder(File fileStoreFolder);
 
+	/**
+	 * @return the maximum number of session files which {@link DiskDataStore} keeps open at the
+	 *         same time
+	 */
+	int getFileChannelPoolCapacity();
+
+	/**
+	 * Sets the maximum number of session files which {@link DiskDataStore} keeps open at the same
+	 * time. Once this number is reached the least recently used files are closed.
+	 * 
+	 * @param capacity
+	 *            the maximum number of opened files
+	 */
+	void setFileChannelPoolCapacity(int capacity);
+
 	/**
 	 * @return the capacity of the queue used to store the pages which will be stored asynchronously
 	 * @see AsynchronousDataStore
@@ -100,6 +134,40 @@ public interface IStoreSettings
 	 */
 	void setAsynchronousQueueCapacity(int capacity);
 
+	/**
+	 * @return the maximum number of pages which {@link AsynchronousDataStore} saves per wake-up
+	 *         of a saving thread
+	 * @see AsynchronousDataStore
+	 */
+	int getAsynchronousBatchSize();
+
+	/**
+	 * Sets the maximum number of pages which {@link AsynchronousDataStore} saves per wake-up of a
+	 * saving thread. When several versions of the same page are waiting in a batch only the newest
+	 * one is saved.
+	 * 
+	 * @param batchSize
+	 *            the maximum number of pages saved at once
+	 * @see AsynchronousDataStore
+	 */
+	void setAsynchronousBatchSize(int batchSize);
+
+	/**
+	 * @return the number of threads which save the pages asynchronously
+	 * @see AsynchronousDataStore
+	 */
+	int getAsynchronousThreadCount();
+
+	/**
+	 * Sets the number of threads which save the pages asynchronously. The pages of one session are
+	 * always saved by the same thread.
+	 * 
+	 * @param threadCount
+	 *            the number of saving threads
+	 * @see AsynchronousDataStore
+	 */
+	void setAsynchronousThreadCount(int threadCount);
+
 	/**
 	 * Sets a flag whether to wrap the configured {@link IDataStore} with
 	 * {@link AsynchronousDataStore}. By doing this the HTTP worker thread will not wait for the
@@ -114,4 +182,38 @@ public interface IStoreSettings
 	 * @return {@code true} if the storing of page's bytes is asynchronous
 	 */
 	boolean isAsynchronous();
+
+	/**
+	 * @return the compressor used for the serialized pages or {@code null} if they are not
+	 *         compressed
+	 * @see CompressingSerializer
+	 */
+	ICompressor getCompressor();
+
+	/**
+	 * Sets the compressor used for the serialized pages before they are passed to the
+	 * {@link IDataStore}. Compression trades CPU time for less disk and memory usage per page.
+	 * {@link LzfCompressor} is fast, {@link DeflateCompressor} compresses better.
+	 * <p>
+	 * By default the pages are not compressed.
+	 * 
+	 * @param compressor
+	 *            the compressor or {@code null} to disable compression
+	 * @see CompressingSerializer
+	 */
+	void setCompressor(ICompressor compressor);
+
+	/**
+	 * @return the minimum size of a serialized page to be compressed
+	 */
+	Bytes getCompressionThreshold();
+
+	/**
+	 * Sets the minimum size of a serialized page to be compressed. Smaller pages are stored
+	 * uncompressed since the gain doesn't pay off the costs.
+	 * 
+	 * @param threshold
+	 *            the minimum size of a serialized page to be compressed
+	 */
+	void setCompressionThreshold(Bytes threshold);
 }
@@ -16,6 +16,12 @@
  */
 package org.apache.wicket.settings.def;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
 import org.apache.wicket.markup.MarkupFactory;
 import org.apache.wicket.settings.IMarkupSettings;
 import org.apache.wicket.util.lang.Args;
@@ -61,6 +67,15 @@ public class MarkupSettings implements IMarkupSettings
 	 */
 	private boolean stripWicketTags = false;
 
+	/** The packages whose pages and panels are warmed up at startup */
+	private List<String> warmUpPackages = Collections.emptyList();
+
+	/** The locales to warm up the markup and properties for */
+	private List<Locale> warmUpLocales = Collections.singletonList(Locale.getDefault());
+
+	/** The number of threads warming up the pages and panels */
+	private int warmUpThreadCount = Runtime.getRuntime().availableProcessors();
+
 	/**
 	 * Construct
 	 */
@@ -234,4 +249,65 @@ public class MarkupSettings implements IMarkupSettings
 	{
 		throwExceptionOnMissingXmlDeclaration = throwException;
 	}
+
+	/**
+	 * @see org.apache.wicket.settings.IMarkupSettings#getWarmUpPackages()
+	 */
+	@Override
+	public List<String> getWarmUpPackages()
+	{
+		return warmUpPackages;
+	}
+
+	/**
+	 * @see org.apache.wicket.settings.IMarkupSettings#setWarmUpPackages(java.lang.String[])
+	 */
+	@Override
+	public void setWarmUpPackages(final String... packageNames)
+	{
+		Args.notNull(packageNames, "packageNames");
+		warmUpPackages = Collections.unmodifiableList(new ArrayList<String>(
+			Arrays.asList(packageNames)));
+	}
+
+	/**
+	 * @see org.apache.wicket.settings.IMarkupSettings#getWarmUpLocales()
+	 */
+	@Override
+	public List<Locale> getWarmUpLocales()
+	{
+		return warmUpLocales;
+	}
+
+	/**
+	 * @see org.apache.wicket.settings.IMarkupSettings#setWarmUpLocales(java.util.Locale[])
+	 */
+	@Override
+	public void setWarmUpLocales(final Locale... locales)
+	{
+		Args.notNull(locales, "locales");
+		warmUpLocales = Collections.unmodifiableList(new ArrayList<Locale>(Arrays.asList(locales)));
+	}
+
+	/**
+	 * @see org.apache.wicket.settings.IMarkupSettings#getWarmUpThreadCount()
+	 */
+	@Override
+	public int getWarmUpThreadCount()
+	{
+		return warmUpThreadCount;
+	}
+
+	/**
+	 * @see org.apache.wicket.settings.IMarkupSettings#setWarmUpThreadCount(int)
+	 */
+	@Override
+	public void setWarmUpThreadCount(final int threadCount)
+	{
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException("threadCount must be greater than zero");
+		}
+		warmUpThreadCount = threadCount;
+	}
 }
@@ -28,6 +28,7 @@ import org.apache.wicket.javascript.IJavaScriptCompressor;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.markup.html.PackageResourceGuard;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.ProcessedResourceCache;
 import org.apache.wicket.request.resource.caching.FilenameWithVersionResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.IResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.NoOpResourceCachingStrategy;
@@ -49,6 +50,7 @@ import org.apache.wicket.util.file.IResourceFinder;
 import org.apache.wicket.util.file.IResourcePath;
 import org.apache.wicket.util.file.Path;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Generics;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.locator.IResourceStreamLocator;
@@ -119,6 +121,16 @@ public class ResourceSettings implements IResourceSettings
 	/** The Css compressor */
 	private ICssCompressor cssCompressor;
 
+	/** The cache of the processed package resources */
+	private ProcessedResourceCache processedResourceCache = new ProcessedResourceCache(
+		Bytes.megabytes(4));
+
+	/** Whether resources may be sent compressed */
+	private boolean compressResources = true;
+
+	/** Whether the properties of the warmed up components are loaded at startup */
+	private boolean warmUpProperties = true;
+
 	/** escape string for '..' within resource keys */
 	private String parentFolderPlaceholder = "::";
 
@@ -468,6 +480,7 @@ public class ResourceSettings implements IResourceSettings
 	{
 		IJavaScriptCompressor old = javascriptCompressor;
 		javascriptCompressor = compressor;
+		clearProcessedResourceCache();
 		return old;
 	}
 
@@ -482,6 +495,7 @@ public class ResourceSettings implements IResourceSettings
 	{
 		ICssCompressor old = cssCompressor;
 		cssCompressor = compressor;
+		clearProcessedResourceCache();
 		return old;
 	}
 
@@ -550,4 +564,52 @@ public class ResourceSettings implements IResourceSettings
 		}
 		resourceCachingStrategy = strategy;
 	}
+
+	@Override
+	public ProcessedResourceCache getProcessedResourceCache()
+	{
+		return processedResourceCache;
+	}
+
+	@Override
+	public void setProcessedResourceCache(ProcessedResourceCache cache)
+	{
+		processedResourceCache = cache;
+	}
+
+	@Override
+	public boolean getCompressResources()
+	{
+		return compressResources;
+	}
+
+	@Override
+	public void setCompressResources(boolean compressResources)
+	{
+		this.compressResources = compressResources;
+	}
+
+	@Override
+	public boolean getWarmUpProperties()
+	{
+		return warmUpProperties;
+	}
+
+	@Override
+	public void setWarmUpProperties(boolean warmUpProperties)
+	{
+		this.warmUpProperties = warmUpProperties;
+	}
+
+	/**
+	 * The processed resources are compressed with the old compressors, so they have to be processed
+	 * again.
+	 */
+	private void clearProcessedResourceCache()
+	{
+		if (processedResourceCache != null)
+		{
+			processedResourceCache.clear();
+		}
+	}
 }
@@ -21,7 +21,9 @@ import java.io.IOException;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.pageStore.DiskDataStore;
 import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.serialize.compress.ICompressor;
 import org.apache.wicket.settings.IStoreSettings;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Bytes;
@@ -37,16 +39,34 @@ public class StoreSettings implements IStoreSettings
 
 	private static final int DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY = 100;
 
+	private static final int DEFAULT_ASYNCHRONOUS_BATCH_SIZE = 1;
+
+	private static final int DEFAULT_ASYNCHRONOUS_THREAD_COUNT = 1;
+
+	private static final Bytes DEFAULT_COMPRESSION_THRESHOLD = Bytes.kilobytes(1);
+
 	private int inmemoryCacheSize = DEFAULT_CACHE_SIZE;
 
+	private Bytes inmemoryCacheMaxSize = Bytes.MAX;
+
 	private Bytes maxSizePerSession = DEFAULT_MAX_SIZE_PER_SESSION;
 
 	private File fileStoreFolder = null;
 
 	private int asynchronousQueueCapacity = DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY;
 
+	private int asynchronousBatchSize = DEFAULT_ASYNCHRONOUS_BATCH_SIZE;
+
+	private int asynchronousThreadCount = DEFAULT_ASYNCHRONOUS_THREAD_COUNT;
+
+	private int fileChannelPoolCapacity = DiskDataStore.DEFAULT_FILE_CHANNEL_POOL_CAPACITY;
+
 	private boolean isAsynchronous = true;
 
+	private ICompressor compressor = null;
+
+	private Bytes compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
 	/**
 	 * Construct.
 	 * 
@@ -68,6 +88,18 @@ public class StoreSettings implements IStoreSettings
 		this.inmemoryCacheSize = inmemoryCacheSize;
 	}
 
+	@Override
+	public Bytes getInmemoryCacheMaxSize()
+	{
+		return inmemoryCacheMaxSize;
+	}
+
+	@Override
+	public void setInmemoryCacheMaxSize(final Bytes inmemoryCacheMaxSize)
+	{
+		this.inmemoryCacheMaxSize = Args.notNull(inmemoryCacheMaxSize, "inmemoryCacheMaxSize");
+	}
+
 	@Override
 	public Bytes getMaxSizePerSession()
 	{
@@ -114,6 +146,23 @@ public class StoreSettings implements IStoreSettings
 		this.fileStoreFolder = Args.notNull(fileStoreFolder, "fileStoreFolder");
 	}
 
+	@Override
+	public int getFileChannelPoolCapacity()
+	{
+		return fileChannelPoolCapacity;
+	}
+
+	@Override
+	public void setFileChannelPoolCapacity(int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException(
+				"The capacity of the file channel pool should be at least 1.");
+		}
+		fileChannelPoolCapacity = capacity;
+	}
+
 	@Override
 	public int getAsynchronousQueueCapacity()
 	{
@@ -131,6 +180,40 @@ public class StoreSettings implements IStoreSettings
 		asynchronousQueueCapacity = queueCapacity;
 	}
 
+	@Override
+	public int getAsynchronousBatchSize()
+	{
+		return asynchronousBatchSize;
+	}
+
+	@Override
+	public void setAsynchronousBatchSize(int batchSize)
+	{
+		if (batchSize < 1)
+		{
+			throw new IllegalArgumentException(
+				"The batch size of the asynchronous saving should be at least 1.");
+		}
+		asynchronousBatchSize = batchSize;
+	}
+
+	@Override
+	public int getAsynchronousThreadCount()
+	{
+		return asynchronousThreadCount;
+	}
+
+	@Override
+	public void setAsynchronousThreadCount(int threadCount)
+	{
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException(
+				"The number of asynchronous saving threads should be at least 1.");
+		}
+		asynchronousThreadCount = threadCount;
+	}
+
 	@Override
 	public void setAsynchronous(boolean async)
 	{
@@ -142,4 +225,28 @@ public class StoreSettings implements IStoreSettings
 	{
 		return isAsynchronous;
 	}
+
+	@Override
+	public ICompressor getCompressor()
+	{
+		return compressor;
+	}
+
+	@Override
+	public void setCompressor(ICompressor compressor)
+	{
+		this.compressor = compressor;
+	}
+
+	@Override
+	public Bytes getCompressionThreshold()
+	{
+		return compressionThreshold;
+	}
+
+	@Override
+	public void setCompressionThreshold(Bytes threshold)
+	{
+		compressionThreshold = Args.notNull(threshold, "threshold");
+	}
 }
@@ -20,9 +20,11 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.Session;
@@ -58,6 +60,11 @@ import org.slf4j.LoggerFactory;
  * <p>
  * Index or map properties can also be written as: "property[index]" or "property[key]"
  * <p/>
+ * <p>
+ * Once an expression has been evaluated completely, the chain of getters that was used is cached
+ * per class of the root object. Later lookups of the same expression run through that chain
+ * directly, as long as the classes of the intermediate objects are the same.
+ * <p/>
  * 
  * @author jcompagner
  */
@@ -73,6 +80,8 @@ public final class PropertyResolver
 
 	private final static Map<Object, IClassCache> applicationToClassesToGetAndSetters = Generics.newConcurrentHashMap(2);
 
+	private final static Map<Object, ConcurrentMap<Class<?>, ConcurrentMap<String, CompiledExpression>>> applicationToCompiledExpressions = Generics.newConcurrentHashMap(2);
+
 	private static final String GET = "get";
 	private static final String IS = "is";
 	private static final String SET = "set";
@@ -94,12 +103,26 @@ public final class PropertyResolver
 			return object;
 		}
 
-		ObjectAndGetSetter getter = getObjectAndGetSetter(expression, object, RETURN_NULL);
+		final Class<?> clz = object.getClass();
+		CompiledExpression compiled = getCompiledExpression(expression, clz);
+		if (compiled != null)
+		{
+			Object value = compiled.getValue(object);
+			if (value != CompiledExpression.CLASS_MISMATCH)
+			{
+				return value;
+			}
+		}
+
+		List<Object> chain = new ArrayList<Object>();
+		ObjectAndGetSetter getter = getObjectAndGetSetter(expression, object, RETURN_NULL, clz,
+			chain);
 		if (getter == null)
 		{
 			return null;
 		}
 
+		putCompiledExpression(expression, clz, chain);
 		return getter.getValue();
 	}
 
@@ -169,7 +192,8 @@ public final class PropertyResolver
 	@SuppressWarnings("unchecked")
 	public static <T> Class<T> getPropertyClass(final String expression, final Class<?> clz)
 	{
-		ObjectAndGetSetter setter = getObjectAndGetSetter(expression, null, RESOLVE_CLASS, clz);
+		ObjectAndGetSetter setter = getObjectAndGetSetter(expression, null, RESOLVE_CLASS, clz,
+			null);
 		if (setter == null)
 		{
 			throw new WicketRuntimeException("No Class returned for expression: " + expression +
@@ -241,7 +265,7 @@ public final class PropertyResolver
 	private static ObjectAndGetSetter getObjectAndGetSetter(final String expression,
 		final Object object, int tryToCreateNull)
 	{
-		return getObjectAndGetSetter(expression, object, tryToCreateNull, object.getClass());
+		return getObjectAndGetSetter(expression, object, tryToCreateNull, object.getClass(), null);
 	}
 
 	/**
@@ -252,10 +276,12 @@ public final class PropertyResolver
 	 * @param object
 	 * @param tryToCreateNull
 	 * @param clz
+	 * @param chain
+	 *            optional list to which the class and the getter of each step are added
 	 * @return {@link ObjectAndGetSetter}
 	 */
 	private static ObjectAndGetSetter getObjectAndGetSetter(final String expression,
-		final Object object, final int tryToCreateNull, Class<?> clz)
+		final Object object, final int tryToCreateNull, Class<?> clz, final List<Object> chain)
 	{
 		String expressionBracketsSeperated = Strings.replaceAll(expression, "[", ".[").toString();
 		int index = getNextDotIndex(expressionBracketsSeperated, 0);
@@ -299,6 +325,11 @@ public final class PropertyResolver
 					break;
 				}
 			}
+			if (chain != null)
+			{
+				chain.add(clz);
+				chain.add(getAndSetter);
+			}
 			Object newValue = null;
 			if (value != null)
 			{
@@ -339,6 +370,11 @@ public final class PropertyResolver
 			}
 		}
 		IGetAndSet getAndSetter = getGetAndSetter(exp, clz);
+		if (chain != null)
+		{
+			chain.add(clz);
+			chain.add(getAndSetter);
+		}
 		return new ObjectAndGetSetter(getAndSetter, value);
 	}
 
@@ -682,6 +718,60 @@ public final class PropertyResolver
 		}
 	}
 
+	/**
+	 * The getters of all steps of an expression, each with the class of the object it was looked up
+	 * for.
+	 */
+	private final static class CompiledExpression
+	{
+		/** returned if the class of an object in the chain differs from the one it was compiled for */
+		private static final Object CLASS_MISMATCH = new Object();
+
+		private final Class<?>[] classes;
+		private final IGetAndSet[] getters;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param chain
+		 *            class and getter of each step
+		 */
+		private CompiledExpression(final List<Object> chain)
+		{
+			int steps = chain.size() / 2;
+			classes = new Class<?>[steps];
+			getters = new IGetAndSet[steps];
+			for (int i = 0; i < steps; i++)
+			{
+				classes[i] = (Class<?>)chain.get(2 * i);
+				getters[i] = (IGetAndSet)chain.get(2 * i + 1);
+			}
+		}
+
+		/**
+		 * @param object
+		 *            the root object, its class is the one the expression was compiled for
+		 * @return the value or {@link #CLASS_MISMATCH}
+		 */
+		private Object getValue(final Object object)
+		{
+			Object value = getters[0].getValue(object);
+			for (int i = 1; i < getters.length; i++)
+			{
+				if (value == null)
+				{
+					return null;
+				}
+				if (value.getClass() != classes[i])
+				{
+					return CLASS_MISMATCH;
+				}
+				value = getters[i].getValue(value);
+			}
+			return value;
+		}
+	}
+
 	/**
 	 * @author jcompagner
 	 */
@@ -1441,15 +1531,7 @@ public final class PropertyResolver
 
 	private static IClassCache getClassesToGetAndSetters()
 	{
-		Object key = null;
-		if (Application.exists())
-		{
-			key = Application.get();
-		}
-		else
-		{
-			key = PropertyResolver.class;
-		}
+		Object key = getApplicationKey();
 		IClassCache result = applicationToClassesToGetAndSetters.get(key);
 		if (result == null)
 		{
@@ -1458,6 +1540,65 @@ public final class PropertyResolver
 		return result;
 	}
 
+	private static CompiledExpression getCompiledExpression(final String expression,
+		final Class<?> clz)
+	{
+		Map<Class<?>, ConcurrentMap<String, CompiledExpression>> classes = applicationToCompiledExpressions.get(getApplicationKey());
+		if (classes != null)
+		{
+			Map<String, CompiledExpression> expressions = classes.get(clz);
+			if (expressions != null)
+			{
+				return expressions.get(expression);
+			}
+		}
+		return null;
+	}
+
+	private static void putCompiledExpression(final String expression, final Class<?> clz,
+		final List<Object> chain)
+	{
+		// only remember chains of classes that are cached by the class cache, so classes that it
+		// doesn't want to keep aren't held here either
+		IClassCache classesToGetAndSetters = getClassesToGetAndSetters();
+		for (int i = 0; i < chain.size(); i += 2)
+		{
+			if (classesToGetAndSetters.get((Class<?>)chain.get(i)) == null)
+			{
+				return;
+			}
+		}
+
+		Object key = getApplicationKey();
+		ConcurrentMap<Class<?>, ConcurrentMap<String, CompiledExpression>> classes = applicationToCompiledExpressions.get(key);
+		if (classes == null)
+		{
+			classes = Generics.newConcurrentHashMap(16);
+			applicationToCompiledExpressions.put(key, classes);
+		}
+		ConcurrentMap<String, CompiledExpression> expressions = classes.get(clz);
+		if (expressions == null)
+		{
+			expressions = Generics.newConcurrentHashMap(8);
+			ConcurrentMap<String, CompiledExpression> existing = classes.putIfAbsent(clz,
+				expressions);
+			if (existing != null)
+			{
+				expressions = existing;
+			}
+		}
+		expressions.put(expression, new CompiledExpression(chain));
+	}
+
+	private static Object getApplicationKey()
+	{
+		if (Application.exists())
+		{
+			return Application.get();
+		}
+		return PropertyResolver.class;
+	}
+
 	/**
 	 * Clean up cache for this app.
 	 * 
@@ -1466,6 +1607,7 @@ public final class PropertyResolver
 	public static void destroy(Application application)
 	{
 		applicationToClassesToGetAndSetters.remove(application);
+		applicationToCompiledExpressions.remove(application);
 	}
 
 	/**
@@ -1485,10 +1627,12 @@ public final class PropertyResolver
 		if (application != null)
 		{
 			applicationToClassesToGetAndSetters.put(application, classCache);
+			applicationToCompiledExpressions.remove(application);
 		}
 		else
 		{
 			applicationToClassesToGetAndSetters.put(PropertyResolver.class, classCache);
+			applicationToCompiledExpressions.remove(PropertyResolver.class);
 		}
 	}
 
@@ -0,0 +1,649 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.string.interpolator;
+
+import java.text.ChoiceFormat;
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.util.lang.Generics;
+import org.apache.wicket.util.lang.Objects;
+import org.apache.wicket.util.string.Strings;
+
+/**
+ * A parsed localized message. The message may contain property expressions like
+ * <code>${name}</code> (see {@link PropertyVariableInterpolator}) and, optionally,
+ * <code>java.text.MessageFormat</code> placeholders like <code>{0}</code>.
+ * <p>
+ * Parsing happens once per message and locale; {@link #format(Object[], Object)} only
+ * substitutes values. Templates are immutable and can be shared by all threads, which is why they
+ * are kept in a bounded static cache.
+ * <p>
+ * Single quotes outside of <code>{..}</code> are treated as literal quotes, and property
+ * expressions are evaluated after the <code>MessageFormat</code> parameters have been applied,
+ * just as {@link org.apache.wicket.model.StringResourceModel} always did.
+ *
+ * @see org.apache.wicket.model.StringResourceModel
+ */
+public final class MessageTemplate
+{
+	/** maximum number of cached templates */
+	private static final int MAX_CACHE_SIZE = 4096;
+
+	private static final ConcurrentMap<Key, MessageTemplate> cache = Generics.newConcurrentHashMap();
+
+	/** keys in insertion order */
+	private static final Queue<Key> keys = new ConcurrentLinkedQueue<Key>();
+
+	private static final AtomicInteger size = new AtomicInteger();
+
+	private static final int TEXT = 0;
+
+	private static final int PROPERTY = 1;
+
+	private static final int ARGUMENT = 2;
+
+	/** the parsed message, only complete if {@link #interpolateResult} is <code>false</code> */
+	private final Segment[] segments;
+
+	/** the prototype format, <code>null</code> if no MessageFormat placeholders are applied */
+	private final MessageFormat prototype;
+
+	/** whether property expressions are substituted */
+	private final boolean properties;
+
+	/**
+	 * whether a property expression may be formed across a text and an argument, in which case the
+	 * whole formatted result has to be interpolated
+	 */
+	private final boolean interpolateResult;
+
+	private final Locale locale;
+
+	/**
+	 * Gets the template substituting the property expressions in the given string.
+	 *
+	 * @param string
+	 *            a <code>String</code> containing property expressions like <code>${xyz}</code>
+	 * @return the template
+	 */
+	public static MessageTemplate forProperties(final String string)
+	{
+		return get(new Key(string, null, true));
+	}
+
+	/**
+	 * Gets the template applying <code>MessageFormat</code> parameters to the given message.
+	 *
+	 * @param message
+	 *            the message
+	 * @param locale
+	 *            the locale to format the parameters with
+	 * @param properties
+	 *            whether property expressions like <code>${xyz}</code> should be substituted as
+	 *            well
+	 * @return the template
+	 * @throws IllegalArgumentException
+	 *             if the message is not a valid <code>MessageFormat</code> pattern
+	 */
+	public static MessageTemplate forMessage(final String message, final Locale locale,
+		final boolean properties)
+	{
+		if (locale == null)
+		{
+			throw new IllegalArgumentException("Argument 'locale' may not be null.");
+		}
+		return get(new Key(message, locale, properties));
+	}
+
+	/**
+	 * Removes all cached templates.
+	 */
+	public static void clearCache()
+	{
+		cache.clear();
+		keys.clear();
+		size.set(0);
+	}
+
+	/**
+	 * @return the number of cached templates
+	 */
+	public static int getCacheSize()
+	{
+		return cache.size();
+	}
+
+	private static MessageTemplate get(final Key key)
+	{
+		if (key.message == null)
+		{
+			throw new IllegalArgumentException("Argument 'message' may not be null.");
+		}
+
+		MessageTemplate template = cache.get(key);
+		if (template == null)
+		{
+			template = new MessageTemplate(key.message, key.locale, key.properties);
+			if (cache.putIfAbsent(key, template) == null)
+			{
+				keys.add(key);
+				if (size.incrementAndGet() > MAX_CACHE_SIZE)
+				{
+					evict();
+				}
+			}
+		}
+		return template;
+	}
+
+	private static void evict()
+	{
+		while (size.get() > MAX_CACHE_SIZE)
+		{
+			Key eldest = keys.poll();
+			if (eldest == null)
+			{
+				break;
+			}
+			if (cache.remove(eldest) != null)
+			{
+				size.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param message
+	 * @param locale
+	 *            <code>null</code> if no MessageFormat parameters are applied
+	 * @param properties
+	 */
+	private MessageTemplate(final String message, final Locale locale, final boolean properties)
+	{
+		this.locale = locale;
+		this.properties = properties;
+
+		final List<Segment> parsed = new ArrayList<Segment>();
+		if (locale == null)
+		{
+			prototype = null;
+			interpolateResult = false;
+			addText(parsed, message, true);
+		}
+		else
+		{
+			String pattern = message;
+
+			// Escape all single quotes outside {..}
+			if (pattern.indexOf('\'') != -1)
+			{
+				pattern = escapeQuotes(pattern);
+			}
+
+			if (properties)
+			{
+				// escape all substitute properties so that message format doesn't try to parse them
+				pattern = Strings.replaceAll(pattern, "${", "$'{'").toString();
+			}
+
+			// validates the pattern and provides the sub formats
+			prototype = new MessageFormat(pattern, locale);
+			interpolateResult = !parse(pattern, prototype.getFormats(), parsed);
+		}
+
+		segments = parsed.toArray(new Segment[parsed.size()]);
+	}
+
+	/**
+	 * Substitutes the given values.
+	 *
+	 * @param arguments
+	 *            the <code>MessageFormat</code> parameters, may be <code>null</code>
+	 * @param model
+	 *            the <code>Object</code> to evaluate property expressions against
+	 * @return the formatted message
+	 */
+	public String format(final Object[] arguments, final Object model)
+	{
+		if (prototype == null)
+		{
+			// property expressions only
+			return substitute(null, model);
+		}
+
+		if (!interpolateResult)
+		{
+			String[] formatted = formatArguments(arguments);
+			if (formatted != null)
+			{
+				return substitute(formatted, model);
+			}
+		}
+
+		// the parameters may take part in property expressions, so format as a whole
+		String value = ((MessageFormat)prototype.clone()).format(arguments);
+		if (properties)
+		{
+			// un escape the substitute properties
+			value = Strings.replaceAll(value, "$'{'", "${").toString();
+			// now substitute the properties
+			value = PropertyVariableInterpolator.interpolate(value, model);
+		}
+		return value;
+	}
+
+	/**
+	 * Formats the arguments of all placeholders.
+	 *
+	 * @param arguments
+	 * @return the formatted arguments, or <code>null</code> if any of them contains a '$' and
+	 *         property expressions are substituted
+	 */
+	private String[] formatArguments(final Object[] arguments)
+	{
+		String[] formatted = new String[segments.length];
+		for (int i = 0; i < segments.length; i++)
+		{
+			Segment segment = segments[i];
+			if (segment.kind == ARGUMENT)
+			{
+				String value = formatArgument(segment, arguments);
+				if (properties && value.indexOf('$') != -1)
+				{
+					return null;
+				}
+				formatted[i] = value;
+			}
+		}
+		return formatted;
+	}
+
+	/**
+	 * Formats a single argument the way {@link MessageFormat} does.
+	 *
+	 * @param segment
+	 * @param arguments
+	 * @return the formatted argument
+	 */
+	private String formatArgument(final Segment segment, final Object[] arguments)
+	{
+		final int index = segment.argumentIndex;
+		if ((arguments == null) || (index >= arguments.length))
+		{
+			return "{" + index + "}";
+		}
+
+		final Object argument = arguments[index];
+		if (argument == null)
+		{
+			return "null";
+		}
+		else if (segment.format != null)
+		{
+			// formats aren't thread safe
+			final Format format = (Format)segment.format.clone();
+			final String value = format.format(argument);
+			if ((format instanceof ChoiceFormat) && (value.indexOf('{') != -1))
+			{
+				return new MessageFormat(value, locale).format(arguments);
+			}
+			return value;
+		}
+		else if (argument instanceof String)
+		{
+			return (String)argument;
+		}
+		else if (argument instanceof Number)
+		{
+			return NumberFormat.getInstance(locale).format(argument);
+		}
+		else if (argument instanceof Date)
+		{
+			return DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale)
+				.format(argument);
+		}
+		else
+		{
+			final String value = argument.toString();
+			return value != null ? value : "null";
+		}
+	}
+
+	private String substitute(final String[] formatted, final Object model)
+	{
+		final StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < segments.length; i++)
+		{
+			Segment segment = segments[i];
+			switch (segment.kind)
+			{
+				case TEXT :
+					buffer.append(segment.text);
+					break;
+				case PROPERTY :
+					String value = PropertyVariableInterpolator.getValue(segment.text, model);
+					if (value == null)
+					{
+						// leave the variable uninterpolated
+						buffer.append("${").append(segment.text).append('}');
+					}
+					else
+					{
+						buffer.append(value);
+					}
+					break;
+				default :
+					buffer.append(formatted[i]);
+			}
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * Splits a <code>MessageFormat</code> pattern into text and placeholders, following the
+	 * quoting rules of {@link MessageFormat}.
+	 *
+	 * @param pattern
+	 * @param formats
+	 *            the sub formats of the placeholders in order of appearance
+	 * @param parsed
+	 * @return <code>false</code> if a property expression may span a text and a placeholder
+	 */
+	private boolean parse(final String pattern, final Format[] formats, final List<Segment> parsed)
+	{
+		boolean separate = true;
+		int placeholders = 0;
+		StringBuilder text = new StringBuilder();
+		boolean inQuote = false;
+		int i = 0;
+		while (i < pattern.length())
+		{
+			char ch = pattern.charAt(i);
+			if (ch == '\'')
+			{
+				if ((i + 1 < pattern.length()) && (pattern.charAt(i + 1) == '\''))
+				{
+					text.append(ch);
+					i++;
+				}
+				else
+				{
+					inQuote = !inQuote;
+				}
+				i++;
+			}
+			else if ((ch == '{') && !inQuote)
+			{
+				// find the end of the placeholder, skipping nested and quoted braces
+				int depth = 0;
+				boolean quoted = false;
+				int end = i + 1;
+				int comma = -1;
+				for (; end < pattern.length(); end++)
+				{
+					char c = pattern.charAt(end);
+					if (quoted)
+					{
+						quoted = (c != '\'');
+					}
+					else if (c == '\'')
+					{
+						quoted = true;
+					}
+					else if (c == '{')
+					{
+						depth++;
+					}
+					else if (c == '}')
+					{
+						if (depth == 0)
+						{
+							break;
+						}
+						depth--;
+					}
+					else if ((c == ',') && (depth == 0) && (comma == -1))
+					{
+						comma = end;
+					}
+				}
+
+				final int index;
+				try
+				{
+					index = Integer.parseInt(pattern.substring(i + 1, comma != -1 ? comma : end)
+						.trim());
+				}
+				catch (NumberFormatException e)
+				{
+					return false;
+				}
+				if (placeholders >= formats.length)
+				{
+					return false;
+				}
+
+				separate &= addText(parsed, text.toString(), false);
+				text.setLength(0);
+				parsed.add(new Segment(ARGUMENT, null, index, formats[placeholders++]));
+				i = end + 1;
+			}
+			else
+			{
+				text.append(ch);
+				i++;
+			}
+		}
+		separate &= addText(parsed, text.toString(), true);
+
+		return separate && (placeholders == formats.length);
+	}
+
+	/**
+	 * Adds the given text, split into text and property expressions according to the rules of
+	 * {@link VariableInterpolator}.
+	 *
+	 * @param parsed
+	 * @param text
+	 * @param last
+	 *            whether the text is at the end of the message
+	 * @return <code>false</code> if the text ends with an incomplete property expression or escape
+	 */
+	private boolean addText(final List<Segment> parsed, final String text, final boolean last)
+	{
+		if (!properties)
+		{
+			addText(parsed, text);
+			return true;
+		}
+
+		int pos = 0;
+		int start;
+		while ((start = lowerPositive(text.indexOf("$$", pos), text.indexOf("${", pos))) != -1)
+		{
+			addText(parsed, text.substring(pos, start));
+
+			if (text.charAt(start + 1) == '$')
+			{
+				addText(parsed, "$");
+				pos = start + 2;
+				continue;
+			}
+
+			final int end = text.indexOf('}', start + 2);
+			if (end == -1)
+			{
+				// the rest is left uninterpolated
+				addText(parsed, text.substring(start));
+				return last;
+			}
+
+			parsed.add(new Segment(PROPERTY, text.substring(start + 2, end), -1, null));
+			pos = end + 1;
+		}
+
+		final String rest = text.substring(pos);
+		addText(parsed, rest);
+		return last || !rest.endsWith("$");
+	}
+
+	private static void addText(final List<Segment> parsed, final String text)
+	{
+		if (text.length() > 0)
+		{
+			int last = parsed.size() - 1;
+			if ((last >= 0) && (parsed.get(last).kind == TEXT))
+			{
+				parsed.set(last, new Segment(TEXT, parsed.get(last).text + text, -1, null));
+			}
+			else
+			{
+				parsed.add(new Segment(TEXT, text, -1, null));
+			}
+		}
+	}
+
+	private static int lowerPositive(final int i1, final int i2)
+	{
+		if (i2 < 0)
+		{
+			return i1;
+		}
+		else if (i1 < 0)
+		{
+			return i2;
+		}
+		else
+		{
+			return i1 < i2 ? i1 : i2;
+		}
+	}
+
+	/**
+	 * Replace "'" with "''" outside of "{..}"
+	 *
+	 * @param value
+	 * @return escaped message format
+	 */
+	private static String escapeQuotes(final String value)
+	{
+		StringBuilder newValue = new StringBuilder(value.length() + 10);
+		int count = 0;
+		for (int i = 0; i < value.length(); i++)
+		{
+			char ch = value.charAt(i);
+			if (ch == '{')
+			{
+				count += 1;
+			}
+			else if (ch == '}')
+			{
+				count -= 1;
+			}
+
+			newValue.append(ch);
+			if ((ch == '\'') && (count == 0))
+			{
+				// Escape "'"
+				newValue.append(ch);
+			}
+		}
+
+		return newValue.toString();
+	}
+
+	/**
+	 * A piece of text, a property expression or a <code>MessageFormat</code> placeholder.
+	 */
+	private static final class Segment
+	{
+		private final int kind;
+
+		/** the text or the property expression */
+		private final String text;
+
+		private final int argumentIndex;
+
+		/** the prototype sub format, may be <code>null</code> */
+		private final Format format;
+
+		private Segment(final int kind, final String text, final int argumentIndex,
+			final Format format)
+		{
+			this.kind = kind;
+			this.text = text;
+			this.argumentIndex = argumentIndex;
+			this.format = format;
+		}
+	}
+
+	/**
+	 * Cache key
+	 */
+	private static final class Key
+	{
+		private final String message;
+
+		private final Locale locale;
+
+		private final boolean properties;
+
+		private Key(final String message, final Locale locale, final boolean properties)
+		{
+			this.message = message;
+			this.locale = locale;
+			this.properties = properties;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = message.hashCode();
+			result = 31 * result + (locale != null ? locale.hashCode() : 0);
+			return 31 * result + (properties ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (!(obj instanceof Key))
+			{
+				return false;
+			}
+			Key that = (Key)obj;
+			return message.equals(that.message) && Objects.equal(locale, that.locale) &&
+				(properties == that.properties);
+		}
+	}
+}
@@ -96,11 +96,26 @@ public final class PropertyVariableInterpolator extends VariableInterpolator
 	@Override
 	protected String getValue(final String variableName)
 	{
-		Object value = PropertyResolver.getValue(variableName, model);
+		return getValue(variableName, model);
+	}
+
+	/**
+	 * Evaluates a property expression against the model and converts the result to a string.
+	 * 
+	 * @param expression
+	 *            the property expression
+	 * @param model
+	 *            the <code>Object</code> to reflect on
+	 * @return the converted value or <code>null</code> if the expression evaluates to
+	 *         <code>null</code>
+	 */
+	static String getValue(final String expression, final Object model)
+	{
+		Object value = PropertyResolver.getValue(expression, model);
 
 		if (value != null)
 		{
-			final IConverter converter = getConverter(value.getClass());
+			final IConverter converter = getConverterFor(value.getClass());
 			if (converter != null)
 			{
 				return converter.convertToString(value, Session.get().getLocale());
@@ -118,6 +133,11 @@ public final class PropertyVariableInterpolator extends VariableInterpolator
 	 */
 	@Override
 	public <C> IConverter<C> getConverter(Class<C> type)
+	{
+		return getConverterFor(type);
+	}
+
+	private static <C> IConverter<C> getConverterFor(final Class<C> type)
 	{
 		if (Application.exists())
 		{
@@ -206,6 +206,60 @@ public class LocalizerTest extends Assert
 
 	}
 
+	/**
+	 * The bounded cache distinguishes components like the unbounded one
+	 */
+	@Test
+	public void boundedCacheTwoComponents()
+	{
+		localizer.setEnableCache(true);
+		localizer.setMaxCacheSize(100);
+		testTwoComponents();
+
+		assertEquals(4, localizer.getCacheMisses());
+		assertEquals(4, localizer.getCacheSize());
+
+		Session.get().setLocale(Locale.ENGLISH);
+		MyMockPage page = new MyMockPage();
+		assertEquals("value 1", localizer.getString("null", page.drop1));
+		assertEquals("value 2", localizer.getString("null", page.drop2));
+		assertEquals(2, localizer.getCacheHits());
+	}
+
+	/**
+	 * The oldest entries are evicted from the bounded cache
+	 */
+	@Test
+	public void boundedCacheEviction()
+	{
+		localizer.setEnableCache(true);
+		localizer.setMaxCacheSize(2);
+
+		assertEquals("This is a test", localizer.getString("test.string", null, "DEFAULT"));
+		assertEquals("DEFAULT", localizer.getString("missing.string1", null, "DEFAULT"));
+		assertEquals("DEFAULT", localizer.getString("missing.string2", null, "DEFAULT"));
+
+		assertEquals(2, localizer.getCacheSize());
+		assertEquals(1, localizer.getCacheEvictions());
+		assertEquals(3, localizer.getCacheMisses());
+
+		// missing strings are cached, too
+		assertEquals("DEFAULT", localizer.getString("missing.string2", null, "DEFAULT"));
+		assertEquals(1, localizer.getCacheHits());
+
+		// the evicted string is loaded again
+		assertEquals("This is a test", localizer.getString("test.string", null, "DEFAULT"));
+		assertEquals(4, localizer.getCacheMisses());
+		assertEquals(2, localizer.getCacheEvictions());
+
+		localizer.clearCache();
+		assertEquals(0, localizer.getCacheSize());
+
+		localizer.setMaxCacheSize(0);
+		assertEquals("This is a test", localizer.getString("test.string", null, "DEFAULT"));
+		assertEquals(1, localizer.getCacheSize());
+	}
+
 	/**
 	 * 
 	 */
@@ -20,6 +20,7 @@ import org.apache.wicket.markup.IMarkupResourceStreamProvider;
 import org.apache.wicket.markup.html.WebComponent;
 import org.apache.wicket.markup.html.WebMarkupContainer;
 import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.util.lang.WicketObjects;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.StringResourceStream;
 import org.junit.Test;
@@ -107,6 +108,83 @@ public class MarkupContainerTest extends WicketTestCase
 		assertNull(a.get("q"));
 	}
 
+	/**
+	 * A container with many children keeps them all, in order, when it is serialized before it is
+	 * detached
+	 */
+	@Test
+	public void serializeManyChildren()
+	{
+		WebMarkupContainer container = new WebMarkupContainer("container");
+		for (int i = 0; i < 10; i++)
+		{
+			container.add(new WebMarkupContainer("child" + i));
+		}
+
+		WebMarkupContainer clone = (WebMarkupContainer)WicketObjects.cloneObject(container);
+		assertEquals(10, clone.size());
+		int i = 0;
+		for (Component child : clone)
+		{
+			assertEquals("child" + i++, child.getId());
+			assertSame(clone, child.getParent());
+		}
+
+		clone.add(new WebMarkupContainer("child10"));
+		clone.remove("child0");
+		assertEquals(10, clone.size());
+		assertNotNull(clone.get("child10"));
+	}
+
+	/**
+	 * Children of a container with many children are found by id while they are added, removed,
+	 * replaced and swapped
+	 */
+	@Test
+	public void getManyChildren()
+	{
+		WebMarkupContainer container = new WebMarkupContainer("container");
+		for (int i = 0; i < 100; i++)
+		{
+			container.add(new WebMarkupContainer("child" + i));
+		}
+		assertChildren(container);
+
+		container.remove("child0");
+		container.remove("child50");
+		assertNull(container.get("child50"));
+		assertChildren(container);
+
+		container.swap(0, 97);
+		assertChildren(container);
+
+		WebMarkupContainer replacement = new WebMarkupContainer("child10");
+		container.replace(replacement);
+		assertSame(replacement, container.get("child10"));
+		assertChildren(container);
+
+		container.add(new WebMarkupContainer("child100"));
+		assertChildren(container);
+
+		while (container.size() > 2)
+		{
+			container.remove(container.get(0));
+		}
+		assertChildren(container);
+
+		container.removeAll();
+		assertNull(container.get("child99"));
+	}
+
+	private static void assertChildren(MarkupContainer container)
+	{
+		for (int i = 0; i < container.size(); i++)
+		{
+			Component child = container.get(i);
+			assertSame(child, container.get(child.getId()));
+		}
+	}
+
 	/**
 	 * https://issues.apache.org/jira/browse/WICKET-4006
 	 */
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.application;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.Session;
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.IMarkupCache;
+import org.apache.wicket.markup.html.panel.FragmentTestCase;
+import org.apache.wicket.markup.html.panel.FragmentTestPanel;
+import org.apache.wicket.markup.html.panel.InlinePanelPage_1;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.protocol.http.WebSession;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.resource.Properties;
+import org.apache.wicket.resource.PropertiesFactory;
+import org.apache.wicket.settings.IMarkupSettings;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ComponentWarmUp}
+ */
+public class ComponentWarmUpTest extends WicketTestCase
+{
+	@Override
+	protected WebApplication newApplication()
+	{
+		return new MockApplication()
+		{
+			@Override
+			public Session newSession(final Request request, final Response response)
+			{
+				return new TestSession(request);
+			}
+
+			@Override
+			protected void init()
+			{
+				super.init();
+
+				// like an authorization strategy relying on the session type of the application
+				getComponentInstantiationListeners().add(new IComponentInstantiationListener()
+				{
+					@Override
+					public void onInstantiation(final Component component)
+					{
+						TestSession.class.cast(Session.get());
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * The markup and properties of the pages and panels are loaded, an instance finds its markup in
+	 * the cache afterwards
+	 */
+	@Test
+	public void warmUp()
+	{
+		final Set<String> loaded = Collections.synchronizedSet(new HashSet<String>());
+		tester.getApplication()
+			.getResourceSettings()
+			.setPropertiesFactory(
+				new PropertiesFactory(tester.getApplication().getResourceSettings())
+				{
+					@Override
+					public Properties load(Class<?> clazz, String path)
+					{
+						loaded.add(path);
+						return super.load(clazz, path);
+					}
+				});
+
+		IMarkupSettings markupSettings = tester.getApplication().getMarkupSettings();
+		markupSettings.setWarmUpPackages(FragmentTestPanel.class.getPackage().getName());
+		markupSettings.setWarmUpLocales(tester.getSession().getLocale());
+		markupSettings.setWarmUpThreadCount(2);
+
+		Map<Class<?>, Long> report = new ComponentWarmUp(tester.getApplication()).warmUp();
+
+		assertTrue(report.containsKey(FragmentTestPanel.class));
+		assertTrue(report.containsKey(InlinePanelPage_1.class));
+		assertFalse(report.containsKey(FragmentTestCase.class));
+		assertTrue(loaded.contains("org/apache/wicket/markup/html/panel/FragmentTestPanel."));
+
+		IMarkupCache cache = markupSettings.getMarkupFactory().getMarkupCache();
+		int size = cache.size();
+		assertTrue(size > 0);
+
+		tester.startPage(InlinePanelPage_1.class);
+		assertEquals(size, cache.size());
+	}
+
+	/**
+	 * The session type of the application
+	 */
+	private static class TestSession extends WebSession
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param request
+		 */
+		public TestSession(final Request request)
+		{
+			super(request);
+		}
+	}
+}
@@ -94,4 +94,27 @@ public class MarkupFragmentTest extends WicketTestCase
 
 		assertEquals(1, fragment.size());
 	}
+	/**
+	 * The children of immutable markup are looked up by id, but must be the same as found by
+	 * scanning the markup.
+	 */
+	@Test
+	public void findChildById()
+	{
+		Markup markup = Markup.of("<body wicket:id='body'><div wicket:id='panel'>"
+			+ "<span wicket:id='label'/></div><span wicket:id='label'>x</span></body>");
+
+		IMarkupFragment body = markup.find("body");
+		assertEquals(9, body.size());
+		assertSame(body, markup.find("body"));
+		assertNull(markup.find("label"));
+
+		IMarkupFragment label = body.find("label");
+		assertEquals("<span wicket:id=\"label\">x</span>", label.toString(true));
+		assertSame(label, body.find("label"));
+
+		IMarkupFragment nested = body.find("panel").find("label");
+		assertEquals("<span wicket:id=\"label\"></span>", nested.toString(true));
+		assertNull(body.find("unknown"));
+	}
 }
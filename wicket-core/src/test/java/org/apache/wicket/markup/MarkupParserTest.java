@@ -16,19 +16,25 @@
  */
 package org.apache.wicket.markup;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 
 import junit.framework.Assert;
 
+import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.WicketTestCase;
 import org.apache.wicket.markup.html.border.Border;
 import org.apache.wicket.markup.html.pages.PageExpiredErrorPage;
+import org.apache.wicket.markup.parser.XmlPullParser;
 import org.apache.wicket.markup.parser.XmlTag.TagType;
 import org.apache.wicket.markup.parser.filter.WicketTagIdentifier;
 import org.apache.wicket.settings.IMarkupSettings;
+import org.apache.wicket.util.resource.AbstractResourceStream;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.resource.locator.IResourceStreamLocator;
@@ -653,4 +659,69 @@ public final class MarkupParserTest extends WicketTestCase
 			tester.getApplication().getMarkupSettings().setStripComments(stripComments);
 		}
 	}
+
+	/**
+	 * Tests that the markup stream is closed when the parsing fails before the streaming xml
+	 * parser has read all of it
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void streamIsClosedWhenParsingFails() throws Exception
+	{
+		StringBuilder markup = new StringBuilder("<wicket:link autolink=\"maybe\">");
+		for (int i = 0; i < 10000; i++)
+		{
+			markup.append("<p>text</p>\n");
+		}
+		final byte[] data = markup.toString().getBytes("UTF-8");
+		final AtomicBoolean closed = new AtomicBoolean(false);
+		IResourceStream resource = new AbstractResourceStream()
+		{
+			private static final long serialVersionUID = 1L;
+
+			private transient InputStream inputStream;
+
+			@Override
+			public InputStream getInputStream()
+			{
+				if (inputStream == null)
+				{
+					inputStream = new ByteArrayInputStream(data)
+					{
+						@Override
+						public void close() throws IOException
+						{
+							closed.set(true);
+							super.close();
+						}
+					};
+				}
+				return inputStream;
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				if (inputStream != null)
+				{
+					inputStream.close();
+					inputStream = null;
+				}
+			}
+		};
+
+		MarkupParser parser = new MarkupParser(new XmlPullParser(true), new MarkupResourceStream(
+			resource));
+		try
+		{
+			parser.parse();
+			fail("The autolink attribute is invalid");
+		}
+		catch (WicketRuntimeException e)
+		{
+			// expected
+		}
+		assertTrue(closed.get());
+	}
 }
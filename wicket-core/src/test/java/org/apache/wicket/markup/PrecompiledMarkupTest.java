@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PrecompiledMarkup}
+ */
+public class PrecompiledMarkupTest extends WicketTestCase
+{
+	private static final String MARKUP = "<html><body><span wicket:id=\"label\" class=\"x\">text</span>"
+		+ "<wicket:message key=\"msg\">msg</wicket:message></body></html>";
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void readWrittenMarkup() throws Exception
+	{
+		Markup markup = Markup.of(MARKUP);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrecompiledMarkup.write(markup, out);
+
+		MarkupResourceStream stream = new MarkupResourceStream(new StringResourceStream(MARKUP));
+		Markup read = PrecompiledMarkup.read(stream,
+			new ByteArrayInputStream(out.toByteArray()));
+
+		assertNotNull(read);
+		assertSame(stream, read.getMarkupResourceStream());
+		assertEquals(markup.size(), read.size());
+		assertEquals(markup.toString(true), read.toString(true));
+		assertEquals("x", ((ComponentTag)read.find("label").get(0)).getAttribute("class"));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void changedMarkupIsStale() throws Exception
+	{
+		Markup markup = Markup.of(MARKUP);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PrecompiledMarkup.write(markup, out);
+
+		MarkupResourceStream stream = new MarkupResourceStream(new StringResourceStream(
+			MARKUP.replace("text", "changed")));
+		assertNull(PrecompiledMarkup.read(stream, new ByteArrayInputStream(out.toByteArray())));
+	}
+}
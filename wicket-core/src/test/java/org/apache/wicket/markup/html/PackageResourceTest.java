@@ -16,7 +16,12 @@
  */
 package org.apache.wicket.markup.html;
 
+import java.io.ByteArrayInputStream;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.SharedResources;
@@ -24,7 +29,13 @@ import org.apache.wicket.WicketTestCase;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.resource.PackageResource;
 import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.request.resource.ProcessedResourceCache;
 import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.request.resource.caching.FilenameWithVersionResourceCachingStrategy;
+import org.apache.wicket.request.resource.caching.version.MessageDigestResourceVersion;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -156,4 +167,131 @@ public class PackageResourceTest extends WicketTestCase
 		tester.startResource(jsResource);
 		assertEquals("text/javascript", tester.getLastResponse().getContentType());
 	}
+
+	/**
+	 * Test that {@link PackageResource} sends the resource version as entity tag and answers a
+	 * matching If-None-Match without opening the resource, with its own tag and the same Vary
+	 * header as the data
+	 */
+	@Test
+	public void eTag()
+	{
+		application.getResourceSettings().setCachingStrategy(
+			new FilenameWithVersionResourceCachingStrategy(new MessageDigestResourceVersion()));
+
+		final AtomicInteger opened = new AtomicInteger();
+		PackageResource resource = new PackageResource(PackageResourceTest.class,
+			"packaged1.txt", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public IResourceStream getResourceStream()
+			{
+				opened.incrementAndGet();
+				return super.getResourceStream();
+			}
+		};
+
+		tester.startResource(resource);
+		String eTag = tester.getLastResponse().getHeader("ETag");
+		assertNotNull(eTag);
+		assertEquals('"' + new MessageDigestResourceVersion().getVersion(resource) + '"', eTag);
+		assertEquals(1, opened.get());
+		String vary = tester.getLastResponse().getHeader("Vary");
+		assertEquals("Accept-Encoding", vary);
+
+		tester.addRequestHeader("If-None-Match", "\"other\", " + eTag);
+		tester.startResource(resource);
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, tester.getLastResponse().getStatus());
+		assertEquals(eTag, tester.getLastResponse().getHeader("ETag"));
+		assertEquals(vary, tester.getLastResponse().getHeader("Vary"));
+		assertEquals(1, opened.get());
+
+		tester.addRequestHeader("If-None-Match", "W/" + eTag);
+		tester.startResource(resource);
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, tester.getLastResponse().getStatus());
+		assertEquals(eTag, tester.getLastResponse().getHeader("ETag"));
+		assertEquals(vary, tester.getLastResponse().getHeader("Vary"));
+
+		String gzipETag = eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+		tester.addRequestHeader("If-None-Match", "W/" + gzipETag);
+		tester.startResource(resource);
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, tester.getLastResponse().getStatus());
+		assertEquals(gzipETag, tester.getLastResponse().getHeader("ETag"));
+		assertEquals(vary, tester.getLastResponse().getHeader("Vary"));
+		assertEquals(1, opened.get());
+
+		tester.addRequestHeader("If-None-Match", "\"other\"");
+		tester.startResource(resource);
+		assertEquals(HttpServletResponse.SC_OK, tester.getLastResponse().getStatus());
+		assertEquals("TEST", tester.getLastResponseAsString());
+		assertEquals(2, opened.get());
+	}
+
+	/**
+	 * Test that a resource which would grow when compressed is sent as it is with its content
+	 * length, instead of being compressed on the fly
+	 */
+	@Test
+	public void tinyResourceIsNotCompressed()
+	{
+		PackageResource resource = new PackageResource(PackageResourceTest.class,
+			"packaged1.txt", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+		};
+
+		tester.addRequestHeader("Accept-Encoding", "gzip, deflate");
+		tester.startResource(resource);
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertNull(tester.getLastResponse().getHeader("Vary"));
+		assertEquals("4", tester.getLastResponse().getHeader("Content-Length"));
+		assertEquals("TEST", tester.getLastResponseAsString());
+	}
+
+	/**
+	 * Test that the compressed data of a resource is cached even if the resource does not cache
+	 * its processed data
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void compressedDataIsCached() throws Exception
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+		{
+			text.append("compressible text ").append(i).append('\n');
+		}
+		final StringResourceStream resourceStream = new StringResourceStream(text);
+		PackageResource resource = new PackageResource(PackageResourceTest.class,
+			"packaged1.txt", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public IResourceStream getResourceStream()
+			{
+				return resourceStream;
+			}
+		};
+
+		ProcessedResourceCache cache = application.getResourceSettings()
+			.getProcessedResourceCache();
+		for (int i = 0; i < 2; i++)
+		{
+			tester.addRequestHeader("Accept-Encoding", "gzip");
+			tester.startResource(resource);
+			assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+			byte[] gzipped = tester.getLastResponse().getBinaryContent();
+			assertEquals(String.valueOf(gzipped.length),
+				tester.getLastResponse().getHeader("Content-Length"));
+			assertEquals(text.toString(), new String(
+				IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped))),
+				"UTF-8"));
+		}
+		assertEquals(1, cache.getCount());
+		assertEquals(1, cache.getHits());
+	}
 }
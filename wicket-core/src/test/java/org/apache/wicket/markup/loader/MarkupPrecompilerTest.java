@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.loader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupFactory;
+import org.apache.wicket.markup.MarkupResourceStream;
+import org.apache.wicket.markup.PrecompiledMarkup;
+import org.apache.wicket.markup.html.basic.SimplePage;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.util.file.Files;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MarkupPrecompiler} and {@link PrecompiledMarkupLoader}
+ */
+public class MarkupPrecompilerTest extends WicketTestCase
+{
+	private static final String PACKAGE_PATH = SimplePage.class.getPackage()
+		.getName()
+		.replace('.', '/');
+
+	private File classesDirectory;
+
+	private int precompiledMarkupLoaded;
+
+	@Override
+	protected WebApplication newApplication()
+	{
+		return new MockApplication()
+		{
+			@Override
+			public RuntimeConfigurationType getConfigurationType()
+			{
+				// precompiled markup is used in deployment mode only
+				return RuntimeConfigurationType.DEPLOYMENT;
+			}
+
+			@Override
+			protected void init()
+			{
+				super.init();
+
+				getMarkupSettings().setMarkupFactory(new MarkupFactory()
+				{
+					@Override
+					public IMarkupLoader getMarkupLoader()
+					{
+						return new TestPrecompiledMarkupLoader();
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 *
+	 */
+	@After
+	public void after()
+	{
+		if (classesDirectory != null)
+		{
+			Files.removeFolder(classesDirectory);
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void precompileAndLoad() throws Exception
+	{
+		classesDirectory = File.createTempFile("MarkupPrecompilerTest", "");
+		classesDirectory.delete();
+		File packageDirectory = new File(classesDirectory, PACKAGE_PATH);
+		packageDirectory.mkdirs();
+		Files.writeTo(new File(packageDirectory, "SimplePage.html"),
+			SimplePage.class.getResourceAsStream("SimplePage.html"));
+
+		int count = new MarkupPrecompiler(classesDirectory, classesDirectory).precompile(tester.getApplication());
+		assertEquals(1, count);
+		assertTrue(new File(packageDirectory, "SimplePage.html" + PrecompiledMarkup.EXTENSION).isFile());
+
+		Markup markup = MarkupFactory.get().getMarkup(new SimplePage(), false);
+
+		assertEquals(1, precompiledMarkupLoaded);
+		assertNotNull(markup.find("myLabel"));
+		assertNotNull(markup.find("myBorder2"));
+	}
+
+	/**
+	 * Reads the precompiled markup from the temporary classes directory.
+	 */
+	private class TestPrecompiledMarkupLoader extends PrecompiledMarkupLoader
+	{
+		@Override
+		protected InputStream getPrecompiledMarkupStream(final Class<?> markupClass,
+			final String name)
+		{
+			try
+			{
+				return new FileInputStream(new File(new File(classesDirectory, PACKAGE_PATH), name));
+			}
+			catch (FileNotFoundException e)
+			{
+				return null;
+			}
+		}
+
+		@Override
+		protected Markup loadPrecompiledMarkup(final MarkupResourceStream markupResourceStream)
+		{
+			Markup markup = super.loadPrecompiledMarkup(markupResourceStream);
+			if (markup != null)
+			{
+				precompiledMarkupLoaded++;
+			}
+			return markup;
+		}
+	}
+}
@@ -432,4 +432,27 @@ public class XmlPullParserTest extends Assert
 		type = parser.next();
 		assertEquals(HttpTagType.CONDITIONAL_COMMENT_ENDIF, type);
 	}
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public final void streaming() throws Exception
+	{
+		final String markup = "<html><body><span wicket:id=\"a\">a</span><!-- comment -->"
+			+ "<script>if (a < b) {}</script><span wicket:id=\"b\"/></body></html>";
+
+		final XmlPullParser full = new XmlPullParser();
+		full.parse(new StringResourceStream(markup).getInputStream(), null);
+		final XmlPullParser streaming = new XmlPullParser(true);
+		streaming.parse(new StringResourceStream(markup).getInputStream(), null);
+
+		HttpTagType type;
+		while ((type = full.next()) != HttpTagType.NOT_INITIALIZED)
+		{
+			assertEquals(type, streaming.next());
+			assertEquals(full.getString().toString(), streaming.getString().toString());
+		}
+		assertEquals(HttpTagType.NOT_INITIALIZED, streaming.next());
+		assertEquals(markup, streaming.getInputFromPositionMarker(-1).toString());
+	}
 }
\ No newline at end of file
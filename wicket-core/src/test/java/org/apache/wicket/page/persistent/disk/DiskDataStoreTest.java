@@ -17,12 +17,17 @@
 package org.apache.wicket.page.persistent.disk;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -373,7 +378,8 @@ public class DiskDataStoreTest extends Assert
 		IStoreSettings storeSettings = new StoreSettings(null);
 		java.io.File fileStoreFolder = storeSettings.getFileStoreFolder();
 
-		dataStore = new DiskDataStore("app1", fileStoreFolder, MAX_SIZE_PER_SESSION);
+		dataStore = new DiskDataStore("app1", fileStoreFolder, MAX_SIZE_PER_SESSION,
+			FILE_CHANNEL_POOL_CAPACITY);
 		int asynchronousQueueCapacity = storeSettings.getAsynchronousQueueCapacity();
 		dataStore = new AsynchronousDataStore(dataStore, asynchronousQueueCapacity);
 
@@ -381,4 +387,97 @@ public class DiskDataStoreTest extends Assert
 
 		dataStore.destroy();
 	}
+
+	/**
+	 * Many threads restore the pages of a single session while others keep overwriting them with
+	 * data of varying size. The session file is small enough to wrap around, so its windows are
+	 * split and merged, but large enough to keep the latest data of every page. Every read must
+	 * return the complete data of the page.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void concurrentReadsInOneSession() throws Exception
+	{
+		final int pageCount = 20;
+		final int operations = 5000;
+		final String sessionId = UUID.randomUUID().toString();
+		final AtomicInteger writes = new AtomicInteger();
+
+		IStoreSettings storeSettings = new StoreSettings(null);
+		java.io.File fileStoreFolder = storeSettings.getFileStoreFolder();
+		final DiskDataStore diskDataStore = new DiskDataStore("app2", fileStoreFolder,
+			Bytes.kilobytes(256), FILE_CHANNEL_POOL_CAPACITY);
+
+		for (int pageId = 0; pageId < pageCount; pageId++)
+		{
+			diskDataStore.storeData(sessionId, pageId, pageData(pageId));
+		}
+
+		final CountDownLatch latch = new CountDownLatch(operations);
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+		for (int i = 0; i < operations; i++)
+		{
+			final boolean write = i % 10 == 0;
+			executor.submit(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						if (write)
+						{
+							// the pages are overwritten in turn, so none of them is evicted
+							int pageId = writes.getAndIncrement() % pageCount;
+							diskDataStore.storeData(sessionId, pageId, pageData(pageId));
+						}
+						else
+						{
+							int pageId = random.nextInt(pageCount);
+							if (!isPageData(pageId, diskDataStore.getData(sessionId, pageId)))
+							{
+								failures.incrementAndGet();
+							}
+						}
+					}
+					finally
+					{
+						latch.countDown();
+					}
+				}
+			});
+		}
+
+		assertTrue(latch.await(1, TimeUnit.MINUTES));
+		executor.shutdown();
+
+		diskDataStore.removeData(sessionId);
+		diskDataStore.destroy();
+
+		assertEquals(0, failures.get());
+	}
+
+	private static byte[] pageData(int pageId)
+	{
+		byte[] data = new byte[1024 + random.nextInt(3 * 1024)];
+		Arrays.fill(data, (byte)pageId);
+		return data;
+	}
+
+	private static boolean isPageData(int pageId, byte[] data)
+	{
+		if (data == null || data.length < 1024)
+		{
+			return false;
+		}
+		for (byte b : data)
+		{
+			if (b != (byte)pageId)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
 }
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page.persistent.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import org.apache.wicket.pageStore.FileChannelPool;
+import org.apache.wicket.util.file.Files;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FileChannelPool}
+ */
+public class FileChannelPoolTest extends Assert
+{
+	private File folder;
+
+	/**
+	 * @throws IOException
+	 */
+	@Before
+	public void before() throws IOException
+	{
+		folder = File.createTempFile("FileChannelPoolTest", "");
+		folder.delete();
+		folder.mkdirs();
+	}
+
+	/**
+	 * 
+	 */
+	@After
+	public void after()
+	{
+		Files.removeFolder(folder);
+	}
+
+	/**
+	 * An already opened channel is reused for the same file.
+	 */
+	@Test
+	public void reuse()
+	{
+		FileChannelPool pool = new FileChannelPool(2);
+		String file = fileName("a");
+
+		FileChannel channel = pool.getFileChannel(file, true);
+		pool.returnFileChannel(channel);
+		assertSame(channel, pool.getFileChannel(file, true));
+		pool.returnFileChannel(channel);
+
+		assertEquals(1, pool.getMisses());
+		assertEquals(1, pool.getHits());
+		assertEquals(0, pool.getEvictions());
+		assertTrue(channel.isOpen());
+
+		pool.destroy();
+		assertFalse(channel.isOpen());
+	}
+
+	/**
+	 * A missing file is not created unless asked to.
+	 */
+	@Test
+	public void noCreate()
+	{
+		FileChannelPool pool = new FileChannelPool(2);
+		assertNull(pool.getFileChannel(fileName("a"), false));
+		assertFalse(new File(fileName("a")).exists());
+		pool.destroy();
+	}
+
+	/**
+	 * The least recently used channel is closed when the capacity is exceeded.
+	 */
+	@Test
+	public void eviction()
+	{
+		FileChannelPool pool = new FileChannelPool(2);
+
+		FileChannel a = pool.getFileChannel(fileName("a"), true);
+		pool.returnFileChannel(a);
+		FileChannel b = pool.getFileChannel(fileName("b"), true);
+		pool.returnFileChannel(b);
+
+		// touch "a" so "b" becomes the eldest
+		pool.returnFileChannel(pool.getFileChannel(fileName("a"), true));
+
+		FileChannel c = pool.getFileChannel(fileName("c"), true);
+		pool.returnFileChannel(c);
+
+		assertEquals(2, pool.getSize());
+		assertEquals(1, pool.getEvictions());
+		assertTrue(a.isOpen());
+		assertFalse(b.isOpen());
+		assertTrue(c.isOpen());
+
+		pool.destroy();
+	}
+
+	/**
+	 * A channel which is in use is closed only when it is returned.
+	 */
+	@Test
+	public void evictionOfUsedChannel()
+	{
+		FileChannelPool pool = new FileChannelPool(1);
+
+		FileChannel a = pool.getFileChannel(fileName("a"), true);
+		FileChannel b = pool.getFileChannel(fileName("b"), true);
+
+		assertEquals(1, pool.getEvictions());
+		assertTrue(a.isOpen());
+
+		pool.returnFileChannel(a);
+		assertFalse(a.isOpen());
+
+		pool.returnFileChannel(b);
+		assertTrue(b.isOpen());
+
+		pool.destroy();
+	}
+
+	/**
+	 * The file is deleted and its channel closed.
+	 */
+	@Test
+	public void closeAndDelete()
+	{
+		FileChannelPool pool = new FileChannelPool(2);
+		String file = fileName("a");
+
+		FileChannel channel = pool.getFileChannel(file, true);
+		pool.returnFileChannel(channel);
+		assertTrue(new File(file).exists());
+
+		pool.closeAndDeleteFileChannel(file);
+		assertFalse(channel.isOpen());
+		assertFalse(new File(file).exists());
+		assertEquals(0, pool.getSize());
+
+		pool.destroy();
+	}
+
+	private String fileName(String name)
+	{
+		return new File(folder, name).getAbsolutePath();
+	}
+}
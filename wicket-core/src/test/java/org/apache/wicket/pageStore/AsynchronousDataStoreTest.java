@@ -17,17 +17,21 @@
 package org.apache.wicket.pageStore;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.wicket.versioning.InMemoryPageStore;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
  * Tests for {@link AsynchronousDataStore}
  */
-public class AsynchronousDataStoreTest
+public class AsynchronousDataStoreTest extends Assert
 {
 	/** the data store under test */
 	private static IDataStore DATA_STORE = new AsynchronousDataStore(new InMemoryPageStore(), 100);
@@ -74,6 +78,66 @@ public class AsynchronousDataStoreTest
 		DATA_STORE.destroy();
 	}
 
+	/**
+	 * Only the newest version of a page waiting in a batch is saved.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void coalescing() throws Exception
+	{
+		final CountDownLatch firstSaveStarted = new CountDownLatch(1);
+		final CountDownLatch releaseFirstSave = new CountDownLatch(1);
+		final List<String> saved = new ArrayList<String>();
+
+		InMemoryPageStore wrapped = new InMemoryPageStore()
+		{
+			@Override
+			public void storeData(String sessionId, int pageId, byte[] pageAsBytes)
+			{
+				if (saved.isEmpty())
+				{
+					firstSaveStarted.countDown();
+					try
+					{
+						releaseFirstSave.await();
+					}
+					catch (InterruptedException e)
+					{
+						throw new RuntimeException(e);
+					}
+				}
+				saved.add(sessionId + ":" + pageId + ":" + pageAsBytes[0]);
+				super.storeData(sessionId, pageId, pageAsBytes);
+			}
+		};
+		AsynchronousDataStore dataStore = new AsynchronousDataStore(wrapped, 100, 10, 1);
+
+		// blocks the saving thread so the following entries are collected in one batch
+		dataStore.storeData("s1", 1, new byte[] { 1 });
+		assertTrue(firstSaveStarted.await(10, TimeUnit.SECONDS));
+
+		dataStore.storeData("s1", 2, new byte[] { 1 });
+		dataStore.storeData("s2", 1, new byte[] { 1 });
+		dataStore.storeData("s1", 2, new byte[] { 2 });
+		dataStore.storeData("s1", 2, new byte[] { 3 });
+		assertEquals(3, dataStore.getData("s1", 2)[0]);
+
+		releaseFirstSave.countDown();
+		dataStore.destroy();
+
+		assertEquals(3, saved.size());
+		assertEquals("s1:1:1", saved.get(0));
+		assertTrue(saved.contains("s1:2:3"));
+		assertTrue(saved.contains("s2:1:1"));
+
+		AsynchronousDataStore.Statistics statistics = dataStore.getStatistics();
+		assertEquals(3, statistics.getStoredCount());
+		assertEquals(2, statistics.getCoalescedCount());
+		assertEquals(0, statistics.getSynchronousFallbackCount());
+		assertEquals(0, dataStore.getQueueSize());
+	}
+
 	private static abstract class AbstractTask implements Runnable
 	{
 
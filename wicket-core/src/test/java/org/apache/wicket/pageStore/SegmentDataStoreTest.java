@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SegmentDataStore}
+ */
+public class SegmentDataStoreTest extends Assert
+{
+	private File folder;
+
+	private SegmentDataStore dataStore;
+
+	/**
+	 * @throws IOException
+	 */
+	@Before
+	public void before() throws IOException
+	{
+		folder = File.createTempFile("SegmentDataStoreTest", "");
+		folder.delete();
+		folder.mkdirs();
+
+		// 100 bytes per segment, at most 3 segments, no background compaction
+		dataStore = new SegmentDataStore("app", folder, Bytes.bytes(100), Bytes.bytes(300), null);
+	}
+
+	/**
+	 * 
+	 */
+	@After
+	public void after()
+	{
+		dataStore.destroy();
+		folder.delete();
+	}
+
+	/**
+	 * Stored data can be read, replaced and removed.
+	 */
+	@Test
+	public void storeGetRemove()
+	{
+		dataStore.storeData("s1", 1, data(10, 1));
+		dataStore.storeData("s2", 1, data(20, 2));
+
+		assertArrayEquals(data(10, 1), dataStore.getData("s1", 1));
+		assertArrayEquals(data(20, 2), dataStore.getData("s2", 1));
+		assertNull(dataStore.getData("s1", 2));
+
+		dataStore.storeData("s1", 1, data(15, 3));
+		assertArrayEquals(data(15, 3), dataStore.getData("s1", 1));
+
+		dataStore.removeData("s1", 1);
+		assertNull(dataStore.getData("s1", 1));
+		assertArrayEquals(data(20, 2), dataStore.getData("s2", 1));
+
+		dataStore.removeData("s2");
+		assertNull(dataStore.getData("s2", 1));
+	}
+
+	/**
+	 * The data buffer is a view on the mapped segment.
+	 */
+	@Test
+	public void dataBuffer()
+	{
+		dataStore.storeData("s1", 1, data(10, 1));
+
+		ByteBuffer buffer = dataStore.getDataBuffer("s1", 1);
+		assertEquals(10, buffer.remaining());
+		assertTrue(buffer.isReadOnly());
+		assertEquals(1, buffer.get(0));
+	}
+
+	/**
+	 * A new segment is started when the current one is full and the oldest segments are dropped
+	 * once the maximum size is reached.
+	 */
+	@Test
+	public void rollAndDrop()
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			dataStore.storeData("s1", i, data(60, i));
+		}
+
+		assertEquals(3, dataStore.getSegmentCount());
+		assertNull(dataStore.getData("s1", 0));
+		for (int i = 1; i < 4; i++)
+		{
+			assertArrayEquals(data(60, i), dataStore.getData("s1", i));
+		}
+	}
+
+	/**
+	 * Segments without used pages are deleted as soon as their sessions are removed.
+	 */
+	@Test
+	public void removeSessionReleasesSegments()
+	{
+		dataStore.storeData("s1", 1, data(60, 1));
+		dataStore.storeData("s2", 1, data(60, 2));
+		dataStore.storeData("s3", 1, data(60, 3));
+		assertEquals(3, dataStore.getSegmentCount());
+
+		dataStore.removeData("s1");
+		assertEquals(2, dataStore.getSegmentCount());
+		assertArrayEquals(data(60, 2), dataStore.getData("s2", 1));
+	}
+
+	/**
+	 * Used pages are moved out of mostly empty segments.
+	 */
+	@Test
+	public void compact()
+	{
+		dataStore.storeData("s1", 1, data(30, 1));
+		dataStore.storeData("s2", 1, data(40, 2));
+		dataStore.storeData("s3", 1, data(35, 3));
+		assertEquals(2, dataStore.getSegmentCount());
+
+		// the first segment has now only 30 of 70 bytes used
+		dataStore.storeData("s2", 1, data(20, 4));
+		dataStore.compact();
+
+		assertEquals(1, dataStore.getSegmentCount());
+		assertArrayEquals(data(30, 1), dataStore.getData("s1", 1));
+		assertArrayEquals(data(20, 4), dataStore.getData("s2", 1));
+		assertArrayEquals(data(35, 3), dataStore.getData("s3", 1));
+	}
+
+	private static byte[] data(int length, int value)
+	{
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++)
+		{
+			data[i] = (byte)(value + i);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import org.apache.wicket.pageStore.DefaultPageStore.SerializedPage;
+import org.apache.wicket.pageStore.DefaultPageStore.SerializedPagesCache;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SerializedPagesCache}
+ */
+public class SerializedPagesCacheTest extends Assert
+{
+	/**
+	 * The least recently used page is evicted when there are too many pages.
+	 */
+	@Test
+	public void evictLeastRecentlyUsed()
+	{
+		SerializedPagesCache cache = new SerializedPagesCache(2);
+
+		cache.storePage(new SerializedPage("s1", 1, new byte[1]));
+		cache.storePage(new SerializedPage("s1", 2, new byte[1]));
+		// touch page 1 so that page 2 becomes the least recently used
+		assertNotNull(cache.getPage("s1", 1));
+		cache.storePage(new SerializedPage("s1", 3, new byte[1]));
+
+		assertNotNull(cache.getPage("s1", 1));
+		assertNull(cache.getPage("s1", 2));
+		assertNotNull(cache.getPage("s1", 3));
+		assertEquals(2, cache.getCount());
+		assertEquals(1, cache.getEvictions());
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	/**
+	 * Pages are evicted when their total size exceeds the limit.
+	 */
+	@Test
+	public void evictBySize()
+	{
+		SerializedPagesCache cache = new SerializedPagesCache(5, Bytes.bytes(100));
+
+		cache.storePage(new SerializedPage("s1", 1, new byte[40]));
+		cache.storePage(new SerializedPage("s1", 2, new byte[40]));
+		assertEquals(Bytes.bytes(80), cache.getSize());
+
+		cache.storePage(new SerializedPage("s1", 3, new byte[40]));
+		assertNull(cache.getPage("s1", 1));
+		assertEquals(2, cache.getCount());
+		assertEquals(Bytes.bytes(80), cache.getSize());
+
+		// too big to be cached at all
+		cache.storePage(new SerializedPage("s1", 4, new byte[101]));
+		assertNull(cache.getPage("s1", 4));
+		assertEquals(2, cache.getCount());
+	}
+
+	/**
+	 * Storing a page again replaces the old entry.
+	 */
+	@Test
+	public void replacePage()
+	{
+		SerializedPagesCache cache = new SerializedPagesCache(5);
+
+		cache.storePage(new SerializedPage("s1", 1, new byte[10]));
+		cache.storePage(new SerializedPage("s1", 1, new byte[20]));
+
+		assertEquals(1, cache.getCount());
+		assertEquals(Bytes.bytes(20), cache.getSize());
+		assertEquals(20, cache.getPage("s1", 1).getData().length);
+	}
+
+	/**
+	 * Removing single pages and all pages of a session.
+	 */
+	@Test
+	public void removePages()
+	{
+		SerializedPagesCache cache = new SerializedPagesCache(100);
+		for (int i = 0; i < 10; i++)
+		{
+			cache.storePage(new SerializedPage("s1", i, new byte[1]));
+			cache.storePage(new SerializedPage("s2", i, new byte[1]));
+		}
+		assertEquals(20, cache.getCount());
+
+		assertNotNull(cache.removePage("s1", 5));
+		assertNull(cache.removePage("s1", 5));
+		assertEquals(19, cache.getCount());
+
+		cache.removePages("s1");
+		assertEquals(10, cache.getCount());
+		assertEquals(Bytes.bytes(10), cache.getSize());
+		assertNull(cache.getPage("s1", 0));
+		assertNotNull(cache.getPage("s2", 0));
+	}
+
+	/**
+	 * A cache with size 0 is disabled.
+	 */
+	@Test
+	public void disabled()
+	{
+		SerializedPagesCache cache = new SerializedPagesCache(0);
+		cache.storePage(new SerializedPage("s1", 1, new byte[1]));
+
+		assertNull(cache.getPage("s1", 1));
+		assertEquals(0, cache.getCount());
+		assertEquals(0, cache.getMisses());
+	}
+}
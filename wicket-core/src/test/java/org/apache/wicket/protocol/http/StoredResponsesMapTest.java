@@ -70,6 +70,54 @@ public class StoredResponsesMapTest extends Assert
 		assertNull(value);
 	}
 
+	/**
+	 * Verifies that {@link StoredResponsesMap} never keeps more than the maximum entries, no matter
+	 * how the keys are spread over its segments
+	 */
+	@Test
+	public void maxEntries()
+	{
+		StoredResponsesMap map = new StoredResponsesMap(20, Duration.days(1));
+		BufferedWebResponse last = new BufferedWebResponse(null);
+		for (int i = 0; i < 1000; i++)
+		{
+			map.put("key" + i, new BufferedWebResponse(null));
+		}
+		map.put("last", last);
+		assertTrue(map.size() <= 20);
+		assertSame(last, map.get("last"));
+		assertSame(last, map.remove("last"));
+		assertFalse(map.containsKey("last"));
+	}
+
+	/**
+	 * Verifies that {@link StoredResponsesMap} keeps up to the maximum entries, even when more
+	 * keys fall into one segment than its share, and evicts the oldest one when it is full
+	 */
+	@Test
+	public void keepsMaxEntries()
+	{
+		StoredResponsesMap map = new StoredResponsesMap(20, Duration.days(1));
+		for (int i = 0; i < 20; i++)
+		{
+			map.put("key" + i, new BufferedWebResponse(null));
+		}
+		assertEquals(20, map.size());
+		for (int i = 0; i < 20; i++)
+		{
+			assertNotNull(map.get("key" + i));
+		}
+
+		map.put("key20", new BufferedWebResponse(null));
+		assertEquals(20, map.size());
+		assertNull(map.get("key0"));
+		assertNotNull(map.get("key20"));
+
+		map.put("key1", new BufferedWebResponse(null));
+		assertEquals(20, map.size());
+		assertNotNull(map.get("key2"));
+	}
+
 	/**
 	 * Verifies that {@link StoredResponsesMap} can have only {@link BufferedWebResponse} values
 	 */
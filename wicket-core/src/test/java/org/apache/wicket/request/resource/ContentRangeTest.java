@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ContentRange}
+ */
+public class ContentRangeTest extends Assert
+{
+	/**
+	 * 
+	 */
+	@Test
+	public void parse()
+	{
+		assertEquals(Arrays.asList(new ContentRange(0, 499)),
+			ContentRange.parse("bytes=0-499", 1000));
+		assertEquals(Arrays.asList(new ContentRange(500, 999)),
+			ContentRange.parse("bytes=500-", 1000));
+		assertEquals(Arrays.asList(new ContentRange(900, 999)),
+			ContentRange.parse("bytes=-100", 1000));
+		assertEquals(Arrays.asList(new ContentRange(0, 999)),
+			ContentRange.parse("bytes=-2000", 1000));
+		assertEquals(Arrays.asList(new ContentRange(990, 999)),
+			ContentRange.parse("bytes=990-2000", 1000));
+		assertEquals(Arrays.asList(new ContentRange(0, 9), new ContentRange(900, 999)),
+			ContentRange.parse("bytes=-100, 0-9", 1000));
+	}
+
+	/**
+	 * Overlapping and adjacent ranges are merged
+	 */
+	@Test
+	public void merge()
+	{
+		assertEquals(Arrays.asList(new ContentRange(0, 149)),
+			ContentRange.parse("bytes=100-149,0-99", 1000));
+		assertEquals(Arrays.asList(new ContentRange(0, 200), new ContentRange(500, 599)),
+			ContentRange.parse("bytes=0-100,500-599,50-200", 1000));
+	}
+
+	/**
+	 * 
+	 */
+	@Test
+	public void unsatisfiable()
+	{
+		assertEquals(Collections.emptyList(), ContentRange.parse("bytes=1000-", 1000));
+		assertEquals(Collections.emptyList(), ContentRange.parse("bytes=-0", 1000));
+		assertEquals(Collections.emptyList(), ContentRange.parse("bytes=0-", 0));
+	}
+
+	/**
+	 * Invalid headers are ignored
+	 */
+	@Test
+	public void invalid()
+	{
+		assertNull(ContentRange.parse(null, 1000));
+		assertNull(ContentRange.parse("items=0-10", 1000));
+		assertNull(ContentRange.parse("bytes=10-5", 1000));
+		assertNull(ContentRange.parse("bytes=abc", 1000));
+		assertNull(ContentRange.parse("bytes=1-x", 1000));
+	}
+
+	/**
+	 * 
+	 */
+	@Test
+	public void headerValue()
+	{
+		assertEquals("bytes 0-499/1000", new ContentRange(0, 499).toHeaderValue(1000));
+		assertEquals(500, new ContentRange(0, 499).getLength());
+	}
+}
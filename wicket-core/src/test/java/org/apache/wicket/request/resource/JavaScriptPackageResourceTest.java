@@ -16,11 +16,16 @@
  */
 package org.apache.wicket.request.resource;
 
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
 import org.apache.wicket.WicketTestCase;
 import org.apache.wicket.javascript.IJavaScriptCompressor;
 import org.apache.wicket.markup.html.PackageResourceTest;
 import org.apache.wicket.mock.MockApplication;
 import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.util.io.IOUtils;
 import org.junit.Test;
 
 /**
@@ -99,6 +104,38 @@ public class JavaScriptPackageResourceTest extends WicketTestCase
 		assertEquals(APP_COMPRESSED, tester.getLastResponseAsString());
 	}
 
+	/**
+	 * Tests that the compressed data is cached instead of compressing it for every request
+	 */
+	@Test
+	public void cachedCompression()
+	{
+		final AtomicInteger compressions = new AtomicInteger();
+		tester.getApplication().getResourceSettings().setJavaScriptCompressor(
+			new IJavaScriptCompressor()
+			{
+				@Override
+				public String compress(String original)
+				{
+					compressions.incrementAndGet();
+					return APP_COMPRESSED;
+				}
+			});
+
+		for (int i = 0; i < 3; i++)
+		{
+			JavaScriptPackageResource resource = new JavaScriptPackageResource(
+				PackageResourceTest.class, "packaged1.txt", null, null, null);
+			tester.startResource(resource);
+			assertEquals(APP_COMPRESSED, tester.getLastResponseAsString());
+		}
+		assertEquals(1, compressions.get());
+		assertEquals(2, tester.getApplication()
+			.getResourceSettings()
+			.getProcessedResourceCache()
+			.getHits());
+	}
+
 	/**
 	 * Tests that a {@link JavaScriptPackageResource} wont be compressed when there is no configured
 	 * {@link IJavaScriptCompressor}
@@ -113,4 +150,57 @@ public class JavaScriptPackageResourceTest extends WicketTestCase
 		tester.startResource(resource);
 		assertEquals("TEST", tester.getLastResponseAsString());
 	}
+
+	/**
+	 * Tests that the compressed data is sent gzipped to clients accepting it, and that the gzipped
+	 * data is cached too
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void precompressedResponse() throws Exception
+	{
+		final StringBuilder script = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+		{
+			script.append("var x").append(i).append(" = 'compressible';\n");
+		}
+		tester.getApplication().getResourceSettings().setJavaScriptCompressor(
+			new IJavaScriptCompressor()
+			{
+				@Override
+				public String compress(String original)
+				{
+					return script.toString();
+				}
+			});
+
+		for (int i = 0; i < 2; i++)
+		{
+			JavaScriptPackageResource resource = new JavaScriptPackageResource(
+				PackageResourceTest.class, "packaged1.txt", null, null, null);
+			tester.addRequestHeader("Accept-Encoding", "gzip, deflate");
+			tester.startResource(resource);
+
+			assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+			assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+			byte[] gzipped = tester.getLastResponse().getBinaryContent();
+			assertTrue(gzipped.length < script.length());
+			assertEquals(script.toString(), new String(
+				IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped))),
+				"UTF-8"));
+		}
+		// both the processed and the gzipped data are taken from the cache
+		assertEquals(2, tester.getApplication()
+			.getResourceSettings()
+			.getProcessedResourceCache()
+			.getHits());
+
+		// not compressed for clients which don't accept it
+		tester.startResource(new JavaScriptPackageResource(PackageResourceTest.class,
+			"packaged1.txt", null, null, null));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+		assertEquals(script.toString(), tester.getLastResponseAsString());
+	}
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Time;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ProcessedResourceCache}
+ */
+public class ProcessedResourceCacheTest extends Assert
+{
+	/**
+	 * Data processed from a differently modified resource is not returned
+	 */
+	@Test
+	public void lastModified()
+	{
+		ProcessedResourceCache cache = new ProcessedResourceCache(Bytes.bytes(100));
+		byte[] data = new byte[10];
+		cache.put("a", Time.millis(1000), data);
+
+		assertSame(data, cache.get("a", Time.millis(1000)));
+		assertNull(cache.get("a", Time.millis(2000)));
+		assertNull(cache.get("b", Time.millis(1000)));
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+
+		cache.put("c", null, data);
+		assertSame(data, cache.get("c", null));
+	}
+
+	/**
+	 * The least recently used entries are dropped when the cache gets too big
+	 */
+	@Test
+	public void maxSize()
+	{
+		ProcessedResourceCache cache = new ProcessedResourceCache(Bytes.bytes(100));
+		cache.put("a", null, new byte[40]);
+		cache.put("b", null, new byte[40]);
+		cache.get("a", null);
+		cache.put("c", null, new byte[40]);
+
+		assertNotNull(cache.get("a", null));
+		assertNull(cache.get("b", null));
+		assertNotNull(cache.get("c", null));
+		assertEquals(80, cache.getSize().bytes());
+
+		// replacing an entry doesn't count it twice
+		cache.put("a", null, new byte[50]);
+		assertEquals(90, cache.getSize().bytes());
+
+		// too big to be cached
+		cache.put("d", null, new byte[101]);
+		assertNull(cache.get("d", null));
+		assertEquals(2, cache.getCount());
+
+		cache.clear();
+		assertEquals(0, cache.getCount());
+		assertEquals(0, cache.getSize().bytes());
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.resource.FileResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ResourceStreamResource}
+ */
+public class ResourceStreamResourceTest extends WicketTestCase
+{
+	private static final String TEXT;
+
+	static
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+		{
+			text.append("line ").append(i).append('\n');
+		}
+		TEXT = text.toString();
+	}
+
+	private ResourceStreamResource newResource(String contentType)
+	{
+		return new ResourceStreamResource(new StringResourceStream(TEXT, contentType));
+	}
+
+	/**
+	 * Text is gzipped on the fly
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void gzip() throws Exception
+	{
+		tester.addRequestHeader("Accept-Encoding", "deflate, gzip");
+		tester.startResource(newResource("text/plain"));
+
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", tester.getLastResponse().getHeader("Vary"));
+		assertNull(tester.getLastResponse().getHeader("Content-Length"));
+		assertEquals(TEXT, read(new GZIPInputStream(new ByteArrayInputStream(
+			tester.getLastResponse().getBinaryContent()))));
+	}
+
+	/**
+	 * deflate is used if gzip is not accepted
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void deflate() throws Exception
+	{
+		tester.addRequestHeader("Accept-Encoding", "gzip;q=0, deflate;q=0.5");
+		tester.startResource(newResource("text/plain"));
+
+		assertEquals("deflate", tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals(TEXT, read(new InflaterInputStream(new ByteArrayInputStream(
+			tester.getLastResponse().getBinaryContent()))));
+	}
+
+	/**
+	 * Nothing is compressed if the client doesn't accept it, compression is disabled or the data
+	 * is not text
+	 */
+	@Test
+	public void notCompressed()
+	{
+		tester.addRequestHeader("Accept-Encoding", "identity, *;q=0");
+		tester.startResource(newResource("text/plain"));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals(TEXT, tester.getLastResponseAsString());
+
+		tester.addRequestHeader("Accept-Encoding", "gzip");
+		tester.startResource(newResource("image/png"));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertNull(tester.getLastResponse().getHeader("Vary"));
+
+		tester.getApplication().getResourceSettings().setCompressResources(false);
+		tester.addRequestHeader("Accept-Encoding", "gzip");
+		tester.startResource(newResource("text/plain"));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals(TEXT, tester.getLastResponseAsString());
+	}
+
+	/**
+	 * A single range is sent with 206 and a Content-Range header
+	 */
+	@Test
+	public void singleRange()
+	{
+		tester.addRequestHeader("Range", "bytes=5-14");
+		tester.addRequestHeader("Accept-Encoding", "gzip");
+		tester.startResource(newResource("text/plain"));
+
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, tester.getLastResponse().getStatus());
+		assertEquals("bytes 5-14/" + TEXT.length(),
+			tester.getLastResponse().getHeader("Content-Range"));
+		assertEquals("10", tester.getLastResponse().getHeader("Content-Length"));
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+		assertEquals(TEXT.substring(5, 15), tester.getLastResponseAsString());
+	}
+
+	/**
+	 * Files and their ranges are transferred from the file channel
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void file() throws Exception
+	{
+		File file = File.createTempFile("ResourceStreamResourceTest", ".bin");
+		try
+		{
+			FileOutputStream out = new FileOutputStream(file);
+			out.write(TEXT.getBytes("UTF-8"));
+			out.close();
+
+			tester.startResource(new ResourceStreamResource(new FileResourceStream(file)));
+			assertEquals(HttpServletResponse.SC_OK, tester.getLastResponse().getStatus());
+			assertEquals(TEXT, tester.getLastResponseAsString());
+
+			tester.addRequestHeader("Range", "bytes=-7");
+			tester.startResource(new ResourceStreamResource(new FileResourceStream(file)));
+			assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT,
+				tester.getLastResponse().getStatus());
+			assertEquals(TEXT.substring(TEXT.length() - 7), tester.getLastResponseAsString());
+
+			tester.addRequestHeader("Range", "bytes=10-19,0-4");
+			tester.startResource(new ResourceStreamResource(new FileResourceStream(file)));
+			assertMultipart(tester.getLastResponse().getBinaryContent());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Several ranges are sent as multipart/byteranges
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void multipleRanges() throws Exception
+	{
+		tester.addRequestHeader("Range", "bytes=10-19,0-4");
+		tester.startResource(newResource("text/plain"));
+
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, tester.getLastResponse().getStatus());
+		assertTrue(tester.getLastResponse().getContentType().startsWith(
+			"multipart/byteranges; boundary="));
+		byte[] content = tester.getLastResponse().getBinaryContent();
+		assertEquals(String.valueOf(content.length),
+			tester.getLastResponse().getHeader("Content-Length"));
+		assertMultipart(content);
+	}
+
+	private void assertMultipart(byte[] content) throws Exception
+	{
+		String body = new String(content, "ISO-8859-1");
+		int first = body.indexOf("Content-Range: bytes 0-4/" + TEXT.length() + "\r\n\r\n" +
+			TEXT.substring(0, 5) + "\r\n--");
+		int second = body.indexOf("Content-Range: bytes 10-19/" + TEXT.length() + "\r\n\r\n" +
+			TEXT.substring(10, 20) + "\r\n--");
+		assertTrue(body, first > 0);
+		assertTrue(body, second > first);
+		assertTrue(body, body.endsWith("--\r\n"));
+	}
+
+	/**
+	 * Unsatisfiable ranges are answered with 416, a non matching If-Range with the whole stream
+	 */
+	@Test
+	public void rangeNotApplicable()
+	{
+		tester.addRequestHeader("Range", "bytes=100000-");
+		tester.startResource(newResource("text/plain"));
+		assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+			tester.getLastResponse().getStatus());
+
+		tester.addRequestHeader("Range", "bytes=0-4");
+		tester.addRequestHeader("If-Range", "\"some-etag\"");
+		tester.startResource(newResource("text/plain"));
+		assertEquals(HttpServletResponse.SC_OK, tester.getLastResponse().getStatus());
+		assertEquals("bytes", tester.getLastResponse().getHeader("Accept-Ranges"));
+		assertEquals(TEXT, tester.getLastResponseAsString());
+	}
+
+	private static String read(InputStream in) throws Exception
+	{
+		return new String(IOUtils.toByteArray(in), "UTF-8");
+	}
+}
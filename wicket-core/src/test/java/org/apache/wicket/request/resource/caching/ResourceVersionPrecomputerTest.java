@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource.caching;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.WicketTestCase;
+import org.apache.wicket.markup.html.link.AbstractLinkTest;
+import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.request.resource.caching.version.CachingResourceVersion;
+import org.apache.wicket.request.resource.caching.version.IResourceVersion;
+import org.apache.wicket.request.resource.caching.version.MessageDigestResourceVersion;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ResourceVersionPrecomputer}
+ */
+public class ResourceVersionPrecomputerTest extends WicketTestCase
+{
+	/**
+	 * The packages of the scopes are scanned for files with the configured extensions
+	 */
+	@Test
+	public void scan()
+	{
+		Collection<String> names = new ResourceVersionPrecomputer().scan(tester.getApplication(),
+			AbstractLinkTest.class);
+
+		assertTrue(names.contains("test.css"));
+		assertTrue(names.contains("test2_myStyle.css"));
+		assertTrue(names.contains("test3_de_DE.css"));
+		for (String name : names)
+		{
+			assertTrue(name, name.endsWith(".css") || name.endsWith(".js"));
+		}
+
+		names = new ResourceVersionPrecomputer().setExtensions("txt").scan(
+			tester.getApplication(), AbstractLinkTest.class);
+		assertFalse(names.contains("test.css"));
+	}
+
+	/**
+	 * Precomputed versions are pinned and neither evicted nor computed again
+	 */
+	@Test
+	public void precompute()
+	{
+		CountingResourceVersion counting = new CountingResourceVersion();
+		CachingResourceVersion caching = new CachingResourceVersion(counting, 1);
+		tester.getApplication()
+			.getResourceSettings()
+			.setCachingStrategy(new FilenameWithVersionResourceCachingStrategy(caching));
+
+		int count = new ResourceVersionPrecomputer(AbstractLinkTest.class).setThreadCount(2)
+			.precompute(tester.getApplication());
+
+		assertTrue(count >= 3);
+		assertEquals(count, caching.getPinnedCount());
+		int computed = counting.count.get();
+
+		IStaticCacheableResource resource = (IStaticCacheableResource)new PackageResourceReference(
+			AbstractLinkTest.class, "test.css").getResource();
+		String version = caching.getVersion(resource);
+
+		assertEquals(new MessageDigestResourceVersion().getVersion(resource), version);
+		assertEquals(computed, counting.count.get());
+	}
+
+	/**
+	 * Nothing is precomputed in development mode
+	 */
+	@Test
+	public void developmentMode()
+	{
+		CountingResourceVersion counting = new CountingResourceVersion();
+		tester.getApplication()
+			.getResourceSettings()
+			.setCachingStrategy(
+				new FilenameWithVersionResourceCachingStrategy(new CachingResourceVersion(counting)));
+
+		new ResourceVersionPrecomputer(AbstractLinkTest.class).onAfterInitialized(tester.getApplication());
+
+		assertEquals(0, counting.count.get());
+	}
+
+	private static class CountingResourceVersion implements IResourceVersion
+	{
+		private final AtomicInteger count = new AtomicInteger();
+
+		private final IResourceVersion delegate = new MessageDigestResourceVersion();
+
+		@Override
+		public String getVersion(IStaticCacheableResource resource)
+		{
+			count.incrementAndGet();
+			return delegate.getVersion(resource);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.compress;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompressingSerializer} and the built-in {@link ICompressor}s
+ */
+public class CompressingSerializerTest extends Assert
+{
+	/**
+	 * Round trips compressible, incompressible and degenerated data through both compressors
+	 */
+	@Test
+	public void roundTrip()
+	{
+		for (ICompressor compressor : new ICompressor[] { new LzfCompressor(),
+				new DeflateCompressor(), new DeflateCompressor(9) })
+		{
+			for (byte[] data : newTestData())
+			{
+				byte[] compressed = compressor.compress(data);
+				byte[] decompressed = compressor.decompress(compressed, 0, compressed.length,
+					data.length);
+				assertTrue(compressor.toString(), Arrays.equals(data, decompressed));
+			}
+		}
+	}
+
+	/**
+	 * Small data is not compressed, large compressible data is
+	 */
+	@Test
+	public void threshold()
+	{
+		CompressingSerializer serializer = new CompressingSerializer(new BytesSerializer(),
+			new LzfCompressor(), Bytes.bytes(100));
+
+		byte[] small = repeated(99);
+		assertSame(small, serializer.serialize(small));
+		assertEquals(1, serializer.getStatistics().getSkippedCount());
+
+		byte[] large = repeated(10000);
+		byte[] compressed = serializer.serialize(large);
+		assertTrue(compressed.length < large.length / 10);
+		assertEquals(1, serializer.getStatistics().getCompressedCount());
+		assertTrue(serializer.getStatistics().getCompressionRatio() < 0.1);
+
+		assertTrue(Arrays.equals(large, (byte[])serializer.deserialize(compressed)));
+		assertTrue(Arrays.equals(small, (byte[])serializer.deserialize(small)));
+		assertEquals(1, serializer.getStatistics().getDecompressedCount());
+	}
+
+	/**
+	 * Incompressible data is stored as is
+	 */
+	@Test
+	public void incompressible()
+	{
+		CompressingSerializer serializer = new CompressingSerializer(new BytesSerializer(),
+			new DeflateCompressor(), Bytes.bytes(0));
+
+		byte[] data = new byte[5000];
+		new Random(7).nextBytes(data);
+		assertSame(data, serializer.serialize(data));
+	}
+
+	/**
+	 * Data compressed with one built-in compressor can be read after switching to another one
+	 */
+	@Test
+	public void changedCompressor()
+	{
+		byte[] data = repeated(5000);
+		byte[] compressed = new CompressingSerializer(new BytesSerializer(),
+			new DeflateCompressor(), Bytes.bytes(0)).serialize(data);
+
+		CompressingSerializer serializer = new CompressingSerializer(new BytesSerializer(),
+			new LzfCompressor(), Bytes.bytes(0));
+		assertTrue(Arrays.equals(data, (byte[])serializer.deserialize(compressed)));
+	}
+
+	private static byte[][] newTestData()
+	{
+		byte[] random = new byte[20000];
+		new Random(42).nextBytes(random);
+
+		byte[] text = new byte[30000];
+		byte[] word = "org.apache.wicket.markup.html.basic.Label".getBytes();
+		Random r = new Random(3);
+		for (int i = 0; i < text.length; i++)
+		{
+			text[i] = r.nextInt(10) == 0 ? (byte)r.nextInt() : word[i % word.length];
+		}
+
+		return new byte[][] { new byte[0], new byte[] { 1 }, new byte[] { 1, 2 },
+				new byte[] { 1, 1, 1 }, repeated(1000), random, text };
+	}
+
+	private static byte[] repeated(int length)
+	{
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++)
+		{
+			data[i] = (byte)(i % 7);
+		}
+		return data;
+	}
+
+	/**
+	 * A serializer for byte arrays
+	 */
+	private static class BytesSerializer implements ISerializer
+	{
+		@Override
+		public byte[] serialize(Object object)
+		{
+			return (byte[])object;
+		}
+
+		@Override
+		public Object deserialize(byte[] data)
+		{
+			return data;
+		}
+	}
+}
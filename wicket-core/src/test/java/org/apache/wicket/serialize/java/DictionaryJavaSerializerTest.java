@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.util.file.Files;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DictionaryJavaSerializer}
+ */
+public class DictionaryJavaSerializerTest extends Assert
+{
+	private File dictionaryFile;
+
+	/**
+	 * @throws IOException
+	 */
+	@Before
+	public void before() throws IOException
+	{
+		dictionaryFile = File.createTempFile("wicket-class-dictionary", ".bin");
+		Files.remove(dictionaryFile);
+	}
+
+	/**
+	 */
+	@After
+	public void after()
+	{
+		Files.remove(dictionaryFile);
+	}
+
+	/**
+	 * The serialized data is smaller than with full descriptors and can be read back
+	 */
+	@Test
+	public void smallerThanFullDescriptors()
+	{
+		DictionaryJavaSerializer serializer = new DictionaryJavaSerializer("key", dictionaryFile);
+		JavaSerializer fullSerializer = new JavaSerializer("key");
+
+		Node object = newTree();
+		byte[] data = serializer.serialize(object);
+		byte[] fullData = fullSerializer.serialize(object);
+		assertTrue(data.length < fullData.length);
+
+		Node deserialized = (Node)serializer.deserialize(data);
+		assertEquals(object.toString(), deserialized.toString());
+		assertTrue(serializer.getDictionary().size() > 0);
+	}
+
+	/**
+	 * The persisted dictionary can read data written before a restart
+	 */
+	@Test
+	public void persistedDictionary()
+	{
+		Node object = newTree();
+		byte[] data = new DictionaryJavaSerializer("key", dictionaryFile).serialize(object);
+
+		DictionaryJavaSerializer restarted = new DictionaryJavaSerializer("key", dictionaryFile);
+		assertEquals(object.toString(), restarted.deserialize(data).toString());
+
+		// the known descriptors are not registered again
+		int size = restarted.getDictionary().size();
+		assertArrayEquals(data, restarted.serialize(object));
+		assertEquals(size, restarted.getDictionary().size());
+	}
+
+	/**
+	 * Data written with an unknown dictionary cannot be read
+	 */
+	@Test(expected = RuntimeException.class)
+	public void unknownDescriptor()
+	{
+		byte[] data = new DictionaryJavaSerializer("key", dictionaryFile).serialize(newTree());
+
+		new DictionaryJavaSerializer("key", new ClassDescriptorDictionary()).deserialize(data);
+	}
+
+	private static Node newTree()
+	{
+		Node root = new Node("root");
+		for (int i = 0; i < 10; i++)
+		{
+			Node child = new Node("child" + i);
+			child.children.add(new Leaf(i));
+			root.children.add(child);
+		}
+		return root;
+	}
+
+	private static class Node implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+
+		private final List<Serializable> children = new ArrayList<Serializable>();
+
+		private Node(String name)
+		{
+			this.name = name;
+		}
+
+		@Override
+		public String toString()
+		{
+			return name + children;
+		}
+	}
+
+	private static class Leaf implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int value;
+
+		private Leaf(int value)
+		{
+			this.value = value;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.valueOf(value);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link JavaSerializer}
+ */
+public class JavaSerializerTest extends Assert
+{
+	/**
+	 * Serializes objects of different sizes with reused buffers
+	 */
+	@Test
+	public void reusedBuffers()
+	{
+		JavaSerializer serializer = new JavaSerializer("key", 1, Bytes.kilobytes(64));
+
+		for (int size : new int[] { 10, 100000, 10, 1000, 20000, 5 })
+		{
+			List<String> object = newList(size);
+			byte[] data = serializer.serialize(object);
+			assertEquals(object, serializer.deserialize(data));
+		}
+	}
+
+	/**
+	 * The output is the same with and without pooling
+	 */
+	@Test
+	public void sameOutputWithoutPooling()
+	{
+		JavaSerializer pooling = new JavaSerializer("key");
+		JavaSerializer notPooling = new JavaSerializer("key", 0, Bytes.bytes(0));
+
+		List<String> object = newList(5000);
+		byte[] expected = notPooling.serialize(object);
+		assertArrayEquals(expected, pooling.serialize(object));
+		assertArrayEquals(expected, pooling.serialize(object));
+	}
+
+	/**
+	 * Non serializable objects are not serialized and their buffer is still reusable
+	 */
+	@Test
+	public void notSerializable()
+	{
+		JavaSerializer serializer = new JavaSerializer("key", 1, Bytes.kilobytes(64));
+
+		List<Object> object = new ArrayList<Object>(newList(100));
+		object.add(new Object());
+		assertNull(serializer.serialize(object));
+
+		List<String> serializable = newList(100);
+		assertEquals(serializable, serializer.deserialize(serializer.serialize(serializable)));
+	}
+
+	private static List<String> newList(int size)
+	{
+		List<String> list = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++)
+		{
+			list.add("item" + i);
+		}
+		return list;
+	}
+}
@@ -737,4 +737,37 @@ public class PropertyResolverTest extends WicketTestCase
 		Object actual = converter.convert(date, Long.class);
 		assertEquals(date.getTime(), actual);
 	}
+
+	/**
+	 * Repeated lookups go through the cached getter chain, which must not be used for objects of
+	 * other classes.
+	 */
+	@Test
+	public void cachedExpressionWithChangingClasses()
+	{
+		Address address = new Address();
+		address.setStreet("wicket-street");
+		person.setAddress(address);
+		assertEquals("wicket-street", PropertyResolver.getValue("address.street", person));
+		assertEquals("wicket-street", PropertyResolver.getValue("address.street", person));
+
+		person.setAddress(new Address()
+		{
+			@Override
+			public String getStreet()
+			{
+				return "overridden-street";
+			}
+		});
+		assertEquals("overridden-street", PropertyResolver.getValue("address.street", person));
+
+		person.setAddress(null);
+		assertNull(PropertyResolver.getValue("address.street", person));
+
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("address", address);
+		assertEquals("wicket-street", PropertyResolver.getValue("address.street", map));
+		map.put("address", new HashMap<String, String>());
+		assertNull(PropertyResolver.getValue("address.street", map));
+	}
 }
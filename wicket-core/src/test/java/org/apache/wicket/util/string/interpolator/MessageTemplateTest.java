@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.string.interpolator;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link MessageTemplate}
+ */
+public class MessageTemplateTest extends Assert
+{
+	/**
+	 * 
+	 */
+	@Test
+	public void properties()
+	{
+		TestClass object = new TestClass("value");
+		assertEquals("a value b $ ${none}",
+			MessageTemplate.forProperties("a ${key} b $$ ${none}").format(null, object));
+		assertEquals("${key}", MessageTemplate.forProperties("${key}").format(null, null));
+	}
+
+	/**
+	 * 
+	 */
+	@Test
+	public void sameTemplate()
+	{
+		assertSame(MessageTemplate.forMessage("{0}", Locale.ENGLISH, true),
+			MessageTemplate.forMessage("{0}", Locale.ENGLISH, true));
+		assertNotSame(MessageTemplate.forMessage("{0}", Locale.ENGLISH, true),
+			MessageTemplate.forMessage("{0}", Locale.GERMAN, true));
+	}
+
+	/**
+	 * The result has to be the same as applying {@link MessageFormat} first and interpolating the
+	 * properties afterwards.
+	 */
+	@Test
+	public void messageFormat()
+	{
+		TestClass object = new TestClass("value");
+		Object[] arguments = new Object[] { "text", 1234.5, 2, null };
+
+		assertEquals("It's text, 1,234.5 and {7}",
+			MessageTemplate.forMessage("It's {0}, {1} and {7}", Locale.ENGLISH, false).format(
+				arguments, null));
+		assertEquals("1.234,5 - 2 files - null",
+			MessageTemplate.forMessage("{1} - {2,choice,1#one file|1<{2} files} - {3}",
+				Locale.GERMAN, false).format(arguments, null));
+		assertEquals("value's text ${none}",
+			MessageTemplate.forMessage("${key}'s {0} ${none}", Locale.ENGLISH, true).format(
+				arguments, object));
+		assertEquals("0.50",
+			MessageTemplate.forMessage("{0,number,0.00}", Locale.ENGLISH, true).format(
+				new Object[] { 0.5 }, object));
+	}
+
+	/**
+	 * Property expressions formed by parameters are interpolated too
+	 */
+	@Test
+	public void propertyInParameter()
+	{
+		TestClass object = new TestClass("value");
+		assertEquals("value", MessageTemplate.forMessage("{0}", Locale.ENGLISH, true).format(
+			new Object[] { "${key}" }, object));
+	}
+
+	private static class TestClass
+	{
+		private final String key;
+
+		/** null values leave their expressions as they are */
+		private final String none = null;
+
+		public TestClass(String key)
+		{
+			this.key = key;
+		}
+	}
+}
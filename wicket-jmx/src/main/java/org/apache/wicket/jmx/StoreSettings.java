@@ -17,6 +17,8 @@
 package org.apache.wicket.jmx;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.pageStore.DiskDataStore;
+import org.apache.wicket.pageStore.FileChannelPool;
 
 /**
  * Exposes Application's StoreSettings for JMX.
@@ -55,9 +57,58 @@ public class StoreSettings implements StoreSettingsMBean
 		return application.getStoreSettings().getAsynchronousQueueCapacity();
 	}
 
+	public int getAsynchronousBatchSize()
+	{
+		return application.getStoreSettings().getAsynchronousBatchSize();
+	}
+
+	public int getAsynchronousThreadCount()
+	{
+		return application.getStoreSettings().getAsynchronousThreadCount();
+	}
+
 	public boolean isAsynchronous()
 	{
 		return application.getStoreSettings().isAsynchronous();
 	}
 
+	public int getFileChannelPoolCapacity()
+	{
+		return application.getStoreSettings().getFileChannelPoolCapacity();
+	}
+
+	public int getFileChannelPoolSize()
+	{
+		FileChannelPool pool = getFileChannelPool();
+		return pool != null ? pool.getSize() : 0;
+	}
+
+	public long getFileChannelPoolHits()
+	{
+		FileChannelPool pool = getFileChannelPool();
+		return pool != null ? pool.getHits() : 0;
+	}
+
+	public long getFileChannelPoolMisses()
+	{
+		FileChannelPool pool = getFileChannelPool();
+		return pool != null ? pool.getMisses() : 0;
+	}
+
+	public long getFileChannelPoolEvictions()
+	{
+		FileChannelPool pool = getFileChannelPool();
+		return pool != null ? pool.getEvictions() : 0;
+	}
+
+	/**
+	 * @return the pool of the application's {@link DiskDataStore} or {@code null} if the
+	 *         application doesn't use {@link DiskDataStore}
+	 */
+	private FileChannelPool getFileChannelPool()
+	{
+		DiskDataStore dataStore = DiskDataStore.get(application.getName());
+		return dataStore != null ? dataStore.getFileChannelPool() : null;
+	}
+
 }
@@ -48,9 +48,45 @@ public interface StoreSettingsMBean
 	 */
 	int getAsynchronousQueueCapacity();
 
+	/**
+	 * @return the maximum number of pages saved per wake-up of an asynchronous saving thread
+	 */
+	int getAsynchronousBatchSize();
+
+	/**
+	 * @return the number of threads which save the pages asynchronously
+	 */
+	int getAsynchronousThreadCount();
+
 	/**
 	 * @return {@code true} when the HTTP worker thread doesn't wait for the storing of the page's
 	 *         bytes in {@link IDataStore}
 	 */
 	boolean isAsynchronous();
+
+	/**
+	 * @return the maximum number of session files which {@link DiskDataStore} keeps open at the
+	 *         same time
+	 */
+	int getFileChannelPoolCapacity();
+
+	/**
+	 * @return the number of session files currently kept open by {@link DiskDataStore}
+	 */
+	int getFileChannelPoolSize();
+
+	/**
+	 * @return how many times {@link DiskDataStore} reused an already opened session file
+	 */
+	long getFileChannelPoolHits();
+
+	/**
+	 * @return how many times {@link DiskDataStore} had to open a session file
+	 */
+	long getFileChannelPoolMisses();
+
+	/**
+	 * @return how many session files have been closed because too many were opened
+	 */
+	long getFileChannelPoolEvictions();
 }
@@ -17,10 +17,12 @@
 package org.apache.wicket.request.http;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 
 import javax.servlet.http.Cookie;
 
 import org.apache.wicket.request.Response;
+import org.apache.wicket.util.io.Streams;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.time.Duration;
@@ -181,6 +183,26 @@ public abstract class WebResponse extends Response
 	 */
 	public abstract void flush();
 
+	/**
+	 * Writes a part of a file to the response. The default implementation copies it through
+	 * {@link #getOutputStream()} with a large buffer; responses with direct access to the output
+	 * may override it to transfer the data more efficiently.
+	 * 
+	 * @param channel
+	 *            the channel of the file
+	 * @param position
+	 *            the position of the first byte to write
+	 * @param count
+	 *            the number of bytes to write
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public void transferFrom(final FileChannel channel, final long position, final long count)
+		throws IOException
+	{
+		Streams.copy(channel, position, count, getOutputStream());
+	}
+
 	/**
 	 * Make this response non-cacheable
 	 */
@@ -0,0 +1,545 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Like {@link FullyBufferedReader} it provides String like methods to navigate (usually forward)
+ * in the data of a source reader, but the data are read in chunks as they are accessed instead of
+ * all at once. The characters before the position marker, the current position and the index lines
+ * were last counted to are discarded when the buffer needs space for the next chunk. The positions
+ * are always relative to the start of the data.
+ * <p>
+ * Accessing a discarded character results in an {@link IllegalStateException}. The source reader
+ * is closed as soon as its end has been reached.
+ * <p>
+ * The line and column numbers are NOT automatically updated. You must call
+ * {@link #countLinesTo(int)}
+ * 
+ * @see FullyBufferedReader
+ */
+public final class IncrementallyBufferedReader
+{
+	/** The default number of characters read at once */
+	public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+	/** The source reader, null once all the data have been read */
+	private Reader reader;
+
+	/** The number of characters read at once */
+	private final int chunkSize;
+
+	/** All the data, if they are in memory already. Null if read from the source reader */
+	private final String input;
+
+	/** The characters read and not yet discarded */
+	private char[] buffer;
+
+	/** The position of the first character in the buffer */
+	private int offset;
+
+	/** The number of characters in the buffer */
+	private int length;
+
+	/** Position in parse. */
+	private int inputPosition;
+
+	/** Current line number */
+	private int lineNumber = 1;
+
+	/** current column number. */
+	private int columnNumber = 1;
+
+	/** Last place we counted lines from. */
+	private int lastLineCountIndex;
+
+	/** A variable to remember a certain position in the markup */
+	private int positionMarker;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param reader
+	 *            The source reader to load the data from
+	 */
+	public IncrementallyBufferedReader(final Reader reader)
+	{
+		this(reader, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param reader
+	 *            The source reader to load the data from
+	 * @param chunkSize
+	 *            The number of characters read at once
+	 */
+	public IncrementallyBufferedReader(final Reader reader, final int chunkSize)
+	{
+		Args.notNull(reader, "reader");
+		if (chunkSize < 1)
+		{
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+
+		this.reader = reader;
+		this.chunkSize = chunkSize;
+		input = null;
+		buffer = new char[chunkSize];
+	}
+
+	/**
+	 * Construct a reader for data which are in memory already. Nothing is discarded.
+	 * 
+	 * @param input
+	 *            The source string
+	 */
+	public IncrementallyBufferedReader(final String input)
+	{
+		Args.notNull(input, "input");
+
+		this.input = input;
+		chunkSize = 0;
+		length = input.length();
+	}
+
+	/**
+	 * Get the characters from the position marker to toPos.
+	 * <p>
+	 * If toPos < 0, than get all data from the position marker until the end. If toPos less than
+	 * the current position marker than return an empty string ""
+	 * 
+	 * @param toPos
+	 *            Index of first character not included
+	 * @return Raw markup (a string) in between these two positions.
+	 */
+	public final CharSequence getSubstring(int toPos)
+	{
+		if (toPos < 0)
+		{
+			toPos = size();
+		}
+		else if (toPos < positionMarker)
+		{
+			return "";
+		}
+		return getSubstring(positionMarker, toPos);
+	}
+
+	/**
+	 * Get the characters from in between both positions including the char at fromPos, excluding
+	 * the char at toPos
+	 * 
+	 * @param fromPos
+	 *            first index
+	 * @param toPos
+	 *            second index
+	 * @return the string (raw markup) in between both positions
+	 */
+	public final CharSequence getSubstring(final int fromPos, final int toPos)
+	{
+		if ((fromPos < 0) || (fromPos > toPos))
+		{
+			throw new IndexOutOfBoundsException("from: " + fromPos + ", to: " + toPos);
+		}
+		if (fromPos == toPos)
+		{
+			return "";
+		}
+		if (fill(toPos - 1) == false)
+		{
+			throw new IndexOutOfBoundsException("to: " + toPos + ", size: " + (offset + length));
+		}
+		if (input != null)
+		{
+			return input.substring(fromPos, toPos);
+		}
+		checkNotDiscarded(fromPos);
+
+		return new String(buffer, fromPos - offset, toPos - fromPos);
+	}
+
+	/**
+	 * Gets the current input position
+	 * 
+	 * @return input position
+	 */
+	public final int getPosition()
+	{
+		return inputPosition;
+	}
+
+	/**
+	 * Remember the current position in markup
+	 * 
+	 * @param pos
+	 */
+	public final void setPositionMarker(final int pos)
+	{
+		positionMarker = pos;
+	}
+
+	/**
+	 * @return The characters read and not yet discarded
+	 */
+	@Override
+	public String toString()
+	{
+		if (input != null)
+		{
+			return input;
+		}
+		return new String(buffer, 0, length);
+	}
+
+	/**
+	 * Counts lines starting where we last left off up to the index provided.
+	 * 
+	 * @param end
+	 *            End index
+	 */
+	public final void countLinesTo(final int end)
+	{
+		for (int i = lastLineCountIndex; i < end; i++)
+		{
+			final char ch = charAt(i);
+			if (ch == '\n')
+			{
+				columnNumber = 1;
+				lineNumber++;
+			}
+			else if (ch != '\r')
+			{
+				columnNumber++;
+			}
+		}
+
+		lastLineCountIndex = end;
+	}
+
+	/**
+	 * Find a char starting at the current input position
+	 * 
+	 * @param ch
+	 *            The char to search for
+	 * @return -1 if not found
+	 */
+	public final int find(final char ch)
+	{
+		return find(ch, inputPosition);
+	}
+
+	/**
+	 * Find a char starting at the position provided
+	 * 
+	 * @param ch
+	 *            The char to search for
+	 * @param startPos
+	 *            The index to start at
+	 * @return -1 if not found
+	 */
+	public final int find(final char ch, final int startPos)
+	{
+		for (int pos = Math.max(startPos, 0); fill(pos); pos++)
+		{
+			if (charAt(pos) == ch)
+			{
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the string starting at the current input position
+	 * 
+	 * @param str
+	 *            The string to search for
+	 * @return -1 if not found
+	 */
+	public final int find(final String str)
+	{
+		return find(str, inputPosition);
+	}
+
+	/**
+	 * Find the string starting at the position provided
+	 * 
+	 * @param str
+	 *            The string to search for
+	 * @param startPos
+	 *            The index to start at
+	 * @return -1 if not found
+	 */
+	public final int find(final String str, final int startPos)
+	{
+		if (str.length() == 0)
+		{
+			return fill(startPos) ? Math.max(startPos, 0) : size();
+		}
+
+		final char first = str.charAt(0);
+		for (int pos = find(first, startPos); pos != -1; pos = find(first, pos + 1))
+		{
+			int i = 1;
+			while ((i < str.length()) && fill(pos + i) && (charAt(pos + i) == str.charAt(i)))
+			{
+				i++;
+			}
+			if (i == str.length())
+			{
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find a char starting at the position provided. The char must not be inside a quoted string
+	 * (single or double)
+	 * 
+	 * @param ch
+	 *            The char to search for
+	 * @param startPos
+	 *            The index to start at
+	 * @return -1 if not found
+	 * @throws ParseException
+	 */
+	public int findOutOfQuotes(final char ch, final int startPos) throws ParseException
+	{
+		return findOutOfQuotes(ch, startPos, (char)0);
+	}
+
+	/**
+	 * Find a char starting at the position provided. The char must not be inside a quoted string
+	 * (single or double)
+	 * 
+	 * @param ch
+	 *            The char to search for
+	 * @param startPos
+	 *            The index to start at
+	 * @param quotationChar
+	 *            The current quotation char. Must be ' or ", otherwise will be ignored.
+	 * @return -1 if not found
+	 * @throws ParseException
+	 */
+	public int findOutOfQuotes(final char ch, final int startPos, char quotationChar)
+		throws ParseException
+	{
+		int closeBracketIndex = find(ch, startPos + 1);
+
+		if (closeBracketIndex != -1)
+		{
+			for (int i = startPos; i <= closeBracketIndex; i++)
+			{
+				char currentChar = charAt(i);
+				char previousTag = charAt(i > startPos ? i - 1 : startPos);
+
+				if (quotationChar == 0 && (currentChar == '\'' || currentChar == '\"'))
+				{// I'm entering inside a quoted string. Set quotationChar
+					quotationChar = currentChar;
+					countLinesTo(i);
+				}
+				else if (currentChar == quotationChar && previousTag != '\\')
+				{ // I'm out of quotes, reset quotationChar
+					quotationChar = 0;
+				}
+				// I've found character but I'm inside quotes
+				if (currentChar == ch && quotationChar != 0)
+				{
+					return findOutOfQuotes(ch, closeBracketIndex + 1, quotationChar);
+				}
+			}
+		}
+		else if (quotationChar != 0)
+		{
+			// quotes not balanced!
+			throw new ParseException("Opening/closing quote not found for quote at " + "(line " +
+				getLineNumber() + ", column " + getColumnNumber() + ")", startPos);
+		}
+
+		return closeBracketIndex;
+	}
+
+	/**
+	 * Position the reader at the index provided. Could be anywhere within the data
+	 * 
+	 * @param pos
+	 *            The new current position
+	 */
+	public final void setPosition(final int pos)
+	{
+		inputPosition = pos;
+	}
+
+	/**
+	 * Get the column number. Note: The column number depends on you calling countLinesTo(pos). It
+	 * is not necessarily the column number matching the current position in the stream.
+	 * 
+	 * @return column number
+	 */
+	public final int getColumnNumber()
+	{
+		return columnNumber;
+	}
+
+	/**
+	 * Get the line number. Note: The line number depends on you calling countLinesTo(pos). It is
+	 * not necessarily the line number matching the current position in the stream.
+	 * 
+	 * @return line number
+	 */
+	public final int getLineNumber()
+	{
+		return lineNumber;
+	}
+
+	/**
+	 * Get the number of characters of the source data. Reads all the remaining data.
+	 * 
+	 * @return Size of the data
+	 */
+	public final int size()
+	{
+		while (reader != null)
+		{
+			read();
+		}
+		return offset + length;
+	}
+
+	/**
+	 * Whether the data end before the position provided. Reads the data up to this position.
+	 * 
+	 * @param pos
+	 *            The position
+	 * @return true, if there is no character at the position
+	 */
+	public final boolean isEndOfInput(final int pos)
+	{
+		return fill(pos) == false;
+	}
+
+	/**
+	 * Get the character at the position provided
+	 * 
+	 * @param pos
+	 *            The position
+	 * @return char at position
+	 */
+	public final char charAt(final int pos)
+	{
+		if (fill(pos) == false)
+		{
+			throw new IndexOutOfBoundsException("pos: " + pos + ", size: " + (offset + length));
+		}
+		if (input != null)
+		{
+			return input.charAt(pos);
+		}
+		checkNotDiscarded(pos);
+
+		return buffer[pos - offset];
+	}
+
+	/**
+	 * @param pos
+	 * @throws IllegalStateException
+	 *             if the character at the position has been discarded
+	 */
+	private void checkNotDiscarded(final int pos)
+	{
+		if (pos < offset)
+		{
+			throw new IllegalStateException("The character at " + pos +
+				" has already been discarded, the buffer starts at " + offset);
+		}
+	}
+
+	/**
+	 * Reads the data up to the position provided.
+	 * 
+	 * @param pos
+	 *            The position
+	 * @return false, if the data end before the position
+	 */
+	private boolean fill(final int pos)
+	{
+		while (pos >= offset + length)
+		{
+			if (reader == null)
+			{
+				return false;
+			}
+			read();
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the next chunk of data, making room by discarding the characters no longer needed or
+	 * else by growing the buffer.
+	 */
+	private void read()
+	{
+		if (buffer.length - length < chunkSize)
+		{
+			int keep = Math.min(Math.min(positionMarker, inputPosition), lastLineCountIndex);
+			int discarded = Math.min(Math.max(keep - offset, 0), length);
+			if (discarded > 0)
+			{
+				System.arraycopy(buffer, discarded, buffer, 0, length - discarded);
+				offset += discarded;
+				length -= discarded;
+			}
+
+			if (buffer.length - length < chunkSize)
+			{
+				char[] newBuffer = new char[Math.max(buffer.length + (buffer.length >> 1), length +
+					chunkSize)];
+				System.arraycopy(buffer, 0, newBuffer, 0, length);
+				buffer = newBuffer;
+			}
+		}
+
+		try
+		{
+			int count = reader.read(buffer, length, buffer.length - length);
+			if (count == -1)
+			{
+				IOUtils.closeQuietly(reader);
+				reader = null;
+			}
+			else
+			{
+				length += count;
+			}
+		}
+		catch (IOException e)
+		{
+			IOUtils.closeQuietly(reader);
+			reader = null;
+			throw new RuntimeException("Unable to read the data", e);
+		}
+	}
+}
@@ -17,11 +17,14 @@
 package org.apache.wicket.util.io;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Properties;
 
 /**
@@ -32,6 +35,9 @@ import java.util.Properties;
  */
 public final class Streams
 {
+	/** the maximum size of the buffer for copying files */
+	private static final int CHANNEL_BUFFER_SIZE = 65536;
+
 	/**
 	 * Writes the input stream to the output stream. Input is done without a Reader object, meaning
 	 * that the input is copied in its raw form. After it is copied it will close the streams.
@@ -108,6 +114,42 @@ public final class Streams
 		return bytesCopied;
 	}
 
+	/**
+	 * Writes a part of a file to the output stream. The file is read with positional reads into a
+	 * large buffer, so the position of the channel is not changed and nothing before the part is
+	 * read. The buffer is a heap buffer of at most 64KB, because the data has to be passed to
+	 * {@link OutputStream#write(byte[], int, int)} as array anyway.
+	 * 
+	 * @param in
+	 *            The channel of the file
+	 * @param position
+	 *            The position of the first byte to copy
+	 * @param count
+	 *            The number of bytes to copy
+	 * @param out
+	 *            The output stream
+	 * @throws IOException
+	 *             When the file ends before the part or the data cannot be read or written
+	 */
+	public static void copy(final FileChannel in, final long position, final long count,
+		final OutputStream out) throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(count, CHANNEL_BUFFER_SIZE));
+		long copied = 0;
+		while (copied < count)
+		{
+			buffer.clear();
+			buffer.limit((int)Math.min(buffer.capacity(), count - copied));
+			int byteCount = in.read(buffer, position + copied);
+			if (byteCount == -1)
+			{
+				throw new EOFException("The file ends before " + (position + count));
+			}
+			out.write(buffer.array(), 0, byteCount);
+			copied += byteCount;
+		}
+	}
+
 	/**
 	 * Loads properties from an XML input stream into the provided properties object.
 	 * 
@@ -17,6 +17,7 @@
 package org.apache.wicket.util.io;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -32,11 +33,17 @@ import org.apache.wicket.util.string.Strings;
  * This is a simple XmlReader. Its only purpose is to read the xml decl string from the input and
  * apply proper character encoding to all subsequent characters. The xml decl string itself is
  * removed from the output.
+ * <p>
+ * If it reads from a {@link Reader} the characters are already decoded and the encoding found in the
+ * xml decl string is just reported by {@link #getEncoding()}.
  * 
  * @author Juergen Donnerstag
  */
 public final class XmlReader extends Reader
 {
+	/** read ahead buffer required for the first line of the markup (encoding) */
+	private static final int READ_AHEAD_SIZE = 80;
+
 	/** Regex to find <?xml encoding ... ?> */
 	private static final Pattern xmlDecl = Pattern.compile("[\\s\\n\\r]*<\\?xml(\\s+.*)?\\?>");
 
@@ -46,7 +53,7 @@ public final class XmlReader extends Reader
 	/** Null, if JVM default. Else from <?xml encoding=""> */
 	private String encoding;
 
-	/** The input stream to read the data from */
+	/** The input stream to read the data from, null if reading from a reader */
 	private final InputStream inputStream;
 
 	/** The reader which does the character encoding */
@@ -81,6 +88,42 @@ public final class XmlReader extends Reader
 		init();
 	}
 
+	/**
+	 * Construct.
+	 * 
+	 * @param reader
+	 *            The reader to read the already decoded xml data from
+	 * @throws IOException
+	 *             In case something went wrong while reading the data
+	 */
+	public XmlReader(final Reader reader) throws IOException
+	{
+		Args.notNull(reader, "reader");
+
+		inputStream = null;
+		if (!reader.markSupported())
+		{
+			this.reader = new BufferedReader(reader);
+		}
+		else
+		{
+			this.reader = reader;
+		}
+
+		// read-ahead the reader and check if it starts with <?xml..?>.
+		this.reader.mark(READ_AHEAD_SIZE);
+		String xmlDeclaration = getXmlDeclaration(this.reader);
+		if (!Strings.isEmpty(xmlDeclaration))
+		{
+			encoding = determineEncoding(xmlDeclaration);
+		}
+		else
+		{
+			// If not, reset the reader to the beginning of the data
+			this.reader.reset();
+		}
+	}
+
 	/**
 	 * Return the encoding used while reading the markup file.
 	 * 
@@ -98,12 +141,10 @@ public final class XmlReader extends Reader
 	 */
 	public void init() throws IOException
 	{
-		// read ahead buffer required for the first line of the markup (encoding)
-		final int readAheadSize = 80;
-		inputStream.mark(readAheadSize);
+		inputStream.mark(READ_AHEAD_SIZE);
 
 		// read-ahead the input stream and check if it starts with <?xml..?>.
-		String xmlDeclaration = getXmlDeclaration(inputStream, readAheadSize);
+		String xmlDeclaration = getXmlDeclaration(inputStream, READ_AHEAD_SIZE);
 		if (!Strings.isEmpty(xmlDeclaration))
 		{
 			// If yes than determine the encoding from the xml decl
@@ -193,6 +234,45 @@ public final class XmlReader extends Reader
 			}
 		}
 
+		return matchXmlDeclaration(pushBack);
+	}
+
+	/**
+	 * Read-ahead the reader. If the first line contains &lt;?xml...?&gt;, than remember the xml
+	 * decl for later to determine the encoding.
+	 * 
+	 * @param in
+	 *            The markup
+	 * @return The xml decl, null if not found
+	 * @throws IOException
+	 */
+	private final String getXmlDeclaration(final Reader in) throws IOException
+	{
+		// Max one line
+		final StringBuilder pushBack = new StringBuilder(READ_AHEAD_SIZE);
+
+		int value;
+		while ((value = in.read()) != -1)
+		{
+			pushBack.append((char)value);
+
+			if ((value == '>') || (value == '\n') || (value == '\r') ||
+				(pushBack.length() >= (READ_AHEAD_SIZE - 1)))
+			{
+				break;
+			}
+		}
+
+		return matchXmlDeclaration(pushBack);
+	}
+
+	/**
+	 * @param pushBack
+	 *            The first line read ahead
+	 * @return The xml decl, null if the line isn't one
+	 */
+	private static String matchXmlDeclaration(final StringBuilder pushBack)
+	{
 		// Does the string match the <?xml .. ?> pattern
 		final Matcher matcher = xmlDecl.matcher(pushBack);
 		if (!matcher.matches())
@@ -217,7 +297,10 @@ public final class XmlReader extends Reader
 		}
 		finally
 		{
-			inputStream.close();
+			if (inputStream != null)
+			{
+				inputStream.close();
+			}
 		}
 	}
 
@@ -236,6 +319,6 @@ public final class XmlReader extends Reader
 	@Override
 	public String toString()
 	{
-		return inputStream.toString() + " (" + encoding + ")";
+		return (inputStream != null ? inputStream : reader).toString() + " (" + encoding + ")";
 	}
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.thread;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Creates numbered daemon threads, e.g. for the work done in the background when an application
+ * starts up. Daemon threads don't keep the JVM running if a task never finishes.
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+	private final String name;
+
+	private final AtomicInteger counter = new AtomicInteger();
+
+	/**
+	 * Construct.
+	 *
+	 * @param name
+	 *            the name of the threads, followed by a dash and the number of the thread
+	 */
+	public DaemonThreadFactory(final String name)
+	{
+		this.name = Args.notEmpty(name, "name");
+	}
+
+	@Override
+	public Thread newThread(final Runnable runnable)
+	{
+		Thread thread = new Thread(runnable, name + '-' + counter.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
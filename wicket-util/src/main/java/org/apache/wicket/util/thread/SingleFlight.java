@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.thread;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.IProvider;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Makes sure a value is loaded only once for concurrent requests with the same key. The first
+ * thread requesting a key loads the value, threads requesting the same key in the meantime wait for
+ * it and get the very same value instead of loading it themselves.
+ * <p>
+ * Nothing is cached: as soon as a load finished, the next request for the key loads again. Callers
+ * are expected to check their cache first, and again within the loader.
+ * <p>
+ * If the loader fails, the waiting threads load the value themselves, so each of them gets its own
+ * exception. A thread requesting a key it is loading itself loads it again rather than waiting for
+ * itself.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the values
+ */
+public class SingleFlight<K, V>
+{
+	/** the loads in progress */
+	private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<K, Flight<V>>();
+
+	/** the number of values loaded */
+	private final AtomicLong loads = new AtomicLong();
+
+	/** the number of requests which got a value loaded by another thread */
+	private final AtomicLong coalescedLoads = new AtomicLong();
+
+	/**
+	 * Loads the value for the key, or waits for the thread already loading it.
+	 *
+	 * @param key
+	 *            the key of the value
+	 * @param loader
+	 *            loads the value if no other thread does already
+	 * @return the loaded value
+	 */
+	public V load(final K key, final IProvider<V> loader)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(loader, "loader");
+
+		Flight<V> flight = new Flight<V>();
+		Flight<V> current = flights.putIfAbsent(key, flight);
+		if (current == null)
+		{
+			loads.incrementAndGet();
+			try
+			{
+				flight.value = loader.get();
+				flight.loaded = true;
+				return flight.value;
+			}
+			finally
+			{
+				flights.remove(key, flight);
+				flight.done.countDown();
+			}
+		}
+
+		if (current.owner != Thread.currentThread())
+		{
+			try
+			{
+				current.done.await();
+				if (current.loaded)
+				{
+					coalescedLoads.incrementAndGet();
+					return current.value;
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		loads.incrementAndGet();
+		return loader.get();
+	}
+
+	/**
+	 * @return the number of values loaded
+	 */
+	public long getLoads()
+	{
+		return loads.get();
+	}
+
+	/**
+	 * @return the number of requests which waited for the value loaded by another thread
+	 */
+	public long getCoalescedLoads()
+	{
+		return coalescedLoads.get();
+	}
+
+	/**
+	 * A load in progress. The value is published to the waiting threads by the latch.
+	 *
+	 * @param <V>
+	 */
+	private static class Flight<V>
+	{
+		private final Thread owner = Thread.currentThread();
+
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private V value;
+
+		private boolean loaded;
+	}
+}
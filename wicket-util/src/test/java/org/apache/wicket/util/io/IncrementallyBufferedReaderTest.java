@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.io;
+
+import java.io.StringReader;
+import java.text.ParseException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link IncrementallyBufferedReader}
+ */
+public class IncrementallyBufferedReaderTest extends Assert
+{
+	private static final String DATA = "<html>\n<body>\n<span wicket:id=\"label\">text</span>\n</body>\n</html>";
+
+	/**
+	 *
+	 */
+	@Test
+	public void findAcrossChunks()
+	{
+		IncrementallyBufferedReader reader = new IncrementallyBufferedReader(new StringReader(
+			DATA), 3);
+
+		assertEquals(DATA.indexOf('<', 1), reader.find('<', 1));
+		assertEquals(DATA.indexOf("</span>"), reader.find("</span>"));
+		assertEquals(-1, reader.find("</div>"));
+		assertEquals(DATA.charAt(20), reader.charAt(20));
+		assertFalse(reader.isEndOfInput(DATA.length() - 1));
+		assertTrue(reader.isEndOfInput(DATA.length()));
+		assertEquals(DATA.length(), reader.size());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void discardBeforePositionMarker()
+	{
+		IncrementallyBufferedReader reader = new IncrementallyBufferedReader(new StringReader(
+			DATA), 3);
+
+		int span = DATA.indexOf("<span");
+		reader.countLinesTo(span);
+		reader.setPosition(span);
+		reader.setPositionMarker(span);
+
+		int end = reader.find("</html>");
+		assertEquals(DATA.substring(span, end), reader.getSubstring(end).toString());
+		assertEquals(3, reader.getLineNumber());
+
+		try
+		{
+			reader.getSubstring(0, span);
+			fail("The data before the position marker should have been discarded");
+		}
+		catch (IllegalStateException e)
+		{
+			// expected
+		}
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void keepAllData()
+	{
+		IncrementallyBufferedReader reader = new IncrementallyBufferedReader(DATA);
+
+		reader.setPosition(DATA.length());
+		reader.setPositionMarker(DATA.length());
+		assertEquals(DATA, reader.getSubstring(0, DATA.length()));
+		assertEquals(DATA, reader.toString());
+	}
+
+	/**
+	 *
+	 * @throws ParseException
+	 */
+	@Test
+	public void nestedQuotes() throws ParseException
+	{
+		// testTag is <a href='b \'" > a' theAtr="at'r'\"r">
+		String testTag = "<a href='b \\'\" > a' theAtr=\"at'r'\\\"r\">";
+		IncrementallyBufferedReader reader = new IncrementallyBufferedReader(new StringReader(
+			testTag), 2);
+
+		int position = reader.findOutOfQuotes('>', 0);
+
+		// close bracket must be at the end of the string
+		assertEquals(testTag.length(), position + 1);
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.thread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.util.IProvider;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SingleFlight}
+ */
+public class SingleFlightTest
+{
+	/**
+	 * @throws Exception
+	 */
+	@Test
+	public void concurrentLoadsAreCoalesced() throws Exception
+	{
+		final SingleFlight<String, Object> singleFlight = new SingleFlight<String, Object>();
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final Object value = new Object();
+
+		final IProvider<Object> loader = new IProvider<Object>()
+		{
+			@Override
+			public Object get()
+			{
+				calls.incrementAndGet();
+				loading.countDown();
+				try
+				{
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return value;
+			}
+		};
+
+		final Object[] results = new Object[4];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++)
+		{
+			final int index = i;
+			threads[i] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					results[index] = singleFlight.load("key", loader);
+				}
+			};
+		}
+
+		threads[0].start();
+		loading.await(10, TimeUnit.SECONDS);
+		for (int i = 1; i < threads.length; i++)
+		{
+			threads[i].start();
+		}
+
+		// release the first thread once the others wait for it
+		for (int i = 1; i < threads.length; i++)
+		{
+			long timeout = System.currentTimeMillis() + 10000;
+			while ((threads[i].getState() != Thread.State.WAITING) &&
+				(System.currentTimeMillis() < timeout))
+			{
+				Thread.sleep(10);
+			}
+		}
+		release.countDown();
+		for (Thread thread : threads)
+		{
+			thread.join(10000);
+		}
+
+		for (Object result : results)
+		{
+			assertSame(value, result);
+		}
+		assertEquals(1, calls.get());
+		assertEquals(1, singleFlight.getLoads());
+		assertEquals(results.length - 1, singleFlight.getCoalescedLoads());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void sequentialLoadsAreNotCoalesced()
+	{
+		SingleFlight<String, String> singleFlight = new SingleFlight<String, String>();
+		IProvider<String> loader = new IProvider<String>()
+		{
+			@Override
+			public String get()
+			{
+				return "value";
+			}
+		};
+
+		assertEquals("value", singleFlight.load("key", loader));
+		assertEquals("value", singleFlight.load("key", loader));
+		assertEquals(2, singleFlight.getLoads());
+		assertEquals(0, singleFlight.getCoalescedLoads());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void reentrantLoadDoesNotWaitForItself()
+	{
+		final SingleFlight<String, String> singleFlight = new SingleFlight<String, String>();
+		String value = singleFlight.load("key", new IProvider<String>()
+		{
+			@Override
+			public String get()
+			{
+				return "outer " + singleFlight.load("key", new IProvider<String>()
+				{
+					@Override
+					public String get()
+					{
+						return "inner";
+					}
+				});
+			}
+		});
+
+		assertEquals("outer inner", value);
+		assertEquals(2, singleFlight.getLoads());
+	}
+}